@@ -0,0 +1,122 @@
+package com.habeebcycle.demo.resilientservice.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * CPU per request for the body of a {@code /posts} listing (100 posts, as served by jsonplaceholder) in each
+ * compression mode of the proxy, at the zlib {@code level} of {@code api.compression.level}. Bytes per request are
+ * printed once per trial, as they do not change between invocations:
+ * <ul>
+ *     <li>{@code identity}: no compression on either side; the body is decoded and encoded as text.</li>
+ *     <li>{@code compressResponse}: identity upstream, gzip to the caller.</li>
+ *     <li>{@code reencode}: gzip upstream, decoded for the cache, gzip again to the caller (buffered mode).</li>
+ *     <li>{@code passThrough}: gzip upstream forwarded as is (streaming mode with a matching Accept-Encoding).</li>
+ * </ul>
+ * The server compressor is Netty's JDK zlib encoder, so {@link GZIPOutputStream} with the same level is a close match.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+
+    private static final String[] LOREM = ("sunt aut facere repellat provident occaecati excepturi optio reprehenderit quia et "
+            + "suscipit recusandae consequuntur expedita cum molestiae ut quas totam nostrum rerum est autem rem eveniet "
+            + "architecto qui esse ea dolores neque nisi nihil dolorem eum magnam vel iure voluptatem fugiat doloribus "
+            + "quo id harum ipsum ad accusantium sequi odit velit sint omnis pariatur magni ab nulla").split(" ");
+
+    @Param({"1", "6", "9"})
+    public int level;
+
+    private byte[] identityBody;
+    private byte[] gzipBody;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Random random = new Random(42); // Seeded lorem ipsum, so the ratio resembles real posts rather than repeats
+        final String listing = IntStream.rangeClosed(1, 100)
+                .mapToObj(id -> "{\n  \"userId\": " + ((id - 1) / 10 + 1) + ",\n  \"id\": " + id
+                        + ",\n  \"title\": \"" + words(random, 6) + "\",\n  \"body\": \"" + words(random, 30) + "\"\n}")
+                .collect(Collectors.joining(",\n", "[\n", "\n]"));
+        identityBody = listing.getBytes(StandardCharsets.UTF_8);
+        gzipBody = gzip(identityBody, Deflater.DEFAULT_COMPRESSION); // Typical upstream setting
+
+        System.out.printf("%nBytes per request at level %d: identity=%d, gzip=%d (upstream gzip=%d)%n",
+                level, identityBody.length, gzip(identityBody, level).length, gzipBody.length);
+    }
+
+    @Benchmark
+    public byte[] identity() {
+        return new String(identityBody, StandardCharsets.UTF_8).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] compressResponse() {
+        return gzip(new String(identityBody, StandardCharsets.UTF_8).getBytes(StandardCharsets.UTF_8), level);
+    }
+
+    @Benchmark
+    public byte[] reencode() {
+        return gzip(new String(gunzip(gzipBody), StandardCharsets.UTF_8).getBytes(StandardCharsets.UTF_8), level);
+    }
+
+    @Benchmark
+    public byte[] passThrough() {
+        return Arrays.copyOf(gzipBody, gzipBody.length); // The buffer copy a pass-through write costs at most
+    }
+
+    private static String words(final Random random, final int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> LOREM[random.nextInt(LOREM.length)])
+                .collect(Collectors.joining(" "));
+    }
+
+    private static byte[] gzip(final byte[] body, final int level) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] gunzip(final byte[] body) {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return gzip.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.habeebcycle.demo.resilientservice.benchmark;
+
+import ch.qos.logback.classic.Logger;
+import com.habeebcycle.demo.resilientservice.http.error.GlobalErrorHandler;
+import com.habeebcycle.demo.resilientservice.http.exception.CircuitBreakerOpenException;
+import com.habeebcycle.demo.resilientservice.http.exception.CustomResponseStatusException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.reactive.error.DefaultErrorAttributes;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.reactive.result.view.ViewResolver;
+
+import java.time.ZonedDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+/**
+ * Time to render the JSON error body for the circuit-open 503 through {@link GlobalErrorHandler}, including
+ * creating the exception as ApplicationHandler does on every rejected call. {@code jacksonWithStackTrace} is the
+ * previous error path for comparison: an exception with a stack trace and a body serialized by the Jackson codec.
+ * Both include the error handler and mock exchange plumbing; the {@code create*} pair isolates the exception cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ErrorRenderingBenchmark {
+
+    private GlobalErrorHandler errorHandler;
+    private ServerResponse.Context responseContext;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).detachAndStopAllAppenders();
+
+        final GenericApplicationContext applicationContext = new GenericApplicationContext();
+        applicationContext.refresh();
+        errorHandler = new GlobalErrorHandler(new DefaultErrorAttributes(), applicationContext, ServerCodecConfigurer.create());
+        errorHandler.afterPropertiesSet();
+
+        final HandlerStrategies strategies = HandlerStrategies.withDefaults();
+        responseContext = new ServerResponse.Context() {
+            @Override
+            public List<HttpMessageWriter<?>> messageWriters() {
+                return strategies.messageWriters();
+            }
+
+            @Override
+            public List<ViewResolver> viewResolvers() {
+                return strategies.viewResolvers();
+            }
+        };
+    }
+
+    @Benchmark
+    public Object renderServiceUnavailable() {
+        final MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/services/posts/1"));
+        errorHandler.handle(exchange, new CircuitBreakerOpenException()).block();
+        return exchange.getResponse().getBodyAsString().block();
+    }
+
+    @Benchmark
+    public Object createWithStackTrace() {
+        return new CustomResponseStatusException(SERVICE_UNAVAILABLE, CircuitBreakerOpenException.MESSAGE);
+    }
+
+    @Benchmark
+    public Object createStackless() {
+        return new CircuitBreakerOpenException();
+    }
+
+    @Benchmark
+    public Object jacksonWithStackTrace() {
+        final MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/services/posts/1"));
+        final CustomResponseStatusException error = new CustomResponseStatusException(SERVICE_UNAVAILABLE, CircuitBreakerOpenException.MESSAGE);
+        final Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", ZonedDateTime.now());
+        body.put("path", exchange.getRequest().getPath().value());
+        body.put("statusCode", error.getStatusCode().value());
+        body.put("status", error.getStatus());
+        body.put("message", error.getMessage());
+        ServerResponse.status(error.getStatusCode())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .flatMap(response -> response.writeTo(exchange, responseContext))
+                .block();
+        return exchange.getResponse().getBodyAsString().block();
+    }
+}
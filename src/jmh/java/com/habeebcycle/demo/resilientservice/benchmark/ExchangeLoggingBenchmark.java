@@ -0,0 +1,136 @@
+package com.habeebcycle.demo.resilientservice.benchmark;
+
+import ch.qos.logback.classic.Logger;
+import com.habeebcycle.demo.resilientservice.config.ClientLoggingProperties;
+import com.habeebcycle.demo.resilientservice.http.web.ExchangeLoggingFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+/**
+ * Throughput of a full upstream exchange (filter + decoding the body as the handler does) through the previous
+ * buffering response logger and through {@link ExchangeLoggingFilter} in its main configurations. Log output is
+ * discarded so the numbers reflect the filter work rather than console I/O.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExchangeLoggingBenchmark {
+
+    private static final int CHUNK_SIZE = 8192;
+
+    @Param({"1024", "262144"})
+    public int bodySize;
+
+    private final DefaultDataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+    private ClientRequest request;
+    private ExchangeFunction upstream;
+    private ExchangeFilterFunction legacyFilter;
+    private ExchangeFilterFunction loggingOff;
+    private ExchangeFilterFunction sampledHeadersOnly;
+    private ExchangeFilterFunction headersOnly;
+    private ExchangeFilterFunction bodyPreview;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).detachAndStopAllAppenders();
+
+        final byte[] payload = new byte[bodySize];
+        Arrays.fill(payload, (byte) 'x');
+        request = ClientRequest.create(HttpMethod.GET, URI.create("http://localhost/posts")).build();
+        upstream = clientRequest -> Mono.fromSupplier(() -> ClientResponse.create(HttpStatus.OK)
+                .header(CONTENT_TYPE, APPLICATION_JSON_VALUE)
+                .body(chunks(payload))
+                .build());
+
+        final List<String> redacted = List.of("Authorization", "Cookie");
+        legacyFilter = legacyResponseLogger();
+        loggingOff = new ExchangeLoggingFilter(new ClientLoggingProperties("OFF", 1, 0, redacted));
+        sampledHeadersOnly = new ExchangeLoggingFilter(new ClientLoggingProperties("INFO", 100, 0, redacted));
+        headersOnly = new ExchangeLoggingFilter(new ClientLoggingProperties("INFO", 1, 0, redacted));
+        bodyPreview = new ExchangeLoggingFilter(new ClientLoggingProperties("INFO", 1, 256, redacted));
+    }
+
+    @Benchmark
+    public String legacyBufferingFilter() {
+        return exchange(legacyFilter);
+    }
+
+    @Benchmark
+    public String loggingOff() {
+        return exchange(loggingOff);
+    }
+
+    @Benchmark
+    public String sampledHeadersOnly() {
+        return exchange(sampledHeadersOnly);
+    }
+
+    @Benchmark
+    public String headersOnly() {
+        return exchange(headersOnly);
+    }
+
+    @Benchmark
+    public String bodyPreview() {
+        return exchange(bodyPreview);
+    }
+
+    private String exchange(final ExchangeFilterFunction filter) {
+        return filter.filter(request, upstream)
+                .flatMap(clientResponse -> clientResponse.bodyToMono(String.class))
+                .block();
+    }
+
+    private Flux<DataBuffer> chunks(final byte[] payload) {
+        return Flux.range(0, (payload.length + CHUNK_SIZE - 1) / CHUNK_SIZE)
+                .map(index -> {
+                    final int offset = index * CHUNK_SIZE;
+                    return bufferFactory.wrap(Arrays.copyOfRange(payload, offset, Math.min(payload.length, offset + CHUNK_SIZE)));
+                });
+    }
+
+    // The response logger as it was before ExchangeLoggingFilter: aggregates the body and rebuilds the response
+    private static ExchangeFilterFunction legacyResponseLogger() {
+        final org.slf4j.Logger logger = LoggerFactory.getLogger(ExchangeLoggingBenchmark.class);
+        return ExchangeFilterFunction.ofResponseProcessor(clientResponse ->
+                clientResponse.bodyToMono(String.class).defaultIfEmpty("").flatMap(responseBody -> {
+                    final ClientResponse orgClientResponse = clientResponse.mutate().body(responseBody).build();
+                    logger.info("Received response from API with body [{}] status [{}] with response headers [{}]",
+                            responseBody, clientResponse.statusCode(), clientResponse.headers().asHttpHeaders().toSingleValueMap());
+                    return Mono.just(orgClientResponse);
+                })
+        );
+    }
+}
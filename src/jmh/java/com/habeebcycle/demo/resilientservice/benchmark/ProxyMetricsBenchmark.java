@@ -0,0 +1,78 @@
+package com.habeebcycle.demo.resilientservice.benchmark;
+
+import com.habeebcycle.demo.resilientservice.config.MetricsProperties;
+import com.habeebcycle.demo.resilientservice.metrics.ProxyMetrics;
+import com.habeebcycle.demo.resilientservice.metrics.RequestIdExemplarSampler;
+import com.habeebcycle.demo.resilientservice.router.UpstreamRoute;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.retry.Retry;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.prometheus.client.CollectorRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of the {@link ProxyMetrics} instrumentation ApplicationHandler applies to a cache-miss request
+ * (request timer with exemplar, one upstream attempt timer, payload size and attempt count), recorded into a
+ * Prometheus registry, against the uninstrumented call. The budget is {@value #BUDGET_NANOS} ns per request over
+ * {@code baseline}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProxyMetricsBenchmark {
+
+    public static final long BUDGET_NANOS = 2000;
+    private static final String BODY = "{\"userId\":1,\"id\":1,\"title\":\"title\",\"body\":\"body\"}";
+
+    @Param({"true", "false"})
+    public boolean percentileHistogram;
+
+    private ProxyMetrics proxyMetrics;
+    private UpstreamRoute route;
+    private Mono<ResponseEntity<String>> upstream;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final PrometheusMeterRegistry meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT, new CollectorRegistry(),
+                Clock.SYSTEM, new RequestIdExemplarSampler());
+        proxyMetrics = new ProxyMetrics(meterRegistry, new MetricsProperties(percentileHistogram, Duration.ofMillis(1), Duration.ofSeconds(30)));
+        route = new UpstreamRoute("post", "/posts/{id}", null, CircuitBreaker.ofDefaults("post"), Retry.ofDefaults("post"), null, null);
+        upstream = Mono.fromSupplier(() -> ResponseEntity.ok(BODY));
+    }
+
+    @Benchmark
+    public String baseline() {
+        return upstream.mapNotNull(HttpEntity::getBody).block();
+    }
+
+    @Benchmark
+    public String instrumented() {
+        return proxyMetrics.timeUpstream(route.path(), upstream)
+                .mapNotNull(HttpEntity::getBody)
+                .doFinally(signal -> proxyMetrics.recordAttempts(route.path(), 1))
+                .transform(response -> proxyMetrics.timeRequest(route, "request-1", response, body -> 200))
+                .block();
+    }
+}
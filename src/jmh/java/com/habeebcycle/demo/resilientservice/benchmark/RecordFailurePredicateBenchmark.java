@@ -0,0 +1,64 @@
+package com.habeebcycle.demo.resilientservice.benchmark;
+
+import com.habeebcycle.demo.resilientservice.http.exception.CustomResponseStatusException;
+import com.habeebcycle.demo.resilientservice.http.exception.RecordFailurePredicate;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+
+/**
+ * Cost of {@link RecordFailurePredicate#test(Throwable)} for each kind of failure the upstream call produces,
+ * including the ones that fall through every check.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordFailurePredicateBenchmark {
+
+    @Param({"SERVER_ERROR", "CLIENT_ERROR", "READ_TIMEOUT", "IO", "WEB_CLIENT", "UNRELATED"})
+    public String failure;
+
+    private final RecordFailurePredicate predicate = new RecordFailurePredicate();
+    private Throwable throwable;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        throwable = switch (failure) {
+            case "SERVER_ERROR" -> new CustomResponseStatusException(INTERNAL_SERVER_ERROR, "ERROR");
+            case "CLIENT_ERROR" -> new CustomResponseStatusException(BAD_REQUEST, "ERROR");
+            case "READ_TIMEOUT" -> ReadTimeoutException.INSTANCE;
+            case "IO" -> new IOException("Connection reset by peer");
+            case "WEB_CLIENT" -> new WebClientRequestException(new IOException("Connection refused"),
+                    HttpMethod.GET, URI.create("http://localhost/posts"), new HttpHeaders());
+            default -> new IllegalStateException("unrelated");
+        };
+    }
+
+    @Benchmark
+    public boolean test() {
+        return predicate.test(throwable);
+    }
+}
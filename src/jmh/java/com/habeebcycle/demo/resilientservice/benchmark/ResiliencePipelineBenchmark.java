@@ -0,0 +1,115 @@
+package com.habeebcycle.demo.resilientservice.benchmark;
+
+import com.habeebcycle.demo.resilientservice.config.HedgingProperties;
+import com.habeebcycle.demo.resilientservice.config.LimiterProperties;
+import com.habeebcycle.demo.resilientservice.config.MetricsProperties;
+import com.habeebcycle.demo.resilientservice.config.RetryProperties;
+import com.habeebcycle.demo.resilientservice.http.exception.RecordFailurePredicate;
+import com.habeebcycle.demo.resilientservice.metrics.ProxyMetrics;
+import com.habeebcycle.demo.resilientservice.resilience.AdaptiveConcurrencyLimiter;
+import com.habeebcycle.demo.resilientservice.resilience.BudgetedRetry;
+import com.habeebcycle.demo.resilientservice.resilience.Deadline;
+import com.habeebcycle.demo.resilientservice.resilience.HedgingPolicy;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.core.IntervalFunction;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of decorating a successful upstream call the way ApplicationHandler's upstreamResponse does (upstream
+ * timer, deadline, circuit breaker, adaptive concurrency limit, hedging and budgeted retry, under the route's timeout),
+ * against the undecorated call and the circuit breaker alone. With {@code adaptive} false the limiter and hedging are
+ * disabled, as by default, and pass the call through.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResiliencePipelineBenchmark {
+
+    private static final String ROUTE = "/posts/{id}";
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+    private static final String BODY = "{\"userId\":1,\"id\":1,\"title\":\"title\",\"body\":\"body\"}";
+
+    @Param({"false", "true"})
+    public boolean adaptive;
+
+    private CircuitBreaker circuitBreaker;
+    private Retry retry;
+    private ProxyMetrics proxyMetrics;
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private HedgingPolicy hedgingPolicy;
+    private BudgetedRetry budgetedRetry;
+    private Mono<ResponseEntity<String>> upstream;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        circuitBreaker = CircuitBreaker.of("benchmark", CircuitBreakerConfig.custom()
+                .slidingWindowSize(10)
+                .minimumNumberOfCalls(4)
+                .failureRateThreshold(50)
+                .waitDurationInOpenState(Duration.ofSeconds(60))
+                .recordException(new RecordFailurePredicate())
+                .build());
+        retry = Retry.of("benchmark", RetryConfig.custom()
+                .maxAttempts(3)
+                .intervalFunction(IntervalFunction.ofExponentialBackoff(Duration.ofSeconds(1), 2))
+                .retryOnException(new RecordFailurePredicate())
+                .build());
+        proxyMetrics = new ProxyMetrics(meterRegistry, new MetricsProperties(false, Duration.ofMillis(1), Duration.ofSeconds(30)));
+        concurrencyLimiter = new AdaptiveConcurrencyLimiter(
+                new LimiterProperties(adaptive, 20, 4, 200, 1.5, 0.2, 600, Duration.ofSeconds(1)), meterRegistry);
+        hedgingPolicy = new HedgingPolicy(new HedgingProperties(adaptive, 0.95, Duration.ofMillis(5), 10, 1000, 100), meterRegistry);
+        budgetedRetry = new BudgetedRetry(new RetryProperties(RetryProperties.Jitter.FULL, Duration.ofSeconds(30),
+                new RetryProperties.Budget(true, 20, 10)), meterRegistry);
+        upstream = Mono.fromSupplier(() -> ResponseEntity.ok(BODY));
+    }
+
+    @Benchmark
+    public ResponseEntity<String> undecorated() {
+        return upstream.block();
+    }
+
+    @Benchmark
+    public ResponseEntity<String> circuitBreaker() {
+        return upstream
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .block();
+    }
+
+    @Benchmark
+    public ResponseEntity<String> upstreamResponse() {
+        return upstream
+                .transformDeferred(exchange -> proxyMetrics.timeUpstream(ROUTE, exchange))
+                .transformDeferred(Deadline::enforce)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(concurrencyLimiter.of(ROUTE))
+                .transformDeferred(hedgingPolicy.of(ROUTE))
+                .transformDeferred(budgetedRetry.of(retry))
+                .contextWrite(context -> context.put(Deadline.class, Deadline.after(TIMEOUT)))
+                .block();
+    }
+}
@@ -0,0 +1,86 @@
+package com.habeebcycle.demo.resilientservice.benchmark;
+
+import com.habeebcycle.demo.resilientservice.ResilientServiceApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
+
+/**
+ * End-to-end throughput of {@code GET /services/posts/{id}} through the router, handler, resilience operators and
+ * WebClient against an in-process stub upstream. The cache and request coalescing are disabled and ids are
+ * randomised so every request reaches the upstream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(1)
+public class RouterThroughputBenchmark {
+
+    private static final String POST = "{\"userId\":1,\"id\":1,\"title\":\"title\",\"body\":\"body\"}";
+
+    private DisposableServer upstream;
+    private ConfigurableApplicationContext application;
+    private WebClient client;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        upstream = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes.get("/posts/{id}", (request, response) ->
+                        response.header(CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE).sendString(Mono.just(POST))))
+                .bindNow();
+
+        // Command line arguments so they win over the test application.yaml on the benchmark classpath
+        application = new SpringApplicationBuilder(ResilientServiceApplication.class)
+                .run("--server.port=0",
+                        "--api.client.baseUrl=http://localhost:" + upstream.port(),
+                        "--api.client.logging.level=OFF",
+                        "--api.cache.enabled=false",
+                        "--api.coalescing.enabled=false",
+                        "--logging.level.root=WARN");
+
+        client = WebClient.create("http://localhost:" + application.getEnvironment().getProperty("local.server.port"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        application.close();
+        upstream.disposeNow();
+    }
+
+    @Benchmark
+    public String getPostById() {
+        return client.get()
+                .uri("/services/posts/{id}", ThreadLocalRandom.current().nextInt(1, 101))
+                .accept(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .bodyToMono(String.class)
+                .block();
+    }
+}
@@ -0,0 +1,131 @@
+package com.habeebcycle.demo.resilientservice.benchmark;
+
+import com.habeebcycle.demo.resilientservice.ResilientServiceApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.ClassUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Time from launching the application in a fresh JVM until its readiness probe reports it accepting traffic, with the
+ * bean definitions resolved at runtime ({@code JVM}) or generated at build time ({@code AOT}). The resident set size
+ * of the ready process is printed after each run. {@code AOT} needs the classes generated by the aot profile:
+ * mvn -Paot,benchmark -DskipTests test-compile exec:exec -Djmh.args="StartupBenchmark".
+ * <p>
+ * The application runs on the main classpath without the test configuration, and without opening upstream
+ * connections during warm-up so the network does not count towards startup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+public class StartupBenchmark {
+
+    private static final Duration READY_TIMEOUT = Duration.ofSeconds(60);
+
+    @Param({"JVM", "AOT"})
+    public String mode;
+
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+    private String classpath;
+    private Process process;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if ("AOT".equals(mode) && !ClassUtils.isPresent(ResilientServiceApplication.class.getName()
+                + "__ApplicationContextInitializer", getClass().getClassLoader())) {
+            throw new IllegalStateException("No AOT generated classes on the classpath, build with -Paot");
+        }
+        classpath = Arrays.stream(System.getProperty("java.class.path").split(File.pathSeparator))
+                .filter(entry -> !entry.endsWith("test-classes"))
+                .collect(Collectors.joining(File.pathSeparator));
+    }
+
+    @Benchmark
+    public long timeToReady() throws Exception {
+        final int port = freePort();
+        final List<String> command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(), "-cp", classpath));
+        if ("AOT".equals(mode)) {
+            command.add("-Dspring.aot.enabled=true");
+        }
+        command.addAll(List.of(ResilientServiceApplication.class.getName(), "--server.port=" + port,
+                "--api.warmup.connections=0", "--logging.level.root=WARN"));
+        process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+
+        final HttpRequest readiness = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health/readiness"))
+                .timeout(Duration.ofSeconds(1))
+                .build();
+        final long deadline = System.nanoTime() + READY_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline && process.isAlive()) {
+            try {
+                if (httpClient.send(readiness, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return process.pid();
+                }
+            } catch (IOException notListeningYet) {
+                // retried below
+            }
+            Thread.sleep(10);
+        }
+        throw new IllegalStateException("Application not ready in " + READY_TIMEOUT + ", alive: " + process.isAlive());
+    }
+
+    @TearDown(Level.Invocation)
+    public void stop() throws Exception {
+        if (process == null) {
+            return;
+        }
+        System.out.printf("%n%s rss: %s%n", mode, residentSetSize(process.pid()));
+        process.destroy();
+        if (!process.waitFor(10, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+        process = null;
+    }
+
+    private static String residentSetSize(final long pid) throws IOException {
+        final Path status = Path.of("/proc", Long.toString(pid), "status");
+        if (!Files.exists(status)) {
+            return "n/a";
+        }
+        return Files.readAllLines(status).stream()
+                .filter(line -> line.startsWith("VmRSS:"))
+                .map(line -> line.substring("VmRSS:".length()).trim())
+                .findFirst()
+                .orElse("n/a");
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
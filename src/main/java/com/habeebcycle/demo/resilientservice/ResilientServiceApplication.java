@@ -1,9 +1,14 @@
 package com.habeebcycle.demo.resilientservice;
 
+import com.habeebcycle.demo.resilientservice.startup.NativeRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
+@ImportRuntimeHints(NativeRuntimeHints.class)
 public class ResilientServiceApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,65 @@
+package com.habeebcycle.demo.resilientservice.cache;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * The {@code Cache-Control} directives of an upstream response that matter to a shared cache. {@code maxAge} is
+ * null when the upstream sets no lifetime, in which case the route TTL applies.
+ */
+record CacheDirectives(boolean noStore, boolean noCache, boolean mustRevalidate, Duration maxAge) {
+
+    static final CacheDirectives NONE = new CacheDirectives(false, false, false, null);
+
+    static CacheDirectives parse(final String cacheControl) {
+        if (cacheControl == null || cacheControl.isBlank()) {
+            return NONE;
+        }
+        boolean noStore = false;
+        boolean noCache = false;
+        boolean mustRevalidate = false;
+        Long maxAge = null;
+        Long sharedMaxAge = null;
+        for (final String directive : cacheControl.split(",")) {
+            final int equals = directive.indexOf('=');
+            final String name = (equals < 0 ? directive : directive.substring(0, equals)).trim().toLowerCase(Locale.ROOT);
+            final String value = equals < 0 ? null : directive.substring(equals + 1).trim().replace("\"", "");
+            switch (name) {
+                case "no-store", "private" -> noStore = true; // A shared cache must not keep private responses
+                case "no-cache" -> noCache = true;
+                case "must-revalidate", "proxy-revalidate" -> mustRevalidate = true;
+                case "max-age" -> maxAge = seconds(value);
+                case "s-maxage" -> {
+                    sharedMaxAge = seconds(value);
+                    mustRevalidate = true; // Implied for shared caches
+                }
+                default -> {
+                }
+            }
+        }
+        final Long lifetime = sharedMaxAge != null ? sharedMaxAge : maxAge;
+        return new CacheDirectives(noStore, noCache, mustRevalidate, lifetime == null ? null : Duration.ofSeconds(lifetime));
+    }
+
+    /**
+     * How long a response received {@code ageSeconds} after it was generated upstream stays fresh.
+     */
+    Duration ttl(final Duration routeTtl, final long ageSeconds) {
+        if (noCache) {
+            return Duration.ZERO;
+        }
+        if (maxAge == null) {
+            return routeTtl;
+        }
+        final Duration remaining = maxAge.minusSeconds(ageSeconds);
+        return remaining.isNegative() ? Duration.ZERO : remaining;
+    }
+
+    private static Long seconds(final String value) {
+        try {
+            return value == null ? null : Math.max(0, Long.parseLong(value));
+        } catch (NumberFormatException e) {
+            return 0L; // Malformed lifetimes mean stale
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.habeebcycle.demo.resilientservice.cache;
+
+import com.habeebcycle.demo.resilientservice.config.CoalescingProperties;
+import com.habeebcycle.demo.resilientservice.resilience.Deadline;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single-flight layer for upstream calls: concurrent subscribers asking for the same key share one in-flight
+ * {@link Mono}, so the circuit breaker and retry only see one call for the whole burst.
+ * <p>
+ * The shared call fans its value or error out to every subscriber and is cancelled only once all of them have
+ * cancelled. The key is released as soon as the call terminates, so results are never reused afterwards; caching
+ * is the job of {@link ResponseCache}.
+ * <p>
+ * The shared call runs without any caller's {@link Deadline}: the key does not include it, so the first caller's
+ * budget would otherwise bound, and fail, the call for every subscriber. Each caller enforces its own deadline on
+ * its subscription instead.
+ */
+@Component
+public class RequestCoalescer {
+
+    private static final String METRIC_REQUESTS = "proxy.coalescing.requests";
+
+    private final boolean enabled;
+    private final Map<String, InFlight<?>> inFlight = new ConcurrentHashMap<>();
+    private final Counter leaders;
+    private final Counter followers;
+
+    public RequestCoalescer(final CoalescingProperties properties, final MeterRegistry meterRegistry) {
+        this.enabled = properties.enabled();
+        this.leaders = Counter.builder(METRIC_REQUESTS).tag("role", "leader").register(meterRegistry);
+        this.followers = Counter.builder(METRIC_REQUESTS).tag("role", "follower").register(meterRegistry);
+
+        Gauge.builder("proxy.coalescing.in.flight", inFlight, Map::size).register(meterRegistry);
+        Gauge.builder("proxy.coalescing.ratio", this, RequestCoalescer::coalescingRatio).register(meterRegistry);
+    }
+
+    /**
+     * Builds a coalescing key from the parts of an upstream request that influence its response.
+     */
+    public static String key(final String method, final String path, final String... headerValues) {
+        return headerValues.length == 0 ? method + ' ' + path : method + ' ' + path + ' ' + String.join("|", headerValues);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Mono<T> coalesce(final String key, final Mono<T> upstream) {
+        if (!enabled) {
+            return upstream;
+        }
+        return Mono.defer(() -> {
+            final InFlight<T> existing = (InFlight<T>) inFlight.get(key);
+            if (existing != null) {
+                followers.increment();
+                return existing.shared;
+            }
+            final InFlight<T> created = new InFlight<>(key, upstream);
+            final InFlight<T> raced = (InFlight<T>) inFlight.putIfAbsent(key, created);
+            if (raced != null) {
+                followers.increment();
+                return raced.shared;
+            }
+            leaders.increment();
+            return created.shared;
+        });
+    }
+
+    private double coalescingRatio() {
+        final double total = leaders.count() + followers.count();
+        return total == 0 ? 0 : followers.count() / total;
+    }
+
+    private final class InFlight<T> {
+        private final Mono<T> shared;
+
+        private InFlight(final String key, final Mono<T> upstream) {
+            // fromDirect: the shared source is a Mono, so it must not be cancelled after its value like Mono.from would
+            // Released before the result reaches subscribers, which may ask for the same key again while handling it
+            // and must not be handed a publisher that has already completed
+            this.shared = Mono.fromDirect(upstream
+                    .contextWrite(context -> context.delete(Deadline.class))
+                    .doOnSuccess(value -> inFlight.remove(key, this))
+                    .doOnError(throwable -> inFlight.remove(key, this))
+                    .doOnCancel(() -> inFlight.remove(key, this))
+                    .flux()
+                    .publish()
+                    .refCount(1));
+        }
+    }
+}
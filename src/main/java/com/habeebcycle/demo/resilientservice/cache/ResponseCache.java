@@ -0,0 +1,156 @@
+package com.habeebcycle.demo.resilientservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.habeebcycle.demo.resilientservice.config.CacheProperties;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Bounded in-memory cache of upstream responses, sitting in front of the resilient WebClient call.
+ * <p>
+ * An entry is fresh for its route TTL and served without calling the upstream. For {@code staleWhileRevalidate}
+ * after that it is still served, while a single background call refreshes it. Entries are retained for
+ * {@code maxStale} past their TTL so they can be served when the circuit breaker rejects the call, and so the
+ * upstream can be asked to revalidate them with a conditional request instead of resending the body.
+ * <p>
+ * With {@code honorCacheControl}, the upstream's {@code max-age}/{@code s-maxage} (less its {@code Age}) replaces
+ * the route TTL, {@code no-cache} makes every request revalidate, {@code no-store} and {@code private} responses are
+ * never stored, and {@code must-revalidate} entries are never served stale.
+ */
+@Component
+public class ResponseCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ResponseCache.class);
+    private static final String METRIC_REQUESTS = "proxy.cache.requests";
+
+    private final CacheProperties properties;
+    private final Cache<String, Entry> cache;
+    private final Counter notModified;
+    private final long staleWhileRevalidateNanos;
+    private final long retentionNanos;
+    private final Counter hits;
+    private final Counter staleHits;
+    private final Counter misses;
+    private final Counter staleFallbacks;
+    private final Counter evictions;
+
+    public ResponseCache(final CacheProperties properties, final MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.staleWhileRevalidateNanos = properties.staleWhileRevalidate().toNanos();
+        this.retentionNanos = Math.max(staleWhileRevalidateNanos, properties.maxStale().toNanos());
+        this.hits = Counter.builder(METRIC_REQUESTS).tag("result", "hit").register(meterRegistry);
+        this.staleHits = Counter.builder(METRIC_REQUESTS).tag("result", "stale").register(meterRegistry);
+        this.misses = Counter.builder(METRIC_REQUESTS).tag("result", "miss").register(meterRegistry);
+        this.staleFallbacks = Counter.builder(METRIC_REQUESTS).tag("result", "fallback").register(meterRegistry);
+        this.evictions = Counter.builder("proxy.cache.evictions").register(meterRegistry);
+        this.notModified = Counter.builder("proxy.cache.revalidations").tag("result", "not_modified").register(meterRegistry);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.maxWeight())
+                .weigher((String key, Entry entry) -> key.length() + entry.response().body().length())
+                .expireAfter(new EntryExpiry())
+                .removalListener((String key, Entry entry, RemovalCause cause) -> {
+                    if (cause == RemovalCause.SIZE) {
+                        evictions.increment();
+                    }
+                })
+                .build();
+
+        Gauge.builder("proxy.cache.size", cache, Cache::estimatedSize).register(meterRegistry);
+        Gauge.builder("proxy.cache.weight", cache, c -> c.policy().eviction().map(e -> e.weightedSize().orElse(0)).orElse(0L))
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached response for {@code key} when it can be served, otherwise subscribes to {@code upstream} and
+     * caches its result under the TTL of {@code route}. {@code upstream} is given the cached response to revalidate,
+     * or null when there is none; it returns that same response, revalidated, when the upstream answers 304.
+     */
+    public Mono<UpstreamResponse> get(final String route, final String key,
+                                      final Function<UpstreamResponse, Mono<UpstreamResponse>> upstream) {
+        if (!properties.enabled()) {
+            return upstream.apply(null);
+        }
+
+        final long now = System.nanoTime();
+        final Entry entry = cache.getIfPresent(key);
+        if (entry != null && now < entry.freshUntil()) {
+            hits.increment();
+            return Mono.just(entry.response());
+        }
+        if (entry != null && !entry.mustRevalidate() && now < entry.freshUntil() + staleWhileRevalidateNanos) {
+            staleHits.increment();
+            revalidate(route, key, entry, upstream.apply(entry.response()));
+            return Mono.just(entry.response());
+        }
+
+        misses.increment();
+        final Mono<UpstreamResponse> load = upstream.apply(entry == null ? null : entry.response())
+                .doOnNext(response -> put(route, key, entry, response));
+        if (entry == null || entry.mustRevalidate() || !properties.serveStaleOnOpenCircuit()) {
+            return load;
+        }
+        return load.onErrorResume(CallNotPermittedException.class, throwable -> {
+            LOG.warn("Circuit Breaker rejected the call... Serving stale cached response for [{}]", key);
+            staleFallbacks.increment();
+            return Mono.just(entry.response());
+        });
+    }
+
+    private void revalidate(final String route, final String key, final Entry entry, final Mono<UpstreamResponse> upstream) {
+        if (!entry.revalidating().compareAndSet(false, true)) {
+            return;
+        }
+        upstream.doFinally(signal -> entry.revalidating().set(false))
+                .subscribe(response -> put(route, key, entry, response),
+                        throwable -> LOG.debug("Background revalidation of [{}] failed: [{}]", key, throwable.toString()));
+    }
+
+    private void put(final String route, final String key, final Entry previous, final UpstreamResponse response) {
+        if (previous != null && previous.response().body() == response.body()) {
+            notModified.increment(); // Same instance: the upstream answered 304
+        }
+        final CacheDirectives directives = properties.honorCacheControl()
+                ? CacheDirectives.parse(response.cacheControl()) : CacheDirectives.NONE;
+        if (directives.noStore()) {
+            cache.invalidate(key);
+            return;
+        }
+        final long ttl = directives.ttl(properties.ttl(route), response.ageSeconds()).toNanos();
+        if (ttl > 0 || retentionNanos > 0) {
+            cache.put(key, new Entry(response, System.nanoTime() + ttl, directives.mustRevalidate(), new AtomicBoolean()));
+        }
+    }
+
+    private record Entry(UpstreamResponse response, long freshUntil, boolean mustRevalidate, AtomicBoolean revalidating) {
+    }
+
+    private class EntryExpiry implements Expiry<String, Entry> {
+        @Override
+        public long expireAfterCreate(@NonNull final String key, @NonNull final Entry entry, final long currentTime) {
+            return Math.max(0, entry.freshUntil() + retentionNanos - currentTime);
+        }
+
+        @Override
+        public long expireAfterUpdate(@NonNull final String key, @NonNull final Entry entry, final long currentTime, final long currentDuration) {
+            return expireAfterCreate(key, entry, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(@NonNull final String key, @NonNull final Entry entry, final long currentTime, final long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.habeebcycle.demo.resilientservice.cache;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Upstream body with the headers that travel with it through the cache: content type, validators and caching
+ * directives. Without an upstream {@code ETag}, a weak one is derived from the body once, so callers can still be
+ * answered with 304; only upstream validators are sent back upstream on revalidation.
+ */
+public record UpstreamResponse(String body, MediaType contentType, String eTag, boolean upstreamETag,
+                               String lastModified, String cacheControl, long ageSeconds) {
+
+    public static UpstreamResponse of(final ResponseEntity<String> entity) {
+        final HttpHeaders headers = entity.getHeaders();
+        final String body = Objects.requireNonNullElse(entity.getBody(), "");
+        final String eTag = headers.getETag();
+        return new UpstreamResponse(body,
+                Objects.requireNonNullElse(headers.getContentType(), MediaType.APPLICATION_JSON),
+                eTag != null ? eTag : weakETag(body), eTag != null,
+                headers.getFirst(HttpHeaders.LAST_MODIFIED),
+                headers.getCacheControl(),
+                age(headers));
+    }
+
+    /**
+     * Body produced locally, e.g. by a fallback: no validators and never cached downstream.
+     */
+    public static UpstreamResponse local(final String body) {
+        return new UpstreamResponse(body, MediaType.APPLICATION_JSON, null, false, null, "no-store", 0);
+    }
+
+    /**
+     * This response confirmed by a 304, taking the refreshed validators and directives it carries.
+     */
+    public UpstreamResponse revalidated(final HttpHeaders notModified) {
+        final String refreshedETag = notModified.getETag();
+        return new UpstreamResponse(body, contentType,
+                refreshedETag != null ? refreshedETag : eTag, refreshedETag != null || upstreamETag,
+                Objects.requireNonNullElse(notModified.getFirst(HttpHeaders.LAST_MODIFIED), lastModified),
+                Objects.requireNonNullElse(notModified.getCacheControl(), cacheControl),
+                age(notModified));
+    }
+
+    /**
+     * Adds the validators the upstream knows, so it can answer 304 instead of resending the body.
+     */
+    public void writeConditions(final HttpHeaders headers) {
+        if (upstreamETag) {
+            headers.setIfNoneMatch(eTag);
+        }
+        if (lastModified != null) {
+            headers.set(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+        }
+    }
+
+    /**
+     * Adds validators and caching directives to the response sent to the caller.
+     */
+    public void writeHeaders(final HttpHeaders headers) {
+        if (eTag != null) {
+            headers.setETag(eTag);
+        }
+        if (lastModified != null) {
+            headers.set(HttpHeaders.LAST_MODIFIED, lastModified);
+        }
+        if (cacheControl != null) {
+            headers.setCacheControl(cacheControl);
+        }
+    }
+
+    private static String weakETag(final String body) {
+        return "W/\"" + DigestUtils.md5DigestAsHex(body.getBytes(StandardCharsets.UTF_8)) + '"';
+    }
+
+    private static long age(final HttpHeaders headers) {
+        final String age = headers.getFirst(HttpHeaders.AGE);
+        if (age == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(age.trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
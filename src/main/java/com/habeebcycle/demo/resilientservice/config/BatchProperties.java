@@ -0,0 +1,22 @@
+package com.habeebcycle.demo.resilientservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings of the batch endpoint ({@code api.batch.*}): {@code GET /services<path>?ids=1,2,3} fans out to the
+ * single-item route named {@code itemRoute}, with at most {@code concurrency} sub-calls in flight.
+ */
+@ConfigurationProperties(prefix = "api.batch")
+public record BatchProperties(@DefaultValue("false") boolean enabled,
+                              @DefaultValue("/posts") String path,
+                              @DefaultValue("post") String itemRoute,
+                              @DefaultValue("100") int maxIds,
+                              @DefaultValue("8") int concurrency) {
+
+    public BatchProperties {
+        if (maxIds <= 0 || concurrency <= 0) {
+            throw new IllegalArgumentException("api.batch maxIds and concurrency must be positive");
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.habeebcycle.demo.resilientservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Settings of the upstream response cache ({@code api.cache.*}). Route TTLs are keyed by route template, e.g.
+ * {@code "[/posts/{id}]": 60s}; routes without an entry use {@code defaultTtl}. With {@code honorCacheControl}, the
+ * upstream's {@code Cache-Control} takes precedence over route TTLs.
+ */
+@ConfigurationProperties(prefix = "api.cache")
+public record CacheProperties(@DefaultValue("false") boolean enabled,
+                              @DefaultValue("16777216") long maxWeight,
+                              @DefaultValue("30s") Duration defaultTtl,
+                              @DefaultValue("10s") Duration staleWhileRevalidate,
+                              @DefaultValue("10m") Duration maxStale,
+                              @DefaultValue("true") boolean serveStaleOnOpenCircuit,
+                              @DefaultValue("true") boolean honorCacheControl,
+                              Map<String, Duration> routes) {
+
+    public Duration ttl(final String route) {
+        return routes == null ? defaultTtl : routes.getOrDefault(route, defaultTtl);
+    }
+}
@@ -0,0 +1,25 @@
+package com.habeebcycle.demo.resilientservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+
+/**
+ * Upstream exchange logging ({@code api.client.logging.*}). Exchanges are logged at {@code level} ({@code OFF} to
+ * disable), 1 in {@code sampleRate}, with the values of {@code redactedHeaders} masked and up to
+ * {@code bodyPreviewSize} bytes of the response body (0 for none).
+ */
+@ConfigurationProperties(prefix = "api.client.logging")
+public record ClientLoggingProperties(@DefaultValue("INFO") String level,
+                                      @DefaultValue("1") long sampleRate,
+                                      @DefaultValue("0") int bodyPreviewSize,
+                                      @DefaultValue({"Authorization", "Proxy-Authorization", "Cookie", "Set-Cookie"})
+                                      List<String> redactedHeaders) {
+
+    public ClientLoggingProperties {
+        if (sampleRate < 1 || bodyPreviewSize < 0) {
+            throw new IllegalArgumentException("api.client.logging.sampleRate must be at least 1 and bodyPreviewSize not negative");
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.habeebcycle.demo.resilientservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Coalescing of concurrent identical upstream GETs into one call ({@code api.coalescing.*}).
+ */
+@ConfigurationProperties(prefix = "api.coalescing")
+public record CoalescingProperties(@DefaultValue("true") boolean enabled) {
+}
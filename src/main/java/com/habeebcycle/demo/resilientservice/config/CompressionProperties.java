@@ -0,0 +1,29 @@
+package com.habeebcycle.demo.resilientservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Response compression ({@code api.compression.*}). {@code upstream} asks the upstream for gzip/deflate bodies, which
+ * are decoded before caching; in streaming mode the caller's {@code Accept-Encoding} is forwarded instead and encoded
+ * bodies pass through untouched. {@code enabled} encodes responses of at least {@code minResponseSize} for callers
+ * that accept it: Brotli at {@code brotliQuality} 0 (fastest) to 11 (smallest) where the native brotli4j library
+ * loads, and gzip/deflate at zlib {@code level} 1 (fastest) to 9 (smallest).
+ */
+@ConfigurationProperties(prefix = "api.compression")
+public record CompressionProperties(@DefaultValue("true") boolean upstream,
+                                    @DefaultValue("true") boolean enabled,
+                                    @DefaultValue("2KB") DataSize minResponseSize,
+                                    @DefaultValue("6") int level,
+                                    @DefaultValue("4") int brotliQuality) {
+
+    public CompressionProperties {
+        if (level < 1 || level > 9) {
+            throw new IllegalArgumentException("api.compression.level must be between 1 and 9, was " + level);
+        }
+        if (brotliQuality < 0 || brotliQuality > 11) {
+            throw new IllegalArgumentException("api.compression.brotliQuality must be between 0 and 11, was " + brotliQuality);
+        }
+    }
+}
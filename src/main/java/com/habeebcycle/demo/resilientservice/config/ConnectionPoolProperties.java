@@ -0,0 +1,47 @@
+package com.habeebcycle.demo.resilientservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import reactor.netty.http.HttpProtocol;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Connection management of the upstream WebClient ({@code api.client.pool.*}). {@code protocols} accepts Reactor
+ * Netty's {@link HttpProtocol} names: HTTP11, H2 (HTTP/2 over TLS, negotiated with ALPN) and H2C (cleartext).
+ * They are bound to {@link Protocol} rather than to {@link HttpProtocol} itself, which AOT processing rejects as it
+ * was not compiled with {@code -parameters}.
+ */
+@ConfigurationProperties(prefix = "api.client.pool")
+public record ConnectionPoolProperties(@DefaultValue("500") int maxConnections,
+                                       @DefaultValue("1000") int pendingAcquireMaxCount,
+                                       @DefaultValue("45s") Duration pendingAcquireTimeout,
+                                       @DefaultValue("30s") Duration maxIdleTime,
+                                       @DefaultValue("5m") Duration maxLifeTime,
+                                       @DefaultValue("30s") Duration evictInBackground,
+                                       @DefaultValue("FIFO") LeasingStrategy leasingStrategy,
+                                       @DefaultValue("true") boolean metricsEnabled,
+                                       @DefaultValue("HTTP11") List<Protocol> protocols,
+                                       @DefaultValue("100") long maxConcurrentStreams) {
+
+    public enum LeasingStrategy { FIFO, LIFO }
+
+    public enum Protocol {
+        HTTP11(HttpProtocol.HTTP11), H2(HttpProtocol.H2), H2C(HttpProtocol.H2C);
+
+        private final HttpProtocol httpProtocol;
+
+        Protocol(final HttpProtocol httpProtocol) {
+            this.httpProtocol = httpProtocol;
+        }
+    }
+
+    public HttpProtocol[] httpProtocols() {
+        return protocols.stream().map(protocol -> protocol.httpProtocol).toArray(HttpProtocol[]::new);
+    }
+
+    public boolean isHttp2() {
+        return protocols.contains(Protocol.H2) || protocols.contains(Protocol.H2C);
+    }
+}
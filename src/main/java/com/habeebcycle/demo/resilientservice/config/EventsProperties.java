@@ -0,0 +1,21 @@
+package com.habeebcycle.demo.resilientservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Resilience event pipeline ({@code api.events.*}): events are queued in a ring buffer of {@code capacity} (rounded up
+ * to a power of two) and summarised in the log every {@code summaryInterval}.
+ */
+@ConfigurationProperties(prefix = "api.events")
+public record EventsProperties(@DefaultValue("8192") int capacity,
+                               @DefaultValue("10s") Duration summaryInterval) {
+
+    public EventsProperties {
+        if (capacity < 2 || summaryInterval.isNegative() || summaryInterval.isZero()) {
+            throw new IllegalArgumentException("api.events.capacity must be at least 2 and summaryInterval positive");
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.habeebcycle.demo.resilientservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Route fallbacks ({@code api.fallback.*}). They run on the {@code executor} scheduler, at most
+ * {@code maxConcurrency} at once, each cut at {@code timeout}. The file fallback serves JSON files from
+ * {@code file.directory}.
+ */
+@ConfigurationProperties(prefix = "api.fallback")
+public record FallbackProperties(@DefaultValue("BOUNDED_ELASTIC") Executor executor,
+                                 @DefaultValue("16") int maxConcurrency,
+                                 @DefaultValue("2s") Duration timeout,
+                                 @DefaultValue File file) {
+
+    /**
+     * {@code BOUNDED_ELASTIC}: bounded elastic threads. {@code VIRTUAL_THREADS}: virtual threads on a JDK that has
+     * them (21+), bounded elastic threads otherwise.
+     */
+    public enum Executor {BOUNDED_ELASTIC, VIRTUAL_THREADS}
+
+    public FallbackProperties {
+        if (maxConcurrency <= 0 || timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("api.fallback maxConcurrency and timeout must be positive");
+        }
+    }
+
+    public record File(@DefaultValue("fallback") String directory) {
+    }
+}
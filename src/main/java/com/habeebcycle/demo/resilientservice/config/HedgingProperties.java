@@ -0,0 +1,29 @@
+package com.habeebcycle.demo.resilientservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Hedging of idempotent upstream GETs ({@code api.hedging.*}). A hedge is sent once an attempt has outlived the
+ * {@code percentile} of the route's last {@code window} latencies, but no sooner than {@code minDelay} and only once
+ * {@code minSamples} have been seen; hedges add at most {@code maxExtraLoadPercent} of extra upstream load.
+ */
+@ConfigurationProperties(prefix = "api.hedging")
+public record HedgingProperties(@DefaultValue("false") boolean enabled,
+                                @DefaultValue("0.95") double percentile,
+                                @DefaultValue("5ms") Duration minDelay,
+                                @DefaultValue("10") double maxExtraLoadPercent,
+                                @DefaultValue("1000") int window,
+                                @DefaultValue("100") int minSamples) {
+
+    public HedgingProperties {
+        if (percentile <= 0 || percentile >= 1) {
+            throw new IllegalArgumentException("api.hedging.percentile must be between 0 and 1");
+        }
+        if (minDelay.isNegative() || maxExtraLoadPercent < 0 || window <= 0 || minSamples <= 0) {
+            throw new IllegalArgumentException("api.hedging minDelay and maxExtraLoadPercent must not be negative, window and minSamples must be positive");
+        }
+    }
+}
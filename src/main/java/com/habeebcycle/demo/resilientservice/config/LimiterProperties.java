@@ -0,0 +1,32 @@
+package com.habeebcycle.demo.resilientservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Adaptive concurrency limit per route ({@code api.limiter.*}). Every limit starts at {@code initialLimit} and stays
+ * within {@code [minLimit, maxLimit]}; it grows while the observed RTT stays within {@code rttTolerance} times the
+ * long-term average over about {@code longWindow} samples, smoothed by {@code smoothing}. Rejected calls are told to
+ * come back after {@code retryAfter}.
+ */
+@ConfigurationProperties(prefix = "api.limiter")
+public record LimiterProperties(@DefaultValue("false") boolean enabled,
+                                @DefaultValue("20") int initialLimit,
+                                @DefaultValue("4") int minLimit,
+                                @DefaultValue("200") int maxLimit,
+                                @DefaultValue("1.5") double rttTolerance,
+                                @DefaultValue("0.2") double smoothing,
+                                @DefaultValue("600") int longWindow,
+                                @DefaultValue("1s") Duration retryAfter) {
+
+    public LimiterProperties {
+        if (minLimit <= 0 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("api.limiter limits must be positive, with minLimit <= initialLimit <= maxLimit");
+        }
+        if (rttTolerance < 1 || smoothing <= 0 || smoothing > 1 || longWindow <= 0) {
+            throw new IllegalArgumentException("api.limiter.rttTolerance must be at least 1, smoothing in (0, 1] and longWindow positive");
+        }
+    }
+}
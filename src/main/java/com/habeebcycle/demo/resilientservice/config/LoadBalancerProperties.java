@@ -0,0 +1,44 @@
+package com.habeebcycle.demo.resilientservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Client-side load balancing over upstream replicas ({@code api.client.loadBalancer.*}). With {@code endpoints} set,
+ * requests of every WebClient bound to {@code api.client.baseUrl} are spread over them instead; routes with their own
+ * base URL are left alone.
+ * <p>
+ * An endpoint is ejected for {@code ejectionTime} (times its consecutive ejections) once it has seen
+ * {@code minRequests} since it last came back and either its error rate exceeds {@code maxErrorRate} or its latency
+ * exceeds {@code maxLatencyFactor} times the median of the other endpoints. At most {@code maxEjectionPercent} of
+ * the endpoints are ejected at once. Error rate and latency are exponentially weighted by {@code smoothing}; the
+ * latency P2C sees also decays toward zero with time constant {@code latencyDecay} while an endpoint gets no traffic.
+ */
+@ConfigurationProperties(prefix = "api.client.load-balancer")
+public record LoadBalancerProperties(List<String> endpoints,
+                                     @DefaultValue("P2C") Strategy strategy,
+                                     @DefaultValue("0.5") double maxErrorRate,
+                                     @DefaultValue("3.0") double maxLatencyFactor,
+                                     @DefaultValue("10") int minRequests,
+                                     @DefaultValue("30s") Duration ejectionTime,
+                                     @DefaultValue("50") int maxEjectionPercent,
+                                     @DefaultValue("0.2") double smoothing,
+                                     @DefaultValue("10s") Duration latencyDecay) {
+
+    /**
+     * {@code P2C}: the less loaded (outstanding requests times latency) of two random endpoints.
+     * {@code LEAST_OUTSTANDING}: the endpoint with the fewest requests in flight.
+     */
+    public enum Strategy { P2C, LEAST_OUTSTANDING }
+
+    public LoadBalancerProperties {
+        endpoints = endpoints == null ? List.of() : endpoints;
+    }
+
+    public boolean enabled() {
+        return !endpoints.isEmpty();
+    }
+}
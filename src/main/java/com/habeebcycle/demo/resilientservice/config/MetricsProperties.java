@@ -0,0 +1,23 @@
+package com.habeebcycle.demo.resilientservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Proxy latency metrics ({@code api.metrics.*}). With {@code percentileHistogram}, timers publish histogram buckets
+ * between {@code minimumExpectedLatency} and {@code maximumExpectedLatency}; fewer buckets mean a cheaper scrape.
+ */
+@ConfigurationProperties(prefix = "api.metrics")
+public record MetricsProperties(@DefaultValue("true") boolean percentileHistogram,
+                                @DefaultValue("1ms") Duration minimumExpectedLatency,
+                                @DefaultValue("30s") Duration maximumExpectedLatency) {
+
+    public MetricsProperties {
+        if (minimumExpectedLatency.isNegative() || minimumExpectedLatency.isZero()
+                || maximumExpectedLatency.compareTo(minimumExpectedLatency) < 0) {
+            throw new IllegalArgumentException("api.metrics expected latencies must be positive, the maximum at least the minimum");
+        }
+    }
+}
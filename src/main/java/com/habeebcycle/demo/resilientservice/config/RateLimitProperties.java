@@ -0,0 +1,32 @@
+package com.habeebcycle.demo.resilientservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Inbound rate limits on {@code /services} ({@code api.rate-limit.*}). Each client, identified by the
+ * {@code clientHeader} API key or else by its remote address, gets {@code clientRate} requests per second with bursts
+ * of up to {@code clientBurst}; all clients together get {@code globalRate} with bursts of {@code globalBurst}, or no
+ * global limit when {@code globalRate} is 0.
+ * <p>
+ * A client idle for {@code idleTimeout} is forgotten. Beyond {@code maxClients} tracked at once, new clients share a
+ * single overflow limit, so rotating keys or addresses cannot grow the state without bound.
+ */
+@ConfigurationProperties(prefix = "api.rate-limit")
+public record RateLimitProperties(@DefaultValue("false") boolean enabled,
+                                  @DefaultValue("X-Api-Key") String clientHeader,
+                                  @DefaultValue("50") double clientRate,
+                                  @DefaultValue("100") int clientBurst,
+                                  @DefaultValue("0") double globalRate,
+                                  @DefaultValue("0") int globalBurst,
+                                  @DefaultValue("100000") int maxClients,
+                                  @DefaultValue("1m") Duration idleTimeout) {
+
+    public RateLimitProperties {
+        if (clientRate <= 0 || clientBurst < 1 || globalRate < 0 || (globalRate > 0 && globalBurst < 1)) {
+            throw new IllegalArgumentException("api.rate-limit rates must be positive and bursts at least 1");
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.habeebcycle.demo.resilientservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Retry storm guards of the budgeted retry ({@code api.retry.*}): backoffs are randomised by {@code jitter} and capped
+ * at {@code maxBackoff}; with {@code budget.enabled}, every retry spends a token from a bucket of at most
+ * {@code budget.maxTokens}, refilled by {@code budget.percent / 100} of a token per successful call.
+ */
+@ConfigurationProperties(prefix = "api.retry")
+public record RetryProperties(@DefaultValue("FULL") Jitter jitter,
+                              @DefaultValue("30s") Duration maxBackoff,
+                              @DefaultValue Budget budget) {
+
+    /**
+     * {@code NONE}: the configured backoff. {@code FULL}: uniform in {@code [0, backoff]}.
+     * {@code DECORRELATED}: uniform in {@code [base, 3 * previous delay]}.
+     */
+    public enum Jitter {NONE, FULL, DECORRELATED}
+
+    public RetryProperties {
+        if (maxBackoff.isNegative()) {
+            throw new IllegalArgumentException("api.retry.maxBackoff must not be negative");
+        }
+    }
+
+    public record Budget(@DefaultValue("true") boolean enabled,
+                         @DefaultValue("20") double percent,
+                         @DefaultValue("10") int maxTokens) {
+
+        public Budget {
+            if (percent < 0 || maxTokens < 0) {
+                throw new IllegalArgumentException("api.retry.budget percent and maxTokens must not be negative");
+            }
+        }
+    }
+}
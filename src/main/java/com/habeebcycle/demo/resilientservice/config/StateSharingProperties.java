@@ -0,0 +1,43 @@
+package com.habeebcycle.demo.resilientservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Circuit breaker state sharing between replicas ({@code api.sharing.*}). Replicas of the same {@code cluster}
+ * gossip their breakers' state transitions as they happen and their sliding windows every {@code interval}, over
+ * UDP multicast to {@code group}:{@code port} ({@code MULTICAST}), or within the JVM ({@code LOOPBACK}, for tests
+ * and local runs). {@code networkInterface}, when set, names the interface multicast is sent and received on, e.g.
+ * {@code lo} to keep it on one host; {@code timeToLive} bounds how many hops it crosses. Multicast messages carry an
+ * HMAC under {@code secret}, which every replica of the cluster must share; without one, multicast sharing stays off.
+ * A message whose sender's clock is more than {@code maxClockSkew} away from the receiver's is refused, so a
+ * captured message cannot be replayed later.
+ * <p>
+ * Only the breakers named in {@code circuitBreakers} are shared, every breaker when it is empty. A peer's window
+ * is dropped once it has not been refreshed for three intervals.
+ */
+@ConfigurationProperties(prefix = "api.sharing")
+public record StateSharingProperties(@DefaultValue("false") boolean enabled,
+                                     @DefaultValue("resilient-service") String cluster,
+                                     @DefaultValue("MULTICAST") Transport transport,
+                                     @DefaultValue("239.255.27.1") String group,
+                                     @DefaultValue("45600") int port,
+                                     String networkInterface,
+                                     @DefaultValue("1") int timeToLive,
+                                     String secret,
+                                     @DefaultValue("1s") Duration interval,
+                                     @DefaultValue("5s") Duration maxClockSkew,
+                                     List<String> circuitBreakers) {
+
+    public enum Transport { MULTICAST, LOOPBACK }
+
+    public StateSharingProperties {
+        if (interval.isNegative() || interval.isZero() || maxClockSkew.isNegative() || maxClockSkew.isZero()) {
+            throw new IllegalArgumentException("api.sharing interval and maxClockSkew must be positive");
+        }
+        circuitBreakers = circuitBreakers == null ? List.of() : circuitBreakers;
+    }
+}
@@ -0,0 +1,15 @@
+package com.habeebcycle.demo.resilientservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings of the typed mode ({@code api.typed.*}): requests to the list route named {@code route} that carry a
+ * {@code fields}, {@code limit} or {@code offset} parameter are decoded into posts instead of proxied as is.
+ * {@code limit} defaults to, and may not exceed, {@code maxLimit}.
+ */
+@ConfigurationProperties(prefix = "api.typed")
+public record TypedProperties(@DefaultValue("false") boolean enabled,
+                              @DefaultValue("posts") String route,
+                              @DefaultValue("1000") int maxLimit) {
+}
@@ -0,0 +1,35 @@
+package com.habeebcycle.demo.resilientservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Upstream routes served under {@code /services} ({@code api.routes.<name>.*}). Each route gets its own circuit
+ * breaker and retry instance (named after the route unless set), and may override the upstream base URL and the
+ * connection timeouts of {@code api.client}. {@code timeout} is the default deadline of a request to the route,
+ * retries included. {@code fallback} names the {@code Fallback} bean answering when the circuit breaker is open.
+ */
+@ConfigurationProperties(prefix = "api")
+public record UpstreamRouteProperties(Map<String, Route> routes) {
+
+    public UpstreamRouteProperties {
+        routes = routes == null ? Map.of() : routes;
+    }
+
+    public record Route(String path,
+                        String baseUrl,
+                        String circuitBreaker,
+                        String retry,
+                        Integer connectTimeout,
+                        Integer readTimeout,
+                        Integer writeTimeout,
+                        Duration timeout,
+                        String fallback) {
+
+        public boolean hasOwnClient() {
+            return baseUrl != null || connectTimeout != null || readTimeout != null || writeTimeout != null;
+        }
+    }
+}
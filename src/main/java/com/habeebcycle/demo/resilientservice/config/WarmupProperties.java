@@ -0,0 +1,25 @@
+package com.habeebcycle.demo.resilientservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.http.HttpMethod;
+
+import java.time.Duration;
+
+/**
+ * Startup warm-up ({@code api.warmup.*}), done before the application reports ready. With {@code path} set, each
+ * upstream connection pool also opens {@code connections} connections by sending that many concurrent {@code method}
+ * requests to it, e.g. a health endpoint of the upstream, so it is off unless configured; the whole warm-up gives up
+ * after {@code timeout}.
+ */
+@ConfigurationProperties(prefix = "api.warmup")
+public record WarmupProperties(@DefaultValue("true") boolean enabled,
+                               String path,
+                               @DefaultValue("HEAD") HttpMethod method,
+                               @DefaultValue("0") int connections,
+                               @DefaultValue("5s") Duration timeout) {
+
+    public boolean preconnect() {
+        return path != null && !path.isBlank() && connections > 0;
+    }
+}
@@ -0,0 +1,143 @@
+package com.habeebcycle.demo.resilientservice.fallback;
+
+import com.habeebcycle.demo.resilientservice.config.FallbackProperties;
+import com.habeebcycle.demo.resilientservice.router.UpstreamRoute;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Runs a route's {@link Fallback} off the event loop when its upstream cannot be called. Fallbacks run on a dedicated
+ * scheduler ({@code api.fallback.executor}): {@code BOUNDED_ELASTIC} threads, or {@code VIRTUAL_THREADS} on a JDK
+ * that has them (21+), falling back to bounded elastic otherwise. At most {@code api.fallback.maxConcurrency} run at
+ * once and each is cut at {@code api.fallback.timeout}; a rejected, failed, timed-out or empty fallback surfaces the
+ * original error, so a slow fallback never holds up request handling.
+ * <p>
+ * A permit is held until the fallback actually returns, not until its caller gives up, so
+ * {@code proxy.fallback.saturation} reflects the blocking work still in flight. {@code proxy.fallback} times every
+ * fallback by route and outcome.
+ */
+@Component
+public class BlockingFallbackExecutor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BlockingFallbackExecutor.class);
+    private static final String METRIC_FALLBACK = "proxy.fallback";
+    private static final int NOT_STARTED = 0;
+    private static final int RUNNING = 1;
+    private static final int DONE = 2;
+
+    private final int maxConcurrency;
+    private final Duration timeout;
+    private final Semaphore permits;
+    private final Scheduler scheduler;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public BlockingFallbackExecutor(final FallbackProperties properties, final MeterRegistry meterRegistry) {
+        this.maxConcurrency = properties.maxConcurrency();
+        this.timeout = properties.timeout();
+        this.permits = new Semaphore(maxConcurrency);
+        this.scheduler = properties.executor() == FallbackProperties.Executor.VIRTUAL_THREADS ? virtualThreadScheduler().orElseGet(this::boundedElasticScheduler)
+                : boundedElasticScheduler();
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("proxy.fallback.active", this, BlockingFallbackExecutor::active).register(meterRegistry);
+        Gauge.builder("proxy.fallback.saturation", this, executor -> (double) executor.active() / maxConcurrency).register(meterRegistry);
+    }
+
+    /**
+     * Resumes {@code error} with the route's fallback body, or fails with {@code error} when there is none.
+     */
+    public Mono<String> resume(final UpstreamRoute route, final String path, final Throwable error) {
+        final Fallback fallback = route.fallback();
+        if (fallback == null) {
+            return Mono.error(error);
+        }
+        return Mono.defer(() -> {
+            final long start = System.nanoTime();
+            if (!permits.tryAcquire()) {
+                record(route, "rejected", start);
+                return Mono.error(error);
+            }
+            final AtomicInteger state = new AtomicInteger(NOT_STARTED);
+            return Mono.fromCallable(() -> {
+                        if (!state.compareAndSet(NOT_STARTED, RUNNING)) {
+                            return Optional.<String>empty(); // Cancelled before it was scheduled
+                        }
+                        try {
+                            return fallback.lookup(path);
+                        } finally {
+                            state.set(DONE);
+                            permits.release();
+                        }
+                    })
+                    .subscribeOn(scheduler)
+                    .timeout(timeout)
+                    .flatMap(Mono::justOrEmpty)
+                    .doOnSuccess(body -> record(route, body == null ? "empty" : "success", start))
+                    .doOnError(throwable -> {
+                        record(route, throwable instanceof TimeoutException ? "timeout" : "error", start);
+                        LOG.warn("Fallback for route [{}] failed: [{}]", route.name(), throwable.toString());
+                    })
+                    .doFinally(signal -> {
+                        if (state.compareAndSet(NOT_STARTED, DONE)) {
+                            permits.release();
+                        }
+                    })
+                    .onErrorResume(throwable -> Mono.empty())
+                    .switchIfEmpty(Mono.error(error));
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.dispose();
+    }
+
+    private int active() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    private void record(final UpstreamRoute route, final String outcome, final long start) {
+        timers.computeIfAbsent(route.name() + ' ' + outcome, key -> Timer.builder(METRIC_FALLBACK)
+                        .tag("route", route.path())
+                        .tag("outcome", outcome)
+                        .register(meterRegistry))
+                .record(System.nanoTime() - start, NANOSECONDS);
+    }
+
+    private Scheduler boundedElasticScheduler() {
+        return Schedulers.newBoundedElastic(maxConcurrency, Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, "fallback");
+    }
+
+    private static Optional<Scheduler> virtualThreadScheduler() {
+        try {
+            // Reflective so the project still compiles and runs on Java 17
+            final ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            LOG.info("Running fallbacks on virtual threads");
+            return Optional.of(Schedulers.fromExecutorService(executor, "fallback-virtual"));
+        } catch (ReflectiveOperationException e) {
+            LOG.warn("Virtual threads need Java 21 or later, running fallbacks on bounded elastic threads instead");
+            return Optional.empty();
+        }
+    }
+}
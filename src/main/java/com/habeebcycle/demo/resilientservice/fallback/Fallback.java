@@ -0,0 +1,17 @@
+package com.habeebcycle.demo.resilientservice.fallback;
+
+import java.util.Optional;
+
+/**
+ * Source of a response body when the upstream of a route cannot be called, e.g. a local file or a database lookup.
+ * Registered as a bean and referenced by bean name from {@code api.routes.<name>.fallback}. Implementations may
+ * block: {@link BlockingFallbackExecutor} runs them off the event loop, bounded in time and concurrency.
+ */
+@FunctionalInterface
+public interface Fallback {
+
+    /**
+     * Body for the upstream {@code path} (e.g. {@code /posts/1}), or empty when this fallback has none.
+     */
+    Optional<String> lookup(String path) throws Exception;
+}
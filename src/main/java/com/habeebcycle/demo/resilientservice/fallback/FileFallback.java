@@ -0,0 +1,32 @@
+package com.habeebcycle.demo.resilientservice.fallback;
+
+import com.habeebcycle.demo.resilientservice.config.FallbackProperties;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Serves {@code <api.fallback.file.directory>/<path>.json}, e.g. {@code fallback/posts/1.json} for {@code /posts/1}.
+ * Paths resolving outside the directory are never read.
+ */
+@Component("fileFallback")
+public class FileFallback implements Fallback {
+
+    private final Path directory;
+
+    public FileFallback(final FallbackProperties properties) {
+        this.directory = Path.of(properties.file().directory()).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public Optional<String> lookup(final String path) throws IOException {
+        final Path file = directory.resolve(path.replaceFirst("^/+", "") + ".json").normalize();
+        if (!file.startsWith(directory) || !Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        return Optional.of(Files.readString(file));
+    }
+}
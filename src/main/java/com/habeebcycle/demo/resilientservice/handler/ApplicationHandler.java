@@ -1,57 +1,452 @@
 package com.habeebcycle.demo.resilientservice.handler;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.habeebcycle.demo.resilientservice.cache.RequestCoalescer;
+import com.habeebcycle.demo.resilientservice.cache.ResponseCache;
+import com.habeebcycle.demo.resilientservice.cache.UpstreamResponse;
+import com.habeebcycle.demo.resilientservice.config.BatchProperties;
+import com.habeebcycle.demo.resilientservice.config.TypedProperties;
+import com.habeebcycle.demo.resilientservice.fallback.BlockingFallbackExecutor;
+import com.habeebcycle.demo.resilientservice.http.exception.CircuitBreakerOpenException;
 import com.habeebcycle.demo.resilientservice.http.exception.CustomResponseStatusException;
+import com.habeebcycle.demo.resilientservice.http.exception.DeadlineExceededException;
+import com.habeebcycle.demo.resilientservice.http.exception.StacklessResponseStatusException;
+import com.habeebcycle.demo.resilientservice.metrics.ProxyMetrics;
+import com.habeebcycle.demo.resilientservice.resilience.AdaptiveConcurrencyLimiter;
+import com.habeebcycle.demo.resilientservice.resilience.BudgetedRetry;
+import com.habeebcycle.demo.resilientservice.resilience.Deadline;
+import com.habeebcycle.demo.resilientservice.resilience.HedgingPolicy;
+import com.habeebcycle.demo.resilientservice.router.UpstreamRoute;
 import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
-import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
-import io.github.resilience4j.reactor.retry.RetryOperator;
-import io.github.resilience4j.retry.Retry;
-import io.github.resilience4j.retry.RetryRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriTemplate;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
 
-import static com.habeebcycle.demo.resilientservice.util.Constant.CIRCUIT_BREAKER_CONFIG_NAME;
-import static com.habeebcycle.demo.resilientservice.util.Constant.RETRY_CONFIG_NAME;
-import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
+import static org.springframework.http.HttpStatus.OK;
 
 @Component
 public class ApplicationHandler {
 
     private static final Logger LOG = LoggerFactory.getLogger(ApplicationHandler.class);
-    private final WebClient webClient;
-    private final CircuitBreaker circuitBreaker;
-    private final Retry retry;
+    private static final List<String> FORWARDED_HEADERS = List.of(HttpHeaders.IF_NONE_MATCH, HttpHeaders.IF_MODIFIED_SINCE, HttpHeaders.ACCEPT_ENCODING);
+    private static final List<String> VALIDATOR_HEADERS = List.of(HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED, HttpHeaders.CACHE_CONTROL);
+    private static final List<String> PASS_THROUGH_HEADERS = List.of(HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED, HttpHeaders.CACHE_CONTROL,
+            HttpHeaders.CONTENT_ENCODING, HttpHeaders.VARY);
+    private final ResponseCache responseCache;
+    private final RequestCoalescer requestCoalescer;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final HedgingPolicy hedgingPolicy;
+    private final BudgetedRetry budgetedRetry;
+    private final BlockingFallbackExecutor blockingFallbackExecutor;
+    private final ProxyMetrics proxyMetrics;
+    private final BatchProperties batchProperties;
+    private final TypedProperties typedProperties;
+    private final ObjectMapper objectMapper;
+    private final boolean streaming;
 
-    public ApplicationHandler(final WebClient webClient, final CircuitBreakerRegistry circuitBreakerRegistry, final RetryRegistry retryRegistry) {
-        this.webClient = webClient;
-        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(CIRCUIT_BREAKER_CONFIG_NAME);
-        this.retry = retryRegistry.retry(RETRY_CONFIG_NAME);
+    public ApplicationHandler(final ResponseCache responseCache, final RequestCoalescer requestCoalescer,
+                              final AdaptiveConcurrencyLimiter concurrencyLimiter, final HedgingPolicy hedgingPolicy,
+                              final BudgetedRetry budgetedRetry, final BlockingFallbackExecutor blockingFallbackExecutor, final ProxyMetrics proxyMetrics,
+                              final BatchProperties batchProperties, final TypedProperties typedProperties, final ObjectMapper objectMapper,
+                              @Value("${api.client.streaming:false}") final boolean streaming) {
+        this.responseCache = responseCache;
+        this.requestCoalescer = requestCoalescer;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.hedgingPolicy = hedgingPolicy;
+        this.budgetedRetry = budgetedRetry;
+        this.blockingFallbackExecutor = blockingFallbackExecutor;
+        this.proxyMetrics = proxyMetrics;
+        this.batchProperties = batchProperties;
+        this.typedProperties = typedProperties;
+        this.objectMapper = objectMapper;
+        this.streaming = streaming;
     }
 
-    public Mono<ServerResponse> apiGetRequest(final String path) {
-        Mono<String> responseBody = webClient.get()
-                .uri(path)
-                .retrieve()
-                .onStatus(HttpStatusCode::isError, this::handleErrorResponse)
-                .bodyToMono(String.class)
-                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker)) // ORDER - If written below, circuit breaker will record a single failure after the max-retry
-                .transformDeferred(RetryOperator.of(retry)) // ORDER - If above, retry will complete before a failure is recorded by the circuit breaker
-                .doOnError(CallNotPermittedException.class::isInstance, throwable -> {
-                    LOG.error("Circuit Breaker is in [{}]... Providing fallback response without calling the API", circuitBreaker.getState());
-                    throw new CustomResponseStatusException(SERVICE_UNAVAILABLE, "API service is unavailable");
-                });
+    /**
+     * Proxies {@code path} to {@code route}. A non-null {@code deadline} bounds the whole request: every attempt is
+     * cancelled and the request fails with 504 once it passes, and the remaining budget is sent upstream.
+     * <p>
+     * The upstream's content type, validators and {@code Cache-Control} are passed on, so a caller's
+     * {@code If-None-Match} or {@code If-Modified-Since} matching them is answered with 304 and no body.
+     * {@code requestHeaders} are the caller's.
+     */
+    public Mono<ServerResponse> apiGetRequest(final UpstreamRoute route, final String path, final HttpHeaders requestHeaders,
+                                              final String requestId, final Deadline deadline) {
+        if (streaming) {
+            return apiStreamRequest(route, path, requestHeaders, requestId, deadline);
+        }
+
+        return responseBody(route, path, deadline)
+                .flatMap(response -> bodyResponse(response, requestHeaders))
+                .transform(response -> proxyMetrics.timeRequest(route, requestId, response, ApplicationHandler::status));
+    }
+
+    private static Mono<ServerResponse> bodyResponse(final UpstreamResponse response, final HttpHeaders requestHeaders) {
+        final HttpHeaders validators = new HttpHeaders();
+        response.writeHeaders(validators);
+        if (isNotModified(requestHeaders, validators)) { // Built here rather than at write time, so it is timed as a 304
+            return ServerResponse.status(NOT_MODIFIED)
+                    .headers(headers -> headers.addAll(validators))
+                    .build();
+        }
+        return ServerResponse.ok()
+                .contentType(response.contentType())
+                .headers(headers -> headers.addAll(validators))
+                .bodyValue(response.body());
+    }
+
+    /**
+     * Fans the comma-separated {@code ids} out to {@code route}, a single-item route such as {@code /posts/{id}}, with
+     * at most {@code api.batch.concurrency} sub-calls in flight. Each sub-call goes through the same cache, coalescing
+     * and resilience operators as a single request. Items are written as they complete, as NDJSON when the caller
+     * accepts it and as a JSON array otherwise; a failed item carries its status and error instead of failing the batch.
+     * All items share the batch's {@code deadline}.
+     */
+    public Mono<ServerResponse> apiBatchRequest(final UpstreamRoute route, final String ids, final List<MediaType> accept,
+                                                final String requestId, final Deadline deadline) {
+        final List<String> itemIds = Arrays.stream(ids.split(","))
+                .map(String::trim)
+                .filter(id -> !id.isEmpty())
+                .distinct()
+                .toList();
+        if (itemIds.isEmpty() || itemIds.size() > batchProperties.maxIds()) {
+            return Mono.error(new StacklessResponseStatusException(BAD_REQUEST,
+                    "Parameter ids must hold between 1 and " + batchProperties.maxIds() + " comma-separated ids"));
+        }
+
+        final UriTemplate itemPath = new UriTemplate(route.path());
+        final Flux<BatchItem> items = Flux.fromIterable(itemIds)
+                .flatMap(id -> responseBody(route, itemPath.expand(id).toString(), deadline)
+                        .transform(response -> proxyMetrics.timeRequest(route, requestId, response, item -> OK.value()))
+                        .map(response -> new BatchItem(id, OK.value(), readTree(response.body()), null))
+                        .defaultIfEmpty(new BatchItem(id, OK.value(), null, null))
+                        .onErrorResume(throwable -> Mono.just(failedItem(id, throwable))), batchProperties.concurrency());
+
+        final MediaType contentType = accept.stream().anyMatch(MediaType.APPLICATION_NDJSON::isCompatibleWith)
+                ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON;
+        return ServerResponse.ok()
+                .contentType(contentType)
+                .body(items, BatchItem.class);
+    }
+
+    /**
+     * Typed variant of {@link #apiGetRequest(UpstreamRoute, String, HttpHeaders, String, Deadline)} for a list route
+     * such as {@code /posts}. The upstream JSON array is decoded post by post as it arrives, by Jackson's
+     * non-blocking tokenizer, so the list is never held in memory as a whole. The {@code offset} and {@code limit}
+     * parameters page through it, and the upstream exchange is cancelled once the page is complete; {@code fields}
+     * projects each post, and only those fields are written. Posts are written as NDJSON when the caller accepts
+     * it and as a JSON array otherwise.
+     * <p>
+     * As when streaming, retry only wraps the exchange up to the response headers, the circuit breaker records the
+     * call once its body ends, and the cache and coalescing are bypassed: every page is decoded from its own upstream call.
+     */
+    public Mono<ServerResponse> apiTypedRequest(final UpstreamRoute route, final String path, final MultiValueMap<String, String> queryParams,
+                                                final List<MediaType> accept, final String requestId, final Deadline deadline) {
+        final PostQuery query;
+        try {
+            query = PostQuery.of(queryParams, typedProperties.maxLimit());
+        } catch (CustomResponseStatusException e) {
+            return Mono.error(e);
+        }
+        final CircuitBreaker circuitBreaker = route.circuitBreaker();
+        return Mono.deferContextual(context -> upstreamRequest(route, path, context)
+                        .retrieve()
+                        .onStatus(HttpStatusCode::isError, this::handleErrorResponse)
+                        .toEntityFlux(Post.class))
+                .transformDeferred(exchange -> proxyMetrics.timeUpstream(route.path(), exchange))
+                .transformDeferred(Deadline::enforce)
+                .transformDeferred(exchange -> untilBodyEnds(circuitBreaker, deadline, exchange))
+                .transformDeferred(concurrencyLimiter.of(route.path()))
+                .transformDeferred(budgetedRetry.of(route.retry()))
+                .onErrorMap(CallNotPermittedException.class, throwable -> circuitOpen(circuitBreaker))
+                .onErrorResume(CircuitBreakerOpenException.class, error -> blockingFallbackExecutor.resume(route, path, error).map(this::fallbackPosts))
+                .transformDeferred(Deadline::enforce)
+                .flatMap(entity -> typedResponse(Optional.ofNullable(entity.getBody()).orElseGet(Flux::empty), query, accept))
+                .transform(response -> proxyMetrics.timeRequest(route, requestId, response, ApplicationHandler::status))
+                .transform(response -> withDeadline(deadline, response));
+    }
 
+    private Mono<ServerResponse> typedResponse(final Flux<Post> upstreamPosts, final PostQuery query, final List<MediaType> accept) {
+        final MediaType contentType = accept.stream().anyMatch(MediaType.APPLICATION_NDJSON::isCompatibleWith)
+                ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON;
         return ServerResponse.ok()
+                .contentType(contentType)
+                .body(query.apply(upstreamPosts).doOnError(throwable ->
+                        LOG.error("Upstream posts failed after the response was committed: [{}]", throwable.toString())), Post.class);
+    }
+
+    private ResponseEntity<Flux<Post>> fallbackPosts(final String body) {
+        try {
+            return ResponseEntity.ok(Flux.fromArray(objectMapper.readValue(body, Post[].class)));
+        } catch (JsonProcessingException e) {
+            return ResponseEntity.ok(Flux.error(e));
+        }
+    }
+
+    private Mono<UpstreamResponse> responseBody(final UpstreamRoute route, final String path, final Deadline deadline) {
+        final CircuitBreaker circuitBreaker = route.circuitBreaker();
+        Mono<UpstreamResponse> responseBody = responseCache.get(route.path(), path, cached -> // Cache may serve a stale response on CallNotPermittedException
+                        requestCoalescer.coalesce(RequestCoalescer.key("GET", path, route.name()), upstreamResponse(route, path, cached))) // One upstream call per burst of identical requests
+                .onErrorMap(CallNotPermittedException.class, throwable -> circuitOpen(circuitBreaker))
+                .onErrorResume(CircuitBreakerOpenException.class, error -> blockingFallbackExecutor.resume(route, path, error).map(UpstreamResponse::local)) // Only reached when the cache had nothing to serve
+                .transformDeferred(Deadline::enforce); // Also bounds callers waiting on a coalesced call or a backoff
+
+        return withDeadline(deadline, responseBody);
+    }
+
+    /**
+     * Resilient upstream call for {@code path}. With a {@code cached} response, the request is conditional and a 304
+     * yields {@code cached} again, revalidated. Without a deadline in the context, e.g. when coalesced with other
+     * callers, the route's timeout is the call's deadline.
+     */
+    private Mono<UpstreamResponse> upstreamResponse(final UpstreamRoute route, final String path, final UpstreamResponse cached) {
+        final CircuitBreaker circuitBreaker = route.circuitBreaker();
+        return Mono.defer(() -> {
+            final AtomicInteger attempts = new AtomicInteger();
+            return Mono.deferContextual(context -> upstreamRequest(route, path, context)
+                            .headers(headers -> {
+                                if (cached != null) {
+                                    cached.writeConditions(headers);
+                                }
+                            })
+                            .retrieve()
+                            .onStatus(HttpStatusCode::isError, this::handleErrorResponse)
+                            .toEntity(String.class))
+                    .transformDeferred(exchange -> proxyMetrics.timeUpstream(route.path(), exchange))
+                    .map(entity -> cached != null && entity.getStatusCode().value() == NOT_MODIFIED.value()
+                            ? cached.revalidated(entity.getHeaders()) : UpstreamResponse.of(entity))
+                    .transformDeferred(Deadline::enforce) // ORDER - Per attempt and inside the circuit breaker, which ignores the expiry
+                    .doOnSubscribe(subscription -> attempts.incrementAndGet()) // Only reached when the circuit breaker permits the call
+                    .transformDeferred(CircuitBreakerOperator.of(circuitBreaker)) // ORDER - If written below, circuit breaker will record a single failure after the max-retry
+                    .transformDeferred(concurrencyLimiter.of(route.path())) // ORDER - Outside the circuit breaker so rejections are never recorded as upstream calls
+                    .transformDeferred(hedgingPolicy.of(route.path())) // ORDER - Each hedged attempt takes its own circuit breaker and limiter permit
+                    .transformDeferred(budgetedRetry.of(route.retry())) // ORDER - If above, retry will complete before a failure is recorded by the circuit breaker
+                    .doFinally(signal -> proxyMetrics.recordAttempts(route.path(), attempts.get()));
+        }).contextWrite(context -> context.hasKey(Deadline.class) || route.timeout() == null ? context
+                : context.put(Deadline.class, Deadline.after(route.timeout())));
+    }
+
+    /**
+     * Pass-through variant of {@link #apiGetRequest(UpstreamRoute, String, HttpHeaders, String, Deadline)} that forwards the upstream body as it arrives instead of
+     * decoding it into a single String. Retry only wraps the exchange up to the response headers, so a retry can never
+     * happen once the first byte has been written to the caller. The circuit breaker records the call once, when the
+     * body ends, so an error while it is being streamed, including the deadline passing, is the call's only outcome.
+     * <p>
+     * The caller's {@code If-None-Match} and {@code If-Modified-Since} are forwarded, so the upstream answers 304
+     * without a body for unchanged resources; the 304 and the upstream's validators are passed back to the caller.
+     * So is the caller's {@code Accept-Encoding}: an encoded upstream body is passed through as is, with its
+     * {@code Content-Encoding}, and never decoded or compressed again by the proxy.
+     */
+    public Mono<ServerResponse> apiStreamRequest(final UpstreamRoute route, final String path, final HttpHeaders requestHeaders,
+                                                 final String requestId, final Deadline deadline) {
+        final CircuitBreaker circuitBreaker = route.circuitBreaker();
+        return Mono.deferContextual(context -> upstreamRequest(route, path, context)
+                        .headers(headers -> forwardRequestHeaders(requestHeaders, headers))
+                        .retrieve()
+                        .onStatus(HttpStatusCode::isError, this::handleErrorResponse)
+                        .toEntityFlux(DataBuffer.class))
+                .transformDeferred(exchange -> proxyMetrics.timeUpstream(route.path(), exchange))
+                .transformDeferred(Deadline::enforce)
+                .transformDeferred(exchange -> untilBodyEnds(circuitBreaker, deadline, exchange))
+                .transformDeferred(concurrencyLimiter.of(route.path()))
+                .transformDeferred(budgetedRetry.of(route.retry()))
+                .onErrorMap(CallNotPermittedException.class, throwable -> circuitOpen(circuitBreaker))
+                .onErrorResume(CircuitBreakerOpenException.class, error -> blockingFallbackExecutor.resume(route, path, error).map(ApplicationHandler::fallbackEntity))
+                .transformDeferred(Deadline::enforce)
+                .flatMap(entity -> streamResponse(route, entity, requestHeaders))
+                .transform(response -> proxyMetrics.timeRequest(route, requestId, response, ApplicationHandler::status))
+                .transform(response -> withDeadline(deadline, response));
+    }
+
+    private Mono<ServerResponse> streamResponse(final UpstreamRoute route, final ResponseEntity<Flux<DataBuffer>> entity,
+                                                final HttpHeaders requestHeaders) {
+        final MediaType contentType = Optional.ofNullable(entity.getHeaders().getContentType()).orElse(MediaType.APPLICATION_JSON);
+        final Flux<DataBuffer> upstreamBody = Optional.ofNullable(entity.getBody()).orElseGet(Flux::empty);
+        if (entity.getStatusCode().value() == NOT_MODIFIED.value() || isNotModified(requestHeaders, entity.getHeaders())) {
+            // Drained here: the server response skips the body on a matching validator, which would leak the connection
+            return upstreamBody.doOnNext(DataBufferUtils::release).then(ServerResponse.status(NOT_MODIFIED)
+                    .headers(headers -> copyHeaders(entity.getHeaders(), headers, VALIDATOR_HEADERS))
+                    .build());
+        }
+        final Flux<DataBuffer> body = entity.getHeaders().getContentLength() >= 0 ? upstreamBody : measured(route, upstreamBody);
+
+        return ServerResponse.status(entity.getStatusCode())
+                .contentType(contentType)
+                .headers(headers -> copyHeaders(entity.getHeaders(), headers, PASS_THROUGH_HEADERS))
+                .body(BodyInserters.fromDataBuffers(body
+                        .doOnError(throwable -> LOG.error("Upstream body failed after the response was committed: [{}]", throwable.toString()))
+                        .doOnDiscard(DataBuffer.class, DataBufferUtils::release)));
+    }
+
+    private static void forwardRequestHeaders(final HttpHeaders requestHeaders, final HttpHeaders upstream) {
+        for (final String name : FORWARDED_HEADERS) {
+            final List<String> values = requestHeaders.get(name);
+            if (values != null) {
+                upstream.put(name, values);
+            }
+        }
+    }
+
+    private static void copyHeaders(final HttpHeaders from, final HttpHeaders to, final List<String> names) {
+        for (final String name : names) {
+            final List<String> values = from.get(name);
+            if (values != null) {
+                to.put(name, values);
+            }
+        }
+    }
+
+    /**
+     * Whether the caller's validators match a full upstream response, i.e. the upstream ignored the forwarded
+     * requestHeaders: weak {@code If-None-Match} comparison, or {@code If-Modified-Since} when there is none.
+     */
+    private static boolean isNotModified(final HttpHeaders requestHeaders, final HttpHeaders upstream) {
+        if (!upstream.containsKey(HttpHeaders.ETAG) && !upstream.containsKey(HttpHeaders.LAST_MODIFIED)) {
+            return false;
+        }
+        final List<String> ifNoneMatch = requestHeaders.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            final String eTag = upstream.getETag();
+            return eTag != null && ifNoneMatch.stream()
+                    .anyMatch(tag -> tag.equals("*") || weak(tag).equals(weak(eTag)));
+        }
+        final long ifModifiedSince = requestHeaders.getIfModifiedSince();
+        final long lastModified = upstream.getLastModified();
+        return ifModifiedSince >= 0 && lastModified >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    private static String weak(final String eTag) {
+        return eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+    }
+
+    private static ResponseEntity<Flux<DataBuffer>> fallbackEntity(final String body) {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        return ResponseEntity.ok()
                 .contentType(MediaType.APPLICATION_JSON)
-                .body(responseBody, String.class);
+                .contentLength(bytes.length)
+                .body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(bytes)));
+    }
+
+    private static CircuitBreakerOpenException circuitOpen(final CircuitBreaker circuitBreaker) {
+        LOG.error("Circuit Breaker is in [{}]... Providing fallback response without calling the API", circuitBreaker.getState());
+        return new CircuitBreakerOpenException();
+    }
+
+    /**
+     * Circuit breaker for an exchange whose body is streamed to the caller. The permit is held until the body ends and
+     * the call is recorded once: as an error if the exchange or the body fails, including the deadline passing while
+     * the body is written, otherwise as a success, also when the caller stops reading early, e.g. once a page is full.
+     */
+    private static <T> Mono<ResponseEntity<Flux<T>>> untilBodyEnds(final CircuitBreaker circuitBreaker, final Deadline deadline,
+                                                                   final Mono<ResponseEntity<Flux<T>>> exchange) {
+        return Mono.defer(() -> {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                return Mono.error(CallNotPermittedException.createCallNotPermittedException(circuitBreaker));
+            }
+            final long start = circuitBreaker.getCurrentTimestamp();
+            final AtomicBoolean recorded = new AtomicBoolean();
+            final Consumer<Throwable> onError = throwable -> {
+                if (recorded.compareAndSet(false, true)) {
+                    circuitBreaker.onError(circuitBreaker.getCurrentTimestamp() - start, circuitBreaker.getTimestampUnit(), throwable);
+                }
+            };
+            final Runnable onSuccess = () -> {
+                if (recorded.compareAndSet(false, true)) {
+                    circuitBreaker.onSuccess(circuitBreaker.getCurrentTimestamp() - start, circuitBreaker.getTimestampUnit());
+                }
+            };
+            return exchange
+                    .doOnError(onError)
+                    .doOnCancel(() -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            circuitBreaker.releasePermission();
+                        }
+                    })
+                    .map(entity -> {
+                        final Flux<T> upstreamBody = Optional.ofNullable(entity.getBody()).orElseGet(Flux::empty);
+                        // The body is written outside the handler's Reactor context, so the deadline is applied to it directly
+                        final Flux<T> body = deadline == null ? upstreamBody
+                                : upstreamBody.takeUntilOther(Mono.delay(deadline.remaining()).then(Mono.error(DeadlineExceededException::new)));
+                        return new ResponseEntity<>(body.doOnComplete(onSuccess).doOnError(onError).doOnCancel(onSuccess),
+                                entity.getHeaders(), entity.getStatusCode());
+                    });
+        });
+    }
+
+    private static WebClient.RequestHeadersSpec<?> upstreamRequest(final UpstreamRoute route, final String path, final ContextView context) {
+        final WebClient.RequestHeadersSpec<?> request = route.webClient().get().uri(path);
+        final Deadline deadline = context.getOrDefault(Deadline.class, null);
+        return deadline == null ? request : request.header(Deadline.HEADER, String.valueOf(deadline.remaining().toMillis()));
+    }
+
+    private static int status(final ServerResponse response) {
+        return response.statusCode().value();
+    }
+
+    private static <T> Mono<T> withDeadline(final Deadline deadline, final Mono<T> response) {
+        if (deadline == null) {
+            return response;
+        }
+        // An outer deadline wins, e.g. when a caller composes several requests under one budget
+        return response.contextWrite(context -> context.hasKey(Deadline.class) ? context : context.put(Deadline.class, deadline));
+    }
+
+    private JsonNode readTree(final String body) {
+        try {
+            return objectMapper.readTree(body); // Re-serialized compactly, so a pretty-printed body stays on one NDJSON line
+        } catch (JsonProcessingException e) {
+            return TextNode.valueOf(body);
+        }
+    }
+
+    private static BatchItem failedItem(final String id, final Throwable throwable) {
+        if (throwable instanceof ResponseStatusException exception) {
+            return new BatchItem(id, exception.getStatusCode().value(), null, exception.getMessage());
+        }
+        LOG.error("Batch item [{}] failed: [{}]", id, throwable.toString());
+        return new BatchItem(id, INTERNAL_SERVER_ERROR.value(), null, INTERNAL_SERVER_ERROR.getReasonPhrase());
+    }
+
+    private Flux<DataBuffer> measured(final UpstreamRoute route, final Flux<DataBuffer> body) {
+        final AtomicLong bytes = new AtomicLong();
+        return body
+                .doOnNext(buffer -> bytes.addAndGet(buffer.readableByteCount()))
+                .doOnComplete(() -> proxyMetrics.recordResponseSize(route.path(), bytes.get()));
     }
 
     private Mono<CustomResponseStatusException> handleErrorResponse(final ClientResponse clientResponse) {
@@ -59,6 +454,6 @@ public class ApplicationHandler {
         return clientResponse
                 .bodyToMono(String.class)
                 .defaultIfEmpty("")
-                .flatMap(res -> Mono.just(new CustomResponseStatusException(clientResponse.statusCode(), res)));
+                .map(res -> new StacklessResponseStatusException(clientResponse.statusCode(), res)); // Retried and recorded, never debugged by its trace
     }
 }
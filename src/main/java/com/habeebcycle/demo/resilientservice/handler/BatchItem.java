@@ -0,0 +1,11 @@
+package com.habeebcycle.demo.resilientservice.handler;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * One result of a batch request: the upstream body on success, the error message otherwise.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchItem(String id, int status, JsonNode body, String error) {
+}
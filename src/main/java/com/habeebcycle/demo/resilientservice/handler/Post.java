@@ -0,0 +1,23 @@
+package com.habeebcycle.demo.resilientservice.handler;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Set;
+
+/**
+ * One element of the upstream {@code /posts} list. Properties the upstream adds beyond these are not passed on in
+ * typed mode; absent ones are left out.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record Post(Long userId, Long id, String title, String body) {
+
+    public static final Set<String> FIELDS = Set.of("userId", "id", "title", "body");
+
+    /**
+     * This post with only {@code fields} set, so only those are written.
+     */
+    Post project(final Set<String> fields) {
+        return new Post(fields.contains("userId") ? userId : null, fields.contains("id") ? id : null,
+                fields.contains("title") ? title : null, fields.contains("body") ? body : null);
+    }
+}
@@ -0,0 +1,68 @@
+package com.habeebcycle.demo.resilientservice.handler;
+
+import com.habeebcycle.demo.resilientservice.http.exception.StacklessResponseStatusException;
+import org.springframework.util.MultiValueMap;
+import reactor.core.publisher.Flux;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+/**
+ * The {@code fields}, {@code offset} and {@code limit} parameters of a typed request. {@code fields} is
+ * {@code null} when every field is requested.
+ */
+record PostQuery(Set<String> fields, long offset, long limit) {
+
+    private static final String FIELDS = "fields";
+    private static final String OFFSET = "offset";
+    private static final String LIMIT = "limit";
+
+    /**
+     * @throws StacklessResponseStatusException with 400 for an unknown field or an out-of-range number
+     */
+    static PostQuery of(final MultiValueMap<String, String> queryParams, final int maxLimit) {
+        final List<String> fieldParams = queryParams.get(FIELDS);
+        Set<String> fields = null;
+        if (fieldParams != null) {
+            fields = fieldParams.stream()
+                    .flatMap(value -> Arrays.stream(value.split(",")))
+                    .map(String::trim)
+                    .filter(field -> !field.isEmpty())
+                    .collect(Collectors.toSet());
+            if (fields.isEmpty() || !Post.FIELDS.containsAll(fields)) {
+                throw new StacklessResponseStatusException(BAD_REQUEST,
+                        "Parameter fields must list some of " + new TreeSet<>(Post.FIELDS));
+            }
+        }
+        return new PostQuery(fields, number(queryParams, OFFSET, 0, Integer.MAX_VALUE), number(queryParams, LIMIT, maxLimit, maxLimit));
+    }
+
+    private static long number(final MultiValueMap<String, String> queryParams, final String name, final long absent, final long max) {
+        final String value = queryParams.getFirst(name);
+        if (value == null) {
+            return absent;
+        }
+        try {
+            final long number = Long.parseLong(value.trim());
+            if (number >= 0 && number <= max) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // Answered below
+        }
+        throw new StacklessResponseStatusException(BAD_REQUEST, "Parameter " + name + " must be between 0 and " + max);
+    }
+
+    /**
+     * Skips and limits {@code posts}, cancelling them once the limit is reached, and projects the rest.
+     */
+    Flux<Post> apply(final Flux<Post> posts) {
+        final Flux<Post> page = posts.skip(offset).take(limit);
+        return fields == null ? page : page.map(post -> post.project(fields));
+    }
+}
@@ -1,6 +1,11 @@
 package com.habeebcycle.demo.resilientservice.http.error;
 
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.habeebcycle.demo.resilientservice.http.exception.CircuitBreakerOpenException;
+import com.habeebcycle.demo.resilientservice.http.exception.ConcurrencyLimitExceededException;
 import com.habeebcycle.demo.resilientservice.http.exception.CustomResponseStatusException;
+import com.habeebcycle.demo.resilientservice.http.exception.DeadlineExceededException;
+import com.habeebcycle.demo.resilientservice.http.exception.RateLimitExceededException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.web.WebProperties;
@@ -8,25 +13,56 @@ import org.springframework.boot.autoconfigure.web.reactive.error.AbstractErrorWe
 import org.springframework.boot.web.reactive.error.ErrorAttributes;
 import org.springframework.context.ApplicationContext;
 import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ReactiveHttpOutputMessage;
 import org.springframework.http.codec.ServerCodecConfigurer;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserter;
 import org.springframework.web.reactive.function.server.*;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.format.DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+
+/**
+ * Renders every error as {@code {"timestamp", "path", "statusCode", "status", "message"}} JSON. The part after the
+ * path only depends on the status and message, so it is serialized once per pair and kept as bytes; a response
+ * splices the timestamp and the escaped path in front of it and is written without going through the codecs.
+ * Only the errors the proxy raises itself have a fixed message, so only their templates are built, upfront; any
+ * other message, e.g. an upstream error body, is rendered per response rather than kept.
+ */
 @Component
 @Order(-2)
 public class GlobalErrorHandler extends AbstractErrorWebExceptionHandler {
 
     private static final Logger LOG = LoggerFactory.getLogger(GlobalErrorHandler.class);
+    private static final byte[] TIMESTAMP_PREFIX = "{\"timestamp\":\"".getBytes(UTF_8);
+    private static final byte[] PATH_PREFIX = "\",\"path\":\"".getBytes(UTF_8);
+
+    private final Map<Template, byte[]> templates;
 
     public GlobalErrorHandler(final ErrorAttributes errorAttributes, final ApplicationContext applicationContext,
                               final ServerCodecConfigurer serverCodecConfigurer) {
         super(errorAttributes, new WebProperties.Resources(), applicationContext);
         super.setMessageWriters(serverCodecConfigurer.getWriters());
         super.setMessageReaders(serverCodecConfigurer.getReaders());
+
+        templates = Stream.of(new CircuitBreakerOpenException(), new ConcurrencyLimitExceededException(Duration.ZERO),
+                        new DeadlineExceededException(), new RateLimitExceededException(1, Duration.ZERO))
+                .collect(Collectors.toUnmodifiableMap(error -> new Template(error.getStatusCode().value(), error.getMessage()),
+                        error -> render(error.getStatusCode().value(), error.getStatus(), error.getMessage())));
     }
 
     @Override
@@ -43,17 +79,55 @@ public class GlobalErrorHandler extends AbstractErrorWebExceptionHandler {
         if (error instanceof CustomResponseStatusException) {
             httpStatus = ((CustomResponseStatusException) error).getStatus();
             statusCode = ((CustomResponseStatusException) error).getStatusCode().value();
+        } else if (error instanceof ResponseStatusException exception) { // e.g. an actuator endpoint rejecting its input
+            statusCode = exception.getStatusCode().value();
+            httpStatus = HttpStatus.resolve(statusCode);
         }
 
-        return ServerResponse.status(httpStatus)
+        // Carries e.g. Retry-After when the request was shed by a limiter
+        final HttpHeaders headers = error instanceof CustomResponseStatusException ex ? ex.getHeaders() : HttpHeaders.EMPTY;
+        final byte[] body = createHttpErrorBody(statusCode, httpStatus, serverRequest.path(), error.getMessage());
+
+        return ServerResponse.status(statusCode)
+                .headers(responseHeaders -> responseHeaders.addAll(headers))
                 .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(createHttpErrorInfo(statusCode, httpStatus, serverRequest.path(), error.getMessage()));
+                .contentLength(body.length)
+                .body((BodyInserter<byte[], ReactiveHttpOutputMessage>) (message, context) ->
+                        message.writeWith(Mono.fromSupplier(() -> message.bufferFactory().wrap(body))));
     }
 
-    private ErrorInfo createHttpErrorInfo(final int status, final HttpStatus httpStatus, final String path, final String message) {
+    private byte[] createHttpErrorBody(final int status, final HttpStatus httpStatus, final String path, final String message) {
         LOG.debug("Returning HTTP Error status: [{}] for path: [{}], message: [{}]", httpStatus, path, message);
-        return new ErrorInfo(path, status, httpStatus, message);
+        final byte[] tail = template(status, httpStatus, message);
+        final byte[] timestamp = ISO_OFFSET_DATE_TIME.format(OffsetDateTime.now(ZoneOffset.UTC)).getBytes(US_ASCII);
+        final byte[] escapedPath = JsonStringEncoder.getInstance().quoteAsUTF8(path);
+
+        final byte[] body = new byte[TIMESTAMP_PREFIX.length + timestamp.length + PATH_PREFIX.length + escapedPath.length + tail.length];
+        int offset = append(body, 0, TIMESTAMP_PREFIX);
+        offset = append(body, offset, timestamp);
+        offset = append(body, offset, PATH_PREFIX);
+        offset = append(body, offset, escapedPath);
+        append(body, offset, tail);
+        return body;
     }
-}
 
+    private byte[] template(final int status, final HttpStatus httpStatus, final String message) {
+        final byte[] template = templates.get(new Template(status, message));
+        return template != null ? template : render(status, httpStatus, message);
+    }
+
+    private static byte[] render(final int status, final HttpStatus httpStatus, final String message) {
+        return ("\",\"statusCode\":" + status
+                + ",\"status\":" + (httpStatus == null ? "null" : '"' + httpStatus.name() + '"')
+                + ",\"message\":" + (message == null ? "null" : '"' + new String(JsonStringEncoder.getInstance().quoteAsString(message)) + '"')
+                + '}').getBytes(UTF_8);
+    }
 
+    private static int append(final byte[] target, final int offset, final byte[] source) {
+        System.arraycopy(source, 0, target, offset, source.length);
+        return offset + source.length;
+    }
+
+    private record Template(int status, String message) {
+    }
+}
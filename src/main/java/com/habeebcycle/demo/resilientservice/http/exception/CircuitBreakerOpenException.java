@@ -0,0 +1,16 @@
+package com.habeebcycle.demo.resilientservice.http.exception;
+
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+/**
+ * Raised in place of resilience4j's {@code CallNotPermittedException} when the circuit breaker rejects a call and no
+ * stale response can be served. Rendered as 503.
+ */
+public class CircuitBreakerOpenException extends StacklessResponseStatusException {
+
+    public static final String MESSAGE = "API service is unavailable";
+
+    public CircuitBreakerOpenException() {
+        super(SERVICE_UNAVAILABLE, MESSAGE);
+    }
+}
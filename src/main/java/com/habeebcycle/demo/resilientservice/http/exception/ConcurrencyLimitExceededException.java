@@ -0,0 +1,27 @@
+package com.habeebcycle.demo.resilientservice.http.exception;
+
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+/**
+ * Raised when the adaptive concurrency limit rejects an upstream call. Rendered as 503 with a Retry-After header and
+ * never recorded or retried by {@link RecordFailurePredicate}, since the upstream was not called.
+ */
+public class ConcurrencyLimitExceededException extends StacklessResponseStatusException {
+
+    private final HttpHeaders headers;
+
+    public ConcurrencyLimitExceededException(final Duration retryAfter) {
+        super(SERVICE_UNAVAILABLE, "API service is overloaded");
+        this.headers = new HttpHeaders();
+        this.headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, retryAfter.toSeconds())));
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+}
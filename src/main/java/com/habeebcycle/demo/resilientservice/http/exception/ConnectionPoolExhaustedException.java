@@ -0,0 +1,15 @@
+package com.habeebcycle.demo.resilientservice.http.exception;
+
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+/**
+ * Raised when no upstream connection could be leased from the pool, either because the pending-acquire queue is full
+ * or the acquire timed out. Being a 5xx {@link CustomResponseStatusException}, it is recorded by
+ * {@link RecordFailurePredicate} like any other upstream failure.
+ */
+public class ConnectionPoolExhaustedException extends StacklessResponseStatusException {
+
+    public ConnectionPoolExhaustedException(final Throwable cause) {
+        super(SERVICE_UNAVAILABLE, "API connection pool is exhausted", cause);
+    }
+}
@@ -15,6 +15,11 @@ public class CustomResponseStatusException extends ResponseStatusException {
         this.message = message;
     }
 
+    public CustomResponseStatusException(HttpStatusCode statusCode, String message, Throwable cause) {
+        super(statusCode, message, cause);
+        this.status = HttpStatus.resolve(statusCode.value());
+        this.message = message;
+    }
 
     public HttpStatus getStatus() {
         return status;
@@ -0,0 +1,14 @@
+package com.habeebcycle.demo.resilientservice.http.exception;
+
+import static org.springframework.http.HttpStatus.GATEWAY_TIMEOUT;
+
+/**
+ * Raised when the request deadline passes before the upstream answered. Rendered as 504 and, since it is the caller
+ * who ran out of time rather than the upstream failing, neither recorded nor retried by {@link RecordFailurePredicate}.
+ */
+public class DeadlineExceededException extends StacklessResponseStatusException {
+
+    public DeadlineExceededException() {
+        super(GATEWAY_TIMEOUT, "API request deadline exceeded");
+    }
+}
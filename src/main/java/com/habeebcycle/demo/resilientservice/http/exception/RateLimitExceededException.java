@@ -0,0 +1,35 @@
+package com.habeebcycle.demo.resilientservice.http.exception;
+
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
+
+/**
+ * Raised when an inbound rate limit rejects a request. Rendered as 429 with Retry-After and the
+ * {@code RateLimit-Limit}, {@code RateLimit-Remaining} and {@code RateLimit-Reset} headers of the limit that was hit.
+ */
+public class RateLimitExceededException extends StacklessResponseStatusException {
+
+    public static final String LIMIT_HEADER = "RateLimit-Limit";
+    public static final String REMAINING_HEADER = "RateLimit-Remaining";
+    public static final String RESET_HEADER = "RateLimit-Reset";
+
+    private final HttpHeaders headers;
+
+    public RateLimitExceededException(final int limit, final Duration retryAfter) {
+        super(TOO_MANY_REQUESTS, "Rate limit exceeded");
+        final String seconds = String.valueOf(Math.max(1, (retryAfter.toMillis() + 999) / 1000));
+        this.headers = new HttpHeaders();
+        this.headers.set(HttpHeaders.RETRY_AFTER, seconds);
+        this.headers.set(LIMIT_HEADER, String.valueOf(limit));
+        this.headers.set(REMAINING_HEADER, "0");
+        this.headers.set(RESET_HEADER, seconds);
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+}
@@ -13,6 +13,12 @@ public class RecordFailurePredicate implements Predicate<Throwable> {
     }
 
     private boolean recordFailures(Throwable throwable) {
+        if (throwable instanceof ConcurrencyLimitExceededException) {
+            return false; // Rejected locally, the upstream was never called
+        }
+        if (throwable instanceof DeadlineExceededException) {
+            return false; // The caller ran out of time, which says nothing about the upstream
+        }
         return
                 (throwable instanceof CustomResponseStatusException ex && ex.getStatus().is5xxServerError()) ||
                         throwable instanceof TimeoutException || throwable instanceof IOException ||
@@ -0,0 +1,24 @@
+package com.habeebcycle.demo.resilientservice.http.exception;
+
+import org.springframework.http.HttpStatusCode;
+
+/**
+ * {@link CustomResponseStatusException} for expected conditions (open circuit, shed load, upstream error statuses)
+ * that are answered with a status rather than investigated. It skips capturing a stack trace, which is the bulk of the
+ * cost of creating an exception and says nothing about a reactive pipeline anyway; a cause keeps its own trace.
+ */
+public class StacklessResponseStatusException extends CustomResponseStatusException {
+
+    public StacklessResponseStatusException(final HttpStatusCode statusCode, final String message) {
+        super(statusCode, message);
+    }
+
+    public StacklessResponseStatusException(final HttpStatusCode statusCode, final String message, final Throwable cause) {
+        super(statusCode, message, cause);
+    }
+
+    @Override
+    public final synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -1,88 +1,217 @@
 package com.habeebcycle.demo.resilientservice.http.web;
 
-import io.netty.handler.timeout.ReadTimeoutHandler;
+import com.habeebcycle.demo.resilientservice.config.CompressionProperties;
+import com.habeebcycle.demo.resilientservice.config.ConnectionPoolProperties;
+import com.habeebcycle.demo.resilientservice.config.UpstreamRouteProperties;
+import com.habeebcycle.demo.resilientservice.http.exception.ConnectionPoolExhaustedException;
+import com.habeebcycle.demo.resilientservice.loadbalancer.UpstreamLoadBalancer;
 import io.netty.handler.timeout.WriteTimeoutHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Component;
-import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.Http2SslContextSpec;
+import reactor.netty.http.client.Http2AllocationStrategy;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static io.netty.channel.ChannelOption.CONNECT_TIMEOUT_MILLIS;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.springframework.http.HttpHeaders.ACCEPT;
 import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
-import static reactor.core.publisher.Mono.just;
 
 @Component
 public class ApplicationWebClient {
 
-    private static final Logger LOGGER = LoggerFactory.getLogger(ApplicationWebClient.class);
+    private static final Logger LOG = LoggerFactory.getLogger(ApplicationWebClient.class);
+    private static final String CONNECTION_POOL_NAME = "upstream";
+    static final String WRITE_TIMEOUT_HANDLER = "proxy.writeTimeout";
+    private static final Set<String> POOL_EXHAUSTION_EXCEPTIONS = Set.of("PoolAcquirePendingLimitException", "PoolAcquireTimeoutException");
 
     private final String serverBaseUrl;
     private final int connectTimeout;
     private final int readTimeout;
     private final int writeTimeout;
     private final int maxInMemorySize;
+    private final ExchangeLoggingFilter exchangeLoggingFilter;
+    private final ConnectionPoolProperties poolProperties;
+    private final boolean compressUpstream;
+    private final UpstreamLoadBalancer loadBalancer;
+    private final ObjectProvider<WebClient.Builder> webClientBuilders;
+    private final List<HttpClient> httpClients = new CopyOnWriteArrayList<>();
 
 
     public ApplicationWebClient(@Value("${api.client.baseUrl}")String serverBaseUrl,
                                 @Value("${api.client.connectTimeout}") int connectTimeout,
                                 @Value("${api.client.readTimeout}") int readTimeout,
                                 @Value("${api.client.writeTimeout}") int writeTimeout,
-                                @Value("${api.client.maxInMemorySize:33777216}") int maxInMemorySize) {
+                                @Value("${api.client.maxInMemorySize:33777216}") int maxInMemorySize,
+                                @Value("${api.client.streaming:false}") boolean streaming,
+                                ExchangeLoggingFilter exchangeLoggingFilter,
+                                ConnectionPoolProperties poolProperties,
+                                CompressionProperties compressionProperties,
+                                UpstreamLoadBalancer loadBalancer,
+                                ObjectProvider<WebClient.Builder> webClientBuilders) {
         this.serverBaseUrl = serverBaseUrl;
         this.connectTimeout = connectTimeout;
         this.readTimeout = readTimeout;
         this.writeTimeout = writeTimeout;
         this.maxInMemorySize = maxInMemorySize;
+        this.exchangeLoggingFilter = exchangeLoggingFilter;
+        this.poolProperties = poolProperties;
+        // Streaming forwards the caller's Accept-Encoding and passes encoded bodies through, so nothing is decoded
+        this.compressUpstream = compressionProperties.upstream() && !streaming;
+        this.loadBalancer = loadBalancer;
+        this.webClientBuilders = webClientBuilders;
     }
 
     @Bean
     public WebClient apiGatewayWebClient(final WebClient.Builder webClientBuilder) {
+        return build(webClientBuilder, CONNECTION_POOL_NAME, serverBaseUrl, connectTimeout, readTimeout, writeTimeout);
+    }
+
+    /**
+     * WebClient with its own connection pool for a route that overrides the base URL or timeouts of api.client.
+     */
+    public WebClient create(final String routeName, final UpstreamRouteProperties.Route route) {
+        return build(webClientBuilders.getObject(), CONNECTION_POOL_NAME + "-" + routeName,
+                Objects.requireNonNullElse(route.baseUrl(), serverBaseUrl),
+                Objects.requireNonNullElse(route.connectTimeout(), connectTimeout),
+                Objects.requireNonNullElse(route.readTimeout(), readTimeout),
+                Objects.requireNonNullElse(route.writeTimeout(), writeTimeout));
+    }
+
+    private WebClient build(final WebClient.Builder webClientBuilder, final String poolName, final String baseUrl,
+                            final int connectTimeout, final int readTimeout, final int writeTimeout) {
+        if (loadBalancer.enabled() && baseUrl.equals(serverBaseUrl)) {
+            webClientBuilder.filter(loadBalancer); // Outermost, so the other filters see the chosen endpoint
+        }
         return webClientBuilder
                 .exchangeStrategies(ExchangeStrategies.builder()
                     .codecs(config -> config.defaultCodecs().maxInMemorySize(maxInMemorySize)).build())
-                .filter(logRequestDetails())
-                .filter(logResponseDetails())
+                .filter(exchangeLoggingFilter)
+                .filter(connectionPoolExhaustion())
                 .defaultHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE)
                 .defaultHeader(ACCEPT, APPLICATION_JSON_VALUE)
-                .clientConnector(new ReactorClientHttpConnector(clientConnectorConfig()))
-                .baseUrl(serverBaseUrl)
+                .clientConnector(new ReactorClientHttpConnector(clientConnectorConfig(poolName, baseUrl, connectTimeout, readTimeout, writeTimeout)))
+                .baseUrl(baseUrl)
                 .build();
     }
 
-    private ExchangeFilterFunction logRequestDetails() {
-        return ExchangeFilterFunction.ofRequestProcessor(clientRequest -> {
-            LOGGER.info("Sending [{}] request to URL [{}] with request headers [{}]",
-                    clientRequest.method(), clientRequest.url(), clientRequest.headers());
-            return just(clientRequest);
-        });
+    /**
+     * Warms up every HttpClient built so far: event loops, DNS resolver and native transport are initialised now
+     * rather than by the first request. Opens no connection.
+     */
+    public Mono<Void> warmup() {
+        return Flux.fromIterable(httpClients).flatMap(HttpClient::warmup).then();
+    }
+
+    /**
+     * Opens {@code connections} connections in every pool built so far by sending that many concurrent {@code method}
+     * requests to {@code path}. They go through the HttpClient itself, so no WebClient filter or observation sees them: they
+     * are never balanced, logged or recorded. Failed requests are ignored.
+     */
+    public Mono<Void> preconnect(final HttpMethod method, final String path, final int connections) {
+        final io.netty.handler.codec.http.HttpMethod nettyMethod = io.netty.handler.codec.http.HttpMethod.valueOf(method.name());
+        // Concurrent, so each request needs a connection of its own and the pool grows to that many
+        return Flux.fromIterable(httpClients)
+                .flatMap(httpClient -> Flux.range(0, connections)
+                        .flatMap(i -> httpClient.request(nettyMethod).uri(path)
+                                .responseSingle((response, body) -> body.then())
+                                .onErrorResume(throwable -> Mono.empty()), connections))
+                .then();
     }
 
-    private ExchangeFilterFunction logResponseDetails() {
-        return ExchangeFilterFunction.ofResponseProcessor(clientResponse ->
-                clientResponse.bodyToMono(String.class).defaultIfEmpty("").flatMap(responseBody -> {
-                    final ClientResponse orgClientResponse = clientResponse.mutate().body(responseBody).build();
-                    LOGGER.info("Received response from API with body [{}] status [{}] with response headers [{}]",
-                            responseBody, clientResponse.statusCode(), clientResponse.headers().asHttpHeaders().toSingleValueMap());
-                    return just(orgClientResponse);
-                })
-        );
+    private ExchangeFilterFunction connectionPoolExhaustion() {
+        return (clientRequest, next) -> next.exchange(clientRequest)
+                .onErrorMap(WebClientRequestException.class, ex -> isPoolExhaustion(ex) ? new ConnectionPoolExhaustedException(ex) : ex);
     }
 
-    private HttpClient clientConnectorConfig() {
-        return HttpClient.create().option(CONNECT_TIMEOUT_MILLIS, connectTimeout)
-                .doOnConnected(conn -> {
-                    conn.addHandlerLast(new ReadTimeoutHandler(readTimeout, MILLISECONDS));
-                    conn.addHandlerLast(new WriteTimeoutHandler(writeTimeout, MILLISECONDS));
-                });
+    /**
+     * Whether {@code throwable} or one of its causes is the pool refusing a lease. Matched by name: Reactor Netty only
+     * ships these exceptions in an internal, shaded package, which is not an API to compile against.
+     */
+    static boolean isPoolExhaustion(final Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (POOL_EXHAUSTION_EXCEPTIONS.contains(cause.getClass().getSimpleName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private HttpClient clientConnectorConfig(final String poolName, final String baseUrl,
+                                             final int connectTimeout, final int readTimeout, final int writeTimeout) {
+        HttpClient httpClient = withWriteTimeout(HttpClient.create(connectionProvider(poolName)), writeTimeout)
+                .protocol(poolProperties.httpProtocols())
+                .option(CONNECT_TIMEOUT_MILLIS, connectTimeout)
+                .responseTimeout(Duration.ofMillis(readTimeout)) // Reactor Netty's own per-request read timeout
+                .compress(compressUpstream); // Accept-Encoding: gzip, and the body decoded on arrival
+
+        if (poolProperties.protocols().contains(ConnectionPoolProperties.Protocol.H2)) {
+            if (baseUrl.startsWith("https")) {
+                httpClient = httpClient.secure(spec -> spec.sslContext(Http2SslContextSpec.forClient()));
+            } else if (poolProperties.protocols().size() == 1) {
+                throw new IllegalArgumentException("api.client.pool.protocols H2 needs an https base URL but pool ["
+                        + poolName + "] calls [" + baseUrl + "]; use H2C for cleartext HTTP/2");
+            } else {
+                LOG.warn("Pool [{}] calls [{}] without TLS, so H2 is never negotiated; it uses {} instead", poolName, baseUrl,
+                        poolProperties.protocols().stream().filter(protocol -> protocol != ConnectionPoolProperties.Protocol.H2).toList());
+            }
+        }
+        httpClients.add(httpClient.baseUrl(baseUrl)); // Shares the connection pool
+        return httpClient;
+    }
+
+    /**
+     * Installs a write timeout once on every new channel. The handler is put straight into the channel's pipeline,
+     * not added through the connection, which would remove it whenever a pooled connection is released, so it
+     * stays for the life of the channel and reused connections keep their timeout without any per-request work.
+     */
+    static HttpClient withWriteTimeout(final HttpClient httpClient, final int writeTimeout) {
+        return httpClient.doOnChannelInit((observer, channel, remoteAddress) ->
+                channel.pipeline().addFirst(WRITE_TIMEOUT_HANDLER, new WriteTimeoutHandler(writeTimeout, MILLISECONDS)));
+    }
+
+    private ConnectionProvider connectionProvider(final String poolName) {
+        final ConnectionProvider.Builder builder = ConnectionProvider.builder(poolName)
+                .maxConnections(poolProperties.maxConnections())
+                .pendingAcquireMaxCount(poolProperties.pendingAcquireMaxCount())
+                .pendingAcquireTimeout(poolProperties.pendingAcquireTimeout())
+                .maxIdleTime(poolProperties.maxIdleTime())
+                .maxLifeTime(poolProperties.maxLifeTime())
+                .evictInBackground(poolProperties.evictInBackground())
+                .metrics(poolProperties.metricsEnabled()); // reactor.netty.connection.provider.* active/idle/pending gauges and acquire timer
+
+        if (poolProperties.leasingStrategy() == ConnectionPoolProperties.LeasingStrategy.LIFO) {
+            builder.lifo();
+        } else {
+            builder.fifo();
+        }
+        if (poolProperties.isHttp2()) {
+            // Streams are multiplexed over at most maxConnections connections
+            builder.allocationStrategy(Http2AllocationStrategy.builder()
+                    .maxConnections(poolProperties.maxConnections())
+                    .maxConcurrentStreams(poolProperties.maxConcurrentStreams())
+                    .build());
+        }
+        return builder.build();
     }
 }
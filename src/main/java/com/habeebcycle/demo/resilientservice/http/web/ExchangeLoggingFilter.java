@@ -0,0 +1,102 @@
+package com.habeebcycle.demo.resilientservice.http.web;
+
+import com.habeebcycle.demo.resilientservice.config.ClientLoggingProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Logs upstream exchanges without aggregating the response body. Exchanges can be sampled (1 in N), header values
+ * listed in {@code redactedHeaders} are masked, and the body preview is cut from the first buffer only, leaving the
+ * stream untouched. When an exchange is not logged the filter hands the request straight to the next function.
+ */
+@Component
+public class ExchangeLoggingFilter implements ExchangeFilterFunction {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExchangeLoggingFilter.class);
+    private static final String REDACTED = "***";
+
+    private final Level level;
+    private final long sampleRate;
+    private final int bodyPreviewSize;
+    private final Set<String> redactedHeaders;
+    private final AtomicLong exchangeCounter = new AtomicLong();
+
+    public ExchangeLoggingFilter(final ClientLoggingProperties properties) {
+        final String level = properties.level();
+        this.level = "OFF".equalsIgnoreCase(level) ? null : Level.valueOf(level.toUpperCase(Locale.ROOT));
+        this.sampleRate = properties.sampleRate();
+        this.bodyPreviewSize = properties.bodyPreviewSize();
+        this.redactedHeaders = properties.redactedHeaders().stream()
+                .map(header -> header.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    @Override
+    public @NonNull Mono<ClientResponse> filter(@NonNull final ClientRequest clientRequest, @NonNull final ExchangeFunction next) {
+        if (!shouldLog()) {
+            return next.exchange(clientRequest);
+        }
+
+        LOGGER.atLevel(level).log("Sending [{}] request to URL [{}] with request headers [{}]",
+                clientRequest.method(), clientRequest.url(), redact(clientRequest.headers()));
+
+        return next.exchange(clientRequest).map(clientResponse -> {
+            LOGGER.atLevel(level).log("Received response from API with status [{}] with response headers [{}]",
+                    clientResponse.statusCode(), redact(clientResponse.headers().asHttpHeaders()));
+            return bodyPreviewSize == 0 ? clientResponse : clientResponse.mutate().body(this::previewFirstBuffer).build();
+        });
+    }
+
+    private boolean shouldLog() {
+        if (level == null || !LOGGER.isEnabledForLevel(level)) {
+            return false;
+        }
+        return sampleRate == 1 || exchangeCounter.getAndIncrement() % sampleRate == 0;
+    }
+
+    private Flux<DataBuffer> previewFirstBuffer(final Flux<DataBuffer> body) {
+        return body.switchOnFirst((signal, flux) -> {
+            if (signal.hasValue()) {
+                final DataBuffer buffer = signal.get();
+                final int length = Math.min(bodyPreviewSize, buffer.readableByteCount());
+                // Reads by index so the buffer's read position is left as it was for the downstream consumer
+                LOGGER.atLevel(level).log("Received response body preview [{}] ({} bytes)",
+                        buffer.toString(buffer.readPosition(), length, UTF_8), length);
+            }
+            return flux;
+        });
+    }
+
+    private String redact(final HttpHeaders headers) {
+        if (redactedHeaders.isEmpty()) {
+            return headers.toString();
+        }
+        final StringBuilder builder = new StringBuilder("[");
+        headers.forEach((name, values) -> {
+            if (builder.length() > 1) {
+                builder.append(", ");
+            }
+            builder.append(name).append(':');
+            builder.append(redactedHeaders.contains(name.toLowerCase(Locale.ROOT)) ? REDACTED : String.join(",", values));
+        });
+        return builder.append(']').toString();
+    }
+}
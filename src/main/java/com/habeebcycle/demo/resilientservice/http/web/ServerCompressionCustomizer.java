@@ -0,0 +1,83 @@
+package com.habeebcycle.demo.resilientservice.http.web;
+
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import com.habeebcycle.demo.resilientservice.config.CompressionProperties;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.compression.Brotli;
+import io.netty.handler.codec.compression.CompressionOptions;
+import io.netty.handler.codec.compression.StandardCompressionOptions;
+import io.netty.handler.codec.http.HttpContentCompressor;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.stereotype.Component;
+import reactor.netty.NettyPipeline;
+import reactor.netty.http.server.HttpServer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compresses server responses with a configurable zlib level, which Reactor Netty's own {@code compress} does not
+ * expose. The compressor sits right behind the HTTP/1.1 codec of every connection; it negotiates Brotli (when the
+ * native brotli4j library loads on this platform), gzip or deflate from the request's {@code Accept-Encoding}, skips responses with a known length below the threshold, and leaves
+ * responses that already carry a {@code Content-Encoding}, such as passed-through upstream bodies, untouched.
+ */
+@Component
+public class ServerCompressionCustomizer implements NettyServerCustomizer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ServerCompressionCustomizer.class);
+    private static final String COMPRESSOR = "proxy.compressor";
+
+    private final CompressionProperties properties;
+
+    public ServerCompressionCustomizer(final CompressionProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public HttpServer apply(final HttpServer httpServer) {
+        if (!properties.enabled()) {
+            return httpServer;
+        }
+        final int threshold = (int) Math.min(Integer.MAX_VALUE, properties.minResponseSize().toBytes());
+        final CompressionOptions[] options = compressionOptions();
+        return httpServer.doOnChannelInit((observer, channel, remoteAddress) -> {
+            final ChannelPipeline pipeline = channel.pipeline();
+            if (pipeline.get(NettyPipeline.HttpCodec) != null) { // HTTP/1.1; HTTP/2 streams are not compressed
+                pipeline.addAfter(NettyPipeline.HttpCodec, COMPRESSOR, new ThresholdCompressor(threshold, options));
+            }
+        });
+    }
+
+    private CompressionOptions[] compressionOptions() {
+        final List<CompressionOptions> options = new ArrayList<>();
+        if (Brotli.isAvailable()) {
+            options.add(StandardCompressionOptions.brotli(new Encoder.Parameters().setQuality(properties.brotliQuality())));
+        } else {
+            LOG.warn("Brotli is not offered: the native brotli4j library failed to load: [{}]", String.valueOf(Brotli.cause()));
+        }
+        options.add(StandardCompressionOptions.gzip(properties.level(), 15, 8));
+        options.add(StandardCompressionOptions.deflate(properties.level(), 15, 8));
+        return options.toArray(CompressionOptions[]::new);
+    }
+
+    private static final class ThresholdCompressor extends HttpContentCompressor {
+
+        private final int threshold;
+
+        private ThresholdCompressor(final int threshold, final CompressionOptions... options) {
+            super(threshold, options);
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected Result beginEncode(final HttpResponse response, final String acceptEncoding) throws Exception {
+            // Netty only checks the threshold on full responses; Reactor Netty usually writes headers on their own
+            final long contentLength = HttpUtil.getContentLength(response, -1L);
+            return contentLength >= 0 && contentLength < threshold ? null : super.beginEncode(response, acceptEncoding);
+        }
+    }
+}
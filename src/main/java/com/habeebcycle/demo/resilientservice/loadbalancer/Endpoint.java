@@ -0,0 +1,117 @@
+package com.habeebcycle.demo.resilientservice.loadbalancer;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One upstream replica: its circuit breaker, requests in flight and exponentially weighted error rate and latency
+ * since it last came back from ejection. Statistics are updated under the endpoint's lock, which is only held for a
+ * few arithmetic operations per response.
+ */
+final class Endpoint {
+
+    private final URI uri;
+    private final CircuitBreaker circuitBreaker;
+    private final double smoothing;
+    private final double decayNanos;
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private double errorRate;
+    private double latencyNanos;
+    private long lastSampleNanos;
+    private int samples;
+    private int consecutiveEjections;
+    private volatile long ejectedUntilNanos;
+
+    Endpoint(final URI uri, final CircuitBreaker circuitBreaker, final double smoothing, final long decayNanos) {
+        this.uri = uri;
+        this.circuitBreaker = circuitBreaker;
+        this.smoothing = smoothing;
+        this.decayNanos = decayNanos;
+    }
+
+    URI uri() {
+        return uri;
+    }
+
+    CircuitBreaker circuitBreaker() {
+        return circuitBreaker;
+    }
+
+    int outstanding() {
+        return outstanding.get();
+    }
+
+    void started() {
+        outstanding.incrementAndGet();
+    }
+
+    synchronized void completed(final boolean error, final long nanos) {
+        outstanding.decrementAndGet();
+        final long now = System.nanoTime();
+        samples++;
+        if (samples == 1) {
+            errorRate = error ? 1 : 0;
+            latencyNanos = nanos;
+        } else {
+            errorRate += smoothing * ((error ? 1 : 0) - errorRate);
+            latencyNanos = decayed(now) + smoothing * (nanos - decayed(now));
+        }
+        lastSampleNanos = now;
+    }
+
+    void cancelled() {
+        outstanding.decrementAndGet();
+    }
+
+    /**
+     * Load as seen by P2C: latency weighted by the requests already queued on the endpoint and inflated by its error
+     * rate, so a replica that fails fast does not attract traffic; an endpoint without samples yet counts as fast so
+     * it gets probed.
+     */
+    synchronized double load(final long now) {
+        return (outstanding.get() + 1) * Math.max(1, decayed(now)) / Math.max(0.01, 1 - errorRate);
+    }
+
+    synchronized int samples() {
+        return samples;
+    }
+
+    synchronized double errorRate() {
+        return errorRate;
+    }
+
+    synchronized double latencyNanos() {
+        return latencyNanos;
+    }
+
+    /**
+     * Latency decayed toward zero while the endpoint gets no responses, so one slow sample cannot starve it forever.
+     */
+    private double decayed(final long now) {
+        return samples == 0 ? latencyNanos : latencyNanos * Math.exp(-(double) (now - lastSampleNanos) / decayNanos);
+    }
+
+    boolean isEjected(final long now) {
+        final long until = ejectedUntilNanos;
+        return until != 0 && now - until < 0; // 0: never ejected
+    }
+
+    /**
+     * Ejects for {@code ejectionNanos} times the consecutive ejections and starts statistics afresh, so the endpoint
+     * is judged on new samples when it comes back.
+     */
+    synchronized void eject(final long now, final long ejectionNanos) {
+        consecutiveEjections++;
+        ejectedUntilNanos = now + ejectionNanos * consecutiveEjections;
+        samples = 0;
+        errorRate = 0;
+        latencyNanos = 0;
+    }
+
+    synchronized void healthy() {
+        consecutiveEjections = 0;
+    }
+}
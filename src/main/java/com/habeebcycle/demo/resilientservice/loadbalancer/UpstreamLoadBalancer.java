@@ -0,0 +1,239 @@
+package com.habeebcycle.demo.resilientservice.loadbalancer;
+
+import com.habeebcycle.demo.resilientservice.config.LoadBalancerProperties;
+import com.habeebcycle.demo.resilientservice.http.exception.StacklessResponseStatusException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+/**
+ * Spreads upstream requests over the replicas in {@code api.client.loadBalancer.endpoints} by rewriting the scheme,
+ * host and port of each request, retries and hedges included, so every attempt is balanced on its own. The path of
+ * {@code api.client.baseUrl} is replaced by that of the endpoint, e.g. {@code http://replica:8081/api}.
+ * <p>
+ * Each endpoint has its own circuit breaker ({@code endpoint-<host>:<port>}, default configuration) and is ejected
+ * as an outlier on error rate or latency, see {@link LoadBalancerProperties}. Both act per replica and well before the
+ * route's circuit breaker, which only sees the failures that are left once traffic has shifted. When every endpoint
+ * is ejected or open, selection falls back to all endpoints whose breaker still permits a call.
+ */
+@Component
+public class UpstreamLoadBalancer implements ExchangeFilterFunction {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UpstreamLoadBalancer.class);
+
+    private final LoadBalancerProperties properties;
+    private final String basePath;
+    private final List<Endpoint> endpoints;
+    private final long ejectionNanos;
+    private final MeterRegistry meterRegistry;
+
+    public UpstreamLoadBalancer(@Value("${api.client.baseUrl}") final String baseUrl, final LoadBalancerProperties properties,
+                                final CircuitBreakerRegistry circuitBreakerRegistry, final MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.basePath = withoutTrailingSlash(URI.create(baseUrl).getRawPath());
+        this.ejectionNanos = properties.ejectionTime().toNanos();
+        this.meterRegistry = meterRegistry;
+        this.endpoints = properties.endpoints().stream()
+                .map(URI::create)
+                .map(uri -> new Endpoint(uri, circuitBreakerRegistry.circuitBreaker("endpoint-" + uri.getAuthority()), properties.smoothing(),
+                        properties.latencyDecay().toNanos()))
+                .toList();
+
+        endpoints.forEach(endpoint -> {
+            Gauge.builder("proxy.upstream.endpoint.outstanding", endpoint, Endpoint::outstanding)
+                    .tag("endpoint", endpoint.uri().getAuthority()).register(meterRegistry);
+            Gauge.builder("proxy.upstream.endpoint.ejected", endpoint, e -> e.isEjected(System.nanoTime()) ? 1 : 0)
+                    .tag("endpoint", endpoint.uri().getAuthority()).register(meterRegistry);
+        });
+        if (!endpoints.isEmpty()) {
+            LOG.info("Balancing upstream requests over {} with strategy [{}]", properties.endpoints(), properties.strategy());
+        }
+    }
+
+    public boolean enabled() {
+        return properties.enabled();
+    }
+
+    @Override
+    public @NonNull Mono<ClientResponse> filter(@NonNull final ClientRequest request, @NonNull final ExchangeFunction next) {
+        return Mono.defer(() -> {
+            final Endpoint endpoint = select();
+            if (endpoint == null) {
+                return Mono.error(new StacklessResponseStatusException(SERVICE_UNAVAILABLE, "No upstream endpoint is available"));
+            }
+            final ClientRequest routed = ClientRequest.from(request).url(rewrite(request.url(), endpoint.uri())).build();
+            final AtomicBoolean done = new AtomicBoolean();
+            final long start = System.nanoTime();
+            endpoint.started();
+
+            return next.exchange(routed)
+                    .doOnNext(response -> {
+                        if (done.compareAndSet(false, true)) {
+                            complete(endpoint, response.statusCode().is5xxServerError()
+                                    ? new StacklessResponseStatusException(response.statusCode(), "Upstream endpoint failed") : null, start);
+                        }
+                    })
+                    .doOnError(throwable -> {
+                        if (done.compareAndSet(false, true)) {
+                            complete(endpoint, throwable, start);
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (done.compareAndSet(false, true)) {
+                            endpoint.cancelled(); // Lost a hedge race or the deadline passed: no verdict on the endpoint
+                            endpoint.circuitBreaker().releasePermission();
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Endpoint for the next request with a circuit breaker permit acquired, or null when none permits a call.
+     */
+    Endpoint select() {
+        final long now = System.nanoTime();
+        List<Endpoint> candidates = available(now);
+        if (candidates.isEmpty()) {
+            candidates = endpoints; // Panic mode: better a suspect endpoint than none
+        }
+        for (final Endpoint endpoint : preference(candidates)) {
+            if (endpoint.circuitBreaker().tryAcquirePermission()) {
+                return endpoint;
+            }
+        }
+        return null;
+    }
+
+    private List<Endpoint> available(final long now) {
+        final List<Endpoint> available = new ArrayList<>(endpoints.size());
+        for (final Endpoint endpoint : endpoints) {
+            if (!endpoint.isEjected(now) && endpoint.circuitBreaker().getState() != CircuitBreaker.State.OPEN) {
+                available.add(endpoint);
+            }
+        }
+        return available;
+    }
+
+    private List<Endpoint> preference(final List<Endpoint> candidates) {
+        if (candidates.size() < 2) {
+            return candidates;
+        }
+        if (properties.strategy() == LoadBalancerProperties.Strategy.LEAST_OUTSTANDING) {
+            final List<Endpoint> ordered = new ArrayList<>(candidates);
+            final int offset = ThreadLocalRandom.current().nextInt(ordered.size());
+            Collections.rotate(ordered, offset); // Random tie-break, as the sort is stable
+            ordered.sort(Comparator.comparingInt(Endpoint::outstanding));
+            return ordered;
+        }
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int first = random.nextInt(candidates.size());
+        final int second = (first + 1 + random.nextInt(candidates.size() - 1)) % candidates.size();
+        final Endpoint a = candidates.get(first);
+        final Endpoint b = candidates.get(second);
+        final long now = System.nanoTime();
+        final boolean aFirst = a.load(now) <= b.load(now);
+        final List<Endpoint> ordered = new ArrayList<>(candidates.size());
+        ordered.add(aFirst ? a : b);
+        ordered.add(aFirst ? b : a);
+        candidates.stream().filter(endpoint -> endpoint != a && endpoint != b).forEach(ordered::add); // Only if both deny a permit
+        return ordered;
+    }
+
+    private void complete(final Endpoint endpoint, final Throwable error, final long start) {
+        final long nanos = System.nanoTime() - start;
+        endpoint.completed(error != null, nanos);
+        if (error == null) {
+            endpoint.circuitBreaker().onSuccess(nanos, NANOSECONDS);
+        } else {
+            endpoint.circuitBreaker().onError(nanos, NANOSECONDS, error);
+        }
+        evaluate(endpoint);
+    }
+
+    private void evaluate(final Endpoint endpoint) {
+        if (endpoint.samples() < properties.minRequests()) {
+            return;
+        }
+        final String reason = endpoint.errorRate() > properties.maxErrorRate() ? "error_rate"
+                : isLatencyOutlier(endpoint) ? "latency" : null;
+        if (reason == null) {
+            endpoint.healthy();
+            return;
+        }
+        synchronized (this) {
+            final long now = System.nanoTime();
+            if (endpoint.isEjected(now) || endpoint.samples() < properties.minRequests()) {
+                return; // Ejected by a concurrent response
+            }
+            final long ejected = endpoints.stream().filter(e -> e.isEjected(now)).count();
+            if ((ejected + 1) * 100 > (long) properties.maxEjectionPercent() * endpoints.size()) {
+                LOG.debug("Not ejecting endpoint [{}] for [{}]: too many endpoints ejected already", endpoint.uri(), reason);
+                return;
+            }
+            endpoint.eject(now, ejectionNanos);
+        }
+        LOG.warn("Ejected upstream endpoint [{}] on [{}]", endpoint.uri(), reason);
+        Counter.builder("proxy.upstream.endpoint.ejections")
+                .tag("endpoint", endpoint.uri().getAuthority())
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private boolean isLatencyOutlier(final Endpoint endpoint) {
+        final long now = System.nanoTime();
+        final double[] others = endpoints.stream()
+                .filter(other -> other != endpoint && !other.isEjected(now) && other.samples() > 0)
+                .filter(other -> other.errorRate() <= properties.maxErrorRate()) // Fast failures would drag the median down
+                .mapToDouble(Endpoint::latencyNanos)
+                .sorted()
+                .toArray();
+        if (others.length == 0) {
+            return false;
+        }
+        final double median = others.length % 2 == 1 ? others[others.length / 2]
+                : (others[others.length / 2 - 1] + others[others.length / 2]) / 2;
+        return endpoint.latencyNanos() > properties.maxLatencyFactor() * median;
+    }
+
+    private URI rewrite(final URI url, final URI endpoint) {
+        final String path = Objects.requireNonNullElse(url.getRawPath(), "");
+        return UriComponentsBuilder.fromUri(url)
+                .scheme(endpoint.getScheme())
+                .host(endpoint.getHost())
+                .port(endpoint.getPort())
+                .replacePath(withoutTrailingSlash(endpoint.getRawPath())
+                        + (path.startsWith(basePath) ? path.substring(basePath.length()) : path))
+                .build(true)
+                .toUri();
+    }
+
+    private static String withoutTrailingSlash(final String path) {
+        return path == null ? "" : path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+    }
+}
@@ -0,0 +1,183 @@
+package com.habeebcycle.demo.resilientservice.metrics;
+
+import com.habeebcycle.demo.resilientservice.config.MetricsProperties;
+import com.habeebcycle.demo.resilientservice.http.exception.DeadlineExceededException;
+import com.habeebcycle.demo.resilientservice.router.UpstreamRoute;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Latency and payload metrics of the proxy path, tagged by route template ({@code /posts/{id}}, never the raw path)
+ * so cardinality stays bounded by the number of routes, statuses and circuit breaker states.
+ * <ul>
+ *     <li>{@code proxy.requests}: time from routing until the response is ready to write (its body in hand, or only
+ *     its headers when streaming), by the status the caller gets and circuit breaker state</li>
+ *     <li>{@code proxy.upstream.requests}: time of each upstream attempt, including hedges, by upstream status</li>
+ *     <li>{@code proxy.upstream.attempts}: upstream calls made per request, retries and hedges included</li>
+ *     <li>{@code proxy.upstream.response.size}: upstream payload size in bytes</li>
+ *     <li>{@code proxy.deadline.exceeded}: requests failed because their deadline passed, kept apart from upstream
+ *     failures</li>
+ * </ul>
+ * Timers publish percentile histograms (fixed, HdrHistogram-style log-linear buckets) bounded to the expected latency
+ * range, with the request id as exemplar. Meters are cached per tag combination, so recording is a map lookup and an
+ * atomic bucket update.
+ */
+@Component
+public class ProxyMetrics {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProxyMetrics.class);
+    private static final int NO_STATUS = 0;
+    private static final String CLIENT_ERROR = "CLIENT_ERROR";
+
+    private final MeterRegistry meterRegistry;
+    private final boolean percentileHistogram;
+    private final Duration minimumExpectedLatency;
+    private final Duration maximumExpectedLatency;
+    private final Map<RequestKey, Timer> requestTimers = new ConcurrentHashMap<>();
+    private final Map<UpstreamKey, Timer> upstreamTimers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> attemptSummaries = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> sizeSummaries = new ConcurrentHashMap<>();
+    private final Map<String, Counter> deadlineCounters = new ConcurrentHashMap<>();
+
+    public ProxyMetrics(final MeterRegistry meterRegistry, final MetricsProperties properties) {
+        this.meterRegistry = meterRegistry;
+        this.percentileHistogram = properties.percentileHistogram();
+        this.minimumExpectedLatency = properties.minimumExpectedLatency();
+        this.maximumExpectedLatency = properties.maximumExpectedLatency();
+    }
+
+    /**
+     * Times every subscription to {@code response}, tagging it with the state of the route's circuit breaker when it
+     * completes and the status the caller gets: {@code status} of the value, 200 when there is none, or that of the error.
+     */
+    public <T> Mono<T> timeRequest(final UpstreamRoute route, final String requestId, final Mono<T> response,
+                                   final ToIntFunction<? super T> status) {
+        return Mono.defer(() -> {
+            final long start = System.nanoTime();
+            return response
+                    .doOnSuccess(value -> recordRequest(route, value == null ? 200 : status.applyAsInt(value), false,
+                            requestId, System.nanoTime() - start))
+                    .doOnError(throwable -> recordRequest(route, responseStatus(throwable),
+                            throwable instanceof DeadlineExceededException, requestId, System.nanoTime() - start));
+        });
+    }
+
+    /**
+     * Times every subscription to an upstream exchange and records its payload size when known from the headers or
+     * an aggregated String body; streamed bodies without a Content-Length are measured by the caller.
+     */
+    public <T extends ResponseEntity<?>> Mono<T> timeUpstream(final String route, final Mono<T> exchange) {
+        return Mono.defer(() -> {
+            final long start = System.nanoTime();
+            return exchange
+                    .doOnNext(entity -> {
+                        upstreamTimer(route, entity.getStatusCode().value()).record(System.nanoTime() - start, NANOSECONDS);
+                        final long contentLength = entity.getHeaders().getContentLength();
+                        if (contentLength >= 0) {
+                            recordResponseSize(route, contentLength);
+                        } else if (entity.getBody() instanceof String body) {
+                            recordResponseSize(route, body.length());
+                        }
+                    })
+                    .doOnError(throwable -> upstreamTimer(route, upstreamStatus(throwable)).record(System.nanoTime() - start, NANOSECONDS));
+        });
+    }
+
+    public void recordAttempts(final String route, final int attempts) {
+        attemptSummaries.computeIfAbsent(route, key -> DistributionSummary.builder("proxy.upstream.attempts")
+                        .tag("route", key)
+                        .serviceLevelObjectives(1, 2, 3, 4, 5)
+                        .register(meterRegistry))
+                .record(attempts);
+    }
+
+    public void recordResponseSize(final String route, final long bytes) {
+        sizeSummaries.computeIfAbsent(route, key -> DistributionSummary.builder("proxy.upstream.response.size")
+                        .tag("route", key)
+                        .baseUnit("bytes")
+                        .publishPercentileHistogram(percentileHistogram)
+                        .minimumExpectedValue(64.0)
+                        .maximumExpectedValue(64.0 * 1024 * 1024)
+                        .register(meterRegistry))
+                .record(bytes);
+    }
+
+    /**
+     * Never throws: it runs in the signal callbacks of the response, where a failure would replace the response the
+     * caller gets with an error.
+     */
+    private void recordRequest(final UpstreamRoute route, final int status, final boolean deadlineExceeded,
+                               final String requestId, final long nanos) {
+        RequestIdExemplarSampler.set(requestId);
+        try {
+            final CircuitBreaker.State state = route.circuitBreaker().getState();
+            requestTimers.computeIfAbsent(new RequestKey(route.path(), status, state), key -> timer("proxy.requests")
+                            .tag("route", key.route())
+                            .tag("status", String.valueOf(key.status()))
+                            .tag("circuitbreaker.state", key.state().name())
+                            .register(meterRegistry))
+                    .record(nanos, NANOSECONDS);
+            if (deadlineExceeded) {
+                deadlineCounters.computeIfAbsent(route.path(), key -> Counter.builder("proxy.deadline.exceeded")
+                        .tag("route", key)
+                        .register(meterRegistry)).increment();
+            }
+        } catch (RuntimeException e) {
+            LOG.debug("Could not record request to [{}]: [{}]", route.path(), e.toString());
+        } finally {
+            RequestIdExemplarSampler.clear();
+        }
+    }
+
+    private Timer upstreamTimer(final String route, final int status) {
+        return upstreamTimers.computeIfAbsent(new UpstreamKey(route, status), key -> timer("proxy.upstream.requests")
+                .tag("route", key.route())
+                .tag("upstream.status", key.status() == NO_STATUS ? CLIENT_ERROR : String.valueOf(key.status()))
+                .register(meterRegistry));
+    }
+
+    private Timer.Builder timer(final String name) {
+        return Timer.builder(name)
+                .publishPercentileHistogram(percentileHistogram)
+                .minimumExpectedValue(minimumExpectedLatency)
+                .maximumExpectedValue(maximumExpectedLatency);
+    }
+
+    private static int upstreamStatus(final Throwable throwable) {
+        if (throwable instanceof ResponseStatusException exception) {
+            return exception.getStatusCode().value();
+        }
+        if (throwable instanceof WebClientResponseException exception) {
+            return exception.getStatusCode().value();
+        }
+        return NO_STATUS; // No response: connect or read failure, timeout
+    }
+
+    private static int responseStatus(final Throwable throwable) {
+        final int status = upstreamStatus(throwable);
+        return status == NO_STATUS ? 500 : status; // What GlobalErrorHandler renders for unmapped errors
+    }
+
+    private record RequestKey(String route, int status, CircuitBreaker.State state) {
+    }
+
+    private record UpstreamKey(String route, int status) {
+    }
+}
@@ -0,0 +1,70 @@
+package com.habeebcycle.demo.resilientservice.metrics;
+
+import io.prometheus.client.exemplars.Exemplar;
+import io.prometheus.client.exemplars.ExemplarSampler;
+import org.springframework.stereotype.Component;
+
+/**
+ * Samples the id of the request being recorded as the exemplar of Prometheus histogram buckets, so a slow bucket
+ * links back to a request in the logs. There is no tracer: {@link ProxyMetrics} sets the id on the recording thread
+ * for the duration of a single {@code record} call.
+ * <p>
+ * The id goes in a single {@code trace_id} label, and only when it is short ASCII: Prometheus rejects exemplars whose
+ * labels add up to more than 128 characters, and a rejected exemplar must never fail the request being recorded. Like
+ * the default sampler, a bucket's exemplar is replaced at most every 7 seconds.
+ */
+@Component
+public class RequestIdExemplarSampler implements ExemplarSampler {
+
+    private static final int MAX_ID_LENGTH = 64;
+    private static final String TRACE_ID = "trace_id";
+    private static final long MIN_RETENTION_MILLIS = 7109;
+    private static final ThreadLocal<String> REQUEST_ID = new ThreadLocal<>();
+
+    static void set(final String requestId) {
+        REQUEST_ID.set(requestId);
+    }
+
+    static void clear() {
+        REQUEST_ID.set(null);
+    }
+
+    @Override
+    public Exemplar sample(final double increment, final Exemplar previous) {
+        return doSample(increment, previous);
+    }
+
+    @Override
+    public Exemplar sample(final double value, final double bucketFrom, final double bucketTo, final Exemplar previous) {
+        return doSample(value, previous);
+    }
+
+    private Exemplar doSample(final double value, final Exemplar previous) {
+        final String requestId = REQUEST_ID.get();
+        if (!isValid(requestId)) {
+            return null;
+        }
+        final long now = System.currentTimeMillis();
+        if (previous != null && previous.getTimestampMs() != null && now - previous.getTimestampMs() <= MIN_RETENTION_MILLIS) {
+            return null; // Keeps the previous one
+        }
+        try {
+            return new Exemplar(value, now, TRACE_ID, requestId);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static boolean isValid(final String requestId) {
+        if (requestId == null || requestId.isEmpty() || requestId.length() > MAX_ID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < requestId.length(); i++) {
+            final char c = requestId.charAt(i);
+            if (c < 0x21 || c > 0x7e) { // Printable ASCII, no whitespace
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,190 @@
+package com.habeebcycle.demo.resilientservice.resilience;
+
+import com.habeebcycle.demo.resilientservice.config.LimiterProperties;
+import com.habeebcycle.demo.resilientservice.http.exception.ConcurrencyLimitExceededException;
+import com.habeebcycle.demo.resilientservice.http.exception.DeadlineExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Bulkhead whose size follows the upstream latency, using a gradient algorithm in the spirit of TCP Vegas. Every
+ * route has its own limit and latency baseline, since routes differ in cost, e.g. a list and a single item.
+ * <p>
+ * A long-term average RTT stands in for the no-load latency. Every successful call compares it with the observed
+ * RTT: while the two agree the limit grows by roughly {@code sqrt(limit)}, and when calls slow down (queueing
+ * upstream) the limit shrinks in proportion. Timeouts, including a WebClient read timeout or a passed deadline, cut
+ * the limit multiplicatively. Calls over the limit are rejected immediately with
+ * {@link ConcurrencyLimitExceededException}.
+ */
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double TIMEOUT_BACKOFF_RATIO = 0.9;
+
+    private final boolean enabled;
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double rttTolerance;
+    private final double smoothing;
+    private final int longWindow;
+    private final Duration retryAfter;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Limit> limits = new ConcurrentHashMap<>();
+
+    public AdaptiveConcurrencyLimiter(final LimiterProperties properties, final MeterRegistry meterRegistry) {
+        this.enabled = properties.enabled();
+        this.initialLimit = properties.initialLimit();
+        this.minLimit = properties.minLimit();
+        this.maxLimit = properties.maxLimit();
+        this.rttTolerance = properties.rttTolerance();
+        this.smoothing = properties.smoothing();
+        this.longWindow = properties.longWindow();
+        this.retryAfter = properties.retryAfter();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Operator for {@link Mono#transformDeferred} holding a permit of {@code route}'s limit for the lifetime of every
+     * subscription, so each retry attempt takes its own permit.
+     */
+    public <T> Function<Mono<T>, Mono<T>> of(final String route) {
+        if (!enabled) {
+            return Function.identity();
+        }
+        final Limit limit = limits.computeIfAbsent(route, Limit::new);
+        return source -> Mono.defer(() -> {
+            if (!limit.tryAcquire()) {
+                limit.rejections.increment();
+                return Mono.error(new ConcurrencyLimitExceededException(retryAfter));
+            }
+            final long start = System.nanoTime();
+            return source
+                    .doOnSuccess(value -> limit.onSample(System.nanoTime() - start))
+                    .doOnError(AdaptiveConcurrencyLimiter::isTimeout, throwable -> limit.onTimeout())
+                    .doFinally(signal -> limit.inFlight.decrementAndGet());
+        });
+    }
+
+    public int getLimit(final String route) {
+        final Limit limit = limits.get(route);
+        return limit == null ? initialLimit : (int) limit.state.get().limit();
+    }
+
+    public int getInFlight(final String route) {
+        final Limit limit = limits.get(route);
+        return limit == null ? 0 : limit.inFlight.get();
+    }
+
+    /**
+     * WebClient wraps read and response timeouts, e.g. in a {@code WebClientRequestException}, so the whole cause
+     * chain is searched.
+     */
+    private static boolean isTimeout(final Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof io.netty.handler.timeout.TimeoutException || cause instanceof TimeoutException
+                    || cause instanceof DeadlineExceededException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Limit and RTT estimates of one route, swapped together as a single snapshot so updates need no lock.
+     */
+    private record State(double limit, double shortRttNanos, double longRttNanos) {
+    }
+
+    private final class Limit {
+        private final String route;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicReference<State> state = new AtomicReference<>(new State(initialLimit, 0, 0));
+        private final Counter rejections;
+
+        private Limit(final String route) {
+            this.route = route;
+            this.rejections = Counter.builder("proxy.limiter.rejections").tag("route", route).register(meterRegistry);
+
+            Gauge.builder("proxy.limiter.limit", state, s -> s.get().limit()).tag("route", route).register(meterRegistry);
+            Gauge.builder("proxy.limiter.in.flight", inFlight, AtomicInteger::get).tag("route", route).register(meterRegistry);
+            Gauge.builder("proxy.limiter.rtt.short", state, s -> s.get().shortRttNanos() / 1_000_000).tag("route", route)
+                    .baseUnit("milliseconds").register(meterRegistry);
+            Gauge.builder("proxy.limiter.rtt.long", state, s -> s.get().longRttNanos() / 1_000_000).tag("route", route)
+                    .baseUnit("milliseconds").register(meterRegistry);
+        }
+
+        private boolean tryAcquire() {
+            final int limit = (int) state.get().limit();
+            while (true) {
+                final int current = inFlight.get();
+                if (current >= limit) {
+                    return false;
+                }
+                if (inFlight.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void onSample(final long rttNanos) {
+            final int inFlightNow = inFlight.get();
+            State current;
+            State next;
+            do {
+                current = state.get();
+                double longRttNanos = current.longRttNanos() == 0 ? rttNanos
+                        : current.longRttNanos() + (rttNanos - current.longRttNanos()) / longWindow;
+                // The baseline has drifted far above current latency, e.g. after a long slow period: let it recover faster
+                if (longRttNanos / rttNanos > 2) {
+                    longRttNanos *= 0.95;
+                }
+                double limit = current.limit();
+                // Application limited: no evidence that a bigger limit is usable, so don't grow it
+                if (inFlightNow >= limit / 2) {
+                    final double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, rttTolerance * longRttNanos / rttNanos));
+                    final double target = limit * gradient + Math.sqrt(limit);
+                    limit = clamp(limit * (1 - smoothing) + target * smoothing);
+                }
+                next = new State(limit, rttNanos, longRttNanos);
+            } while (!state.compareAndSet(current, next));
+            logChange(current, next);
+        }
+
+        private void onTimeout() {
+            State current;
+            State next;
+            do {
+                current = state.get();
+                next = new State(clamp(current.limit() * TIMEOUT_BACKOFF_RATIO), current.shortRttNanos(), current.longRttNanos());
+            } while (!state.compareAndSet(current, next));
+            logChange(current, next);
+        }
+
+        private double clamp(final double limit) {
+            return Math.max(minLimit, Math.min(maxLimit, limit));
+        }
+
+        private void logChange(final State previous, final State current) {
+            if ((int) previous.limit() != (int) current.limit() && LOG.isDebugEnabled()) {
+                LOG.debug("Adaptive concurrency limit of [{}] changed from [{}] to [{}] (short RTT [{}] ns, long RTT [{}] ns)",
+                        route, (int) previous.limit(), (int) current.limit(), (long) current.shortRttNanos(), (long) current.longRttNanos());
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.habeebcycle.demo.resilientservice.resilience;
+
+import com.habeebcycle.demo.resilientservice.config.RetryProperties;
+import com.habeebcycle.demo.resilientservice.config.RetryProperties.Jitter;
+import io.github.resilience4j.retry.Retry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Replacement for resilience4j's {@code RetryOperator} that keeps the retry instance's attempts, predicate, events and
+ * metrics (through {@link Retry#asyncContext()}) but adds three guards against retry storms:
+ * <ul>
+ *     <li>jitter: the configured backoff is randomised ({@code FULL}: uniform in {@code [0, backoff]};
+ *     {@code DECORRELATED}: uniform in {@code [base, 3 * previous delay]}), capped at {@code maxBackoff}</li>
+ *     <li>budget: every retry spends a token from a bucket per retry instance, refilled by
+ *     {@code budget.percent / 100} of a token per successful call, so retries stay a bounded share of the
+ *     successful traffic during a brownout</li>
+ *     <li>deadline: an attempt whose backoff would not end before the {@link Deadline} in the Reactor context is
+ *     skipped</li>
+ * </ul>
+ * A suppressed retry fails with the last error and is counted in {@code proxy.retry.suppressed}.
+ */
+@Component
+public class BudgetedRetry {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BudgetedRetry.class);
+    private static final long TOKEN = 1000;
+    private static final String METRIC_SUPPRESSED = "proxy.retry.suppressed";
+
+    private final Jitter jitter;
+    private final long maxBackoffMillis;
+    private final boolean budgetEnabled;
+    private final long depositPerSuccess;
+    private final long maxTokens;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Budget> budgets = new ConcurrentHashMap<>();
+
+    public BudgetedRetry(final RetryProperties properties, final MeterRegistry meterRegistry) {
+        this.jitter = properties.jitter();
+        this.maxBackoffMillis = properties.maxBackoff().toMillis();
+        this.budgetEnabled = properties.budget().enabled();
+        this.depositPerSuccess = Math.round(TOKEN * properties.budget().percent() / 100);
+        this.maxTokens = properties.budget().maxTokens() * TOKEN;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Operator for {@link Mono#transformDeferred}; every subscription gets its own attempt count and backoff.
+     */
+    public <T> Function<Mono<T>, Mono<T>> of(final Retry retry) {
+        final Budget budget = budgets.computeIfAbsent(retry.getName(), Budget::new);
+        return source -> Mono.deferContextual(contextView -> {
+            final Retry.AsyncContext<T> context = retry.asyncContext();
+            final Deadline deadline = contextView.getOrDefault(Deadline.class, null);
+            final Backoff backoffState = new Backoff();
+
+            return source
+                    .doOnSuccess(value -> {
+                        context.onComplete();
+                        budget.deposit();
+                    })
+                    .retryWhen(reactor.util.retry.Retry.from(failures -> failures.concatMap(failure -> {
+                        final Throwable throwable = failure.failure();
+                        final long backoff = context.onError(throwable);
+                        if (backoff < 0) {
+                            return Mono.error(throwable); // Not retryable, or attempts exhausted
+                        }
+                        final long delay = backoffState.next(backoff);
+                        if (deadline != null && deadline.remaining().toMillis() <= delay) {
+                            LOG.debug("Retry [{}] skipped: backoff of [{}] ms would outlive the deadline", retry.getName(), delay);
+                            budget.suppressedByDeadline.increment();
+                            return Mono.error(throwable);
+                        }
+                        if (!budget.tryWithdraw()) {
+                            LOG.debug("Retry [{}] suppressed: retry budget is exhausted", retry.getName());
+                            budget.suppressedByBudget.increment();
+                            return Mono.error(throwable);
+                        }
+                        return Mono.delay(Duration.ofMillis(delay));
+                    })));
+        });
+    }
+
+    /**
+     * Backoff of one subscription; only touched from the serialised retry companion.
+     */
+    private final class Backoff {
+        private long base = -1;
+        private long previous;
+
+        private long next(final long backoff) {
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (base < 0) {
+                base = backoff; // First backoff of the interval function, i.e. the configured waitDuration
+                previous = backoff;
+            }
+            final long delay = switch (jitter) {
+                case NONE -> backoff;
+                case FULL -> random.nextLong(backoff + 1);
+                case DECORRELATED -> random.nextLong(base, Math.max(base, previous * 3) + 1);
+            };
+            previous = Math.min(maxBackoffMillis, delay);
+            return previous;
+        }
+    }
+
+    private final class Budget {
+        private final AtomicLong tokens = new AtomicLong(maxTokens); // Starts full so a cold start can still retry
+        private final Counter suppressedByBudget;
+        private final Counter suppressedByDeadline;
+
+        private Budget(final String retryName) {
+            this.suppressedByBudget = Counter.builder(METRIC_SUPPRESSED).tag("retry", retryName).tag("reason", "budget").register(meterRegistry);
+            this.suppressedByDeadline = Counter.builder(METRIC_SUPPRESSED).tag("retry", retryName).tag("reason", "deadline").register(meterRegistry);
+            Gauge.builder("proxy.retry.budget", tokens, t -> (double) t.get() / TOKEN).tag("retry", retryName).register(meterRegistry);
+        }
+
+        private void deposit() {
+            if (budgetEnabled && tokens.get() < maxTokens) {
+                tokens.getAndUpdate(current -> Math.min(maxTokens, current + depositPerSuccess));
+            }
+        }
+
+        private boolean tryWithdraw() {
+            if (!budgetEnabled) {
+                return true;
+            }
+            while (true) {
+                final long current = tokens.get();
+                if (current < TOKEN) {
+                    return false;
+                }
+                if (tokens.compareAndSet(current, current - TOKEN)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.habeebcycle.demo.resilientservice.resilience;
+
+import com.habeebcycle.demo.resilientservice.http.exception.DeadlineExceededException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Point in time by which the caller wants an answer, carried in the Reactor context under {@code Deadline.class}.
+ * It is read from the {@value #HEADER} request header (milliseconds) or the route's timeout, and the remaining
+ * budget is sent upstream in the same header.
+ */
+public record Deadline(long expiresAtNanos) {
+
+    public static final String HEADER = "X-Request-Timeout";
+
+    public static Deadline after(final Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    /**
+     * Fails {@code source} with {@link DeadlineExceededException}, cancelling it, once the deadline in the subscriber
+     * context passes; evaluated per subscription, so every retry or hedge only gets what is left.
+     */
+    public static <T> Mono<T> enforce(final Mono<T> source) {
+        return Mono.deferContextual(context -> {
+            final Deadline deadline = context.getOrDefault(Deadline.class, null);
+            if (deadline == null) {
+                return source;
+            }
+            if (deadline.isExpired()) {
+                return Mono.error(new DeadlineExceededException());
+            }
+            return source.timeout(deadline.remaining(), Mono.error(DeadlineExceededException::new));
+        });
+    }
+
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, expiresAtNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return expiresAtNanos - System.nanoTime() <= 0;
+    }
+}
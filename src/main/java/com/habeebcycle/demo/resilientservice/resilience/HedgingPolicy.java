@@ -0,0 +1,166 @@
+package com.habeebcycle.demo.resilientservice.resilience;
+
+import com.habeebcycle.demo.resilientservice.config.HedgingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Hedging for idempotent upstream GETs: when an attempt has not answered within the configured percentile of the
+ * route's recent latencies, a second attempt is sent and the first one to produce a value wins; the other one is
+ * cancelled. The request only fails once both attempts have, with the last error; a primary failing before the hedge
+ * is due fails at once, without a hedge. Every route keeps its own latency window, so slow list calls never set the
+ * delay of single-item calls.
+ * <p>
+ * Each primary call deposits {@code maxExtraLoadPercent / 100} of a token into a bounded bucket and each hedge
+ * spends a whole token, so hedges never add more than that share of extra upstream load. Every attempt runs through
+ * its own circuit-breaker permit: a cancelled loser releases its permit without being recorded.
+ */
+@Component
+public class HedgingPolicy {
+
+    private static final long TOKEN = 1000;
+    private static final long MAX_TOKENS = 10 * TOKEN;
+    private static final String METRIC_HEDGES = "proxy.hedging.hedges";
+
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long depositPerCall;
+    private final int window;
+    private final int minSamples;
+    private final int refreshEvery;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+    private final AtomicLong tokens = new AtomicLong();
+
+    public HedgingPolicy(final HedgingProperties properties, final MeterRegistry meterRegistry) {
+        this.enabled = properties.enabled();
+        this.percentile = properties.percentile();
+        this.minDelayNanos = properties.minDelay().toNanos();
+        this.depositPerCall = Math.round(TOKEN * properties.maxExtraLoadPercent() / 100);
+        this.window = properties.window();
+        this.minSamples = Math.min(properties.minSamples(), window);
+        this.refreshEvery = Math.max(1, window / 10);
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("proxy.hedging.budget", tokens, t -> (double) t.get() / TOKEN).register(meterRegistry);
+    }
+
+    /**
+     * Operator for {@link Mono#transformDeferred} racing every subscription to a cold, idempotent, per-attempt
+     * decorated upstream call of {@code route} against a delayed second subscription to it.
+     */
+    public <T> Function<Mono<T>, Mono<T>> of(final String route) {
+        if (!enabled) {
+            return Function.identity();
+        }
+        final LatencyWindow latencies = windows.computeIfAbsent(route, LatencyWindow::new);
+        return attempt -> Mono.defer(() -> {
+            deposit();
+            final long delay = latencies.thresholdNanos;
+            if (delay < 0) {
+                return latencies.timed(attempt); // Not enough latency samples yet
+            }
+
+            final AtomicReference<Throwable> lastError = new AtomicReference<>();
+            final Sinks.Empty<Void> primaryFailed = Sinks.empty();
+            final Mono<T> primary = latencies.timed(attempt)
+                    .doOnError(throwable -> {
+                        lastError.set(throwable);
+                        primaryFailed.tryEmitEmpty();
+                    });
+            // Not sent once the primary has failed; once it is, the primary's outcome no longer cancels it
+            final Mono<Long> due = Mono.firstWithSignal(Mono.delay(Duration.ofNanos(Math.max(minDelayNanos, delay))),
+                    primaryFailed.asMono().then(Mono.empty()));
+            final Mono<T> hedged = due
+                    .flatMap(tick -> {
+                        if (!tryWithdraw()) {
+                            latencies.hedgesSuppressed.increment();
+                            return Mono.<T>empty();
+                        }
+                        latencies.hedgesSent.increment();
+                        return latencies.timed(attempt)
+                                .doOnNext(value -> latencies.hedgesWon.increment())
+                                .doOnError(lastError::set);
+                    });
+            // Errors only once neither attempt can produce a value any more; that error says nothing about the cause.
+            // The hedge is subscribed first so its timer and failure watch are armed before the primary can fail.
+            return Mono.firstWithValue(hedged, primary)
+                    .onErrorMap(throwable -> lastError.get() != null ? lastError.get() : throwable);
+        });
+    }
+
+    private void deposit() {
+        tokens.getAndUpdate(current -> Math.min(MAX_TOKENS, current + depositPerCall));
+    }
+
+    private boolean tryWithdraw() {
+        while (true) {
+            final long current = tokens.get();
+            if (current < TOKEN) {
+                return false;
+            }
+            if (tokens.compareAndSet(current, current - TOKEN)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Recent successful latencies of one route and the hedge delay derived from them.
+     */
+    private final class LatencyWindow {
+        private final AtomicLongArray samples = new AtomicLongArray(window);
+        private final AtomicLong sampleCount = new AtomicLong();
+        private final Counter hedgesSent;
+        private final Counter hedgesSuppressed;
+        private final Counter hedgesWon;
+        private volatile long thresholdNanos = -1;
+
+        private LatencyWindow(final String route) {
+            this.hedgesSent = Counter.builder(METRIC_HEDGES).tag("route", route).tag("result", "sent").register(meterRegistry);
+            this.hedgesSuppressed = Counter.builder(METRIC_HEDGES).tag("route", route).tag("result", "suppressed").register(meterRegistry);
+            this.hedgesWon = Counter.builder(METRIC_HEDGES).tag("route", route).tag("result", "won").register(meterRegistry);
+
+            Gauge.builder("proxy.hedging.delay", this, latencies -> Math.max(0, latencies.thresholdNanos) / 1_000_000.0)
+                    .tag("route", route).baseUnit("milliseconds").register(meterRegistry);
+        }
+
+        private <T> Mono<T> timed(final Mono<T> attempt) {
+            return Mono.defer(() -> {
+                final long start = System.nanoTime();
+                return attempt.doOnNext(value -> record(System.nanoTime() - start));
+            });
+        }
+
+        private void record(final long nanos) {
+            final long count = sampleCount.getAndIncrement();
+            samples.set((int) (count % samples.length()), nanos);
+            if (count + 1 >= minSamples && (count + 1) % refreshEvery == 0) {
+                refreshThreshold((int) Math.min(count + 1, samples.length()));
+            }
+        }
+
+        private void refreshThreshold(final int size) {
+            final long[] sorted = new long[size];
+            for (int i = 0; i < size; i++) {
+                sorted[i] = samples.get(i);
+            }
+            Arrays.sort(sorted);
+            thresholdNanos = sorted[(int) Math.min(size - 1, Math.ceil(percentile * size) - 1)];
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.habeebcycle.demo.resilientservice.resilience;
+
+import com.habeebcycle.demo.resilientservice.config.RateLimitProperties;
+import com.habeebcycle.demo.resilientservice.http.exception.RateLimitExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.HandlerFilterFunction;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Inbound rate limiting for the {@code /services} routes: a per-client limit, then an optional global one.
+ * <p>
+ * Each limit is a GCRA (generic cell rate algorithm) bucket: a single theoretical arrival time, advanced by one
+ * emission interval per admitted request with a compare-and-set, which allows a burst of up to
+ * {@code burst} requests and {@code rate} per second after that. A request therefore costs a map read and a CAS per
+ * limit, without locks or allocation; client buckets live in a {@link ConcurrentHashMap} and are swept in the
+ * background once idle. A rejected request fails with {@link RateLimitExceededException}, which the global error
+ * handler renders as 429; a request rejected by the global limit has still used its client's token.
+ * <p>
+ * Clients are told apart by the API key header, which is not validated here, or by the remote address; behind a
+ * proxy, {@code server.forward-headers-strategy} makes that the original caller's.
+ */
+@Component
+public class InboundRateLimiter implements HandlerFilterFunction<ServerResponse, ServerResponse> {
+
+    private static final Object OVERFLOW = new Object();
+    private static final Object UNKNOWN = new Object();
+
+    private final RateLimitProperties properties;
+    private final long clientInterval;
+    private final long clientTolerance;
+    private final long globalInterval;
+    private final long globalTolerance;
+    private final AtomicLong global = new AtomicLong(Long.MIN_VALUE);
+    private final Map<Object, AtomicLong> clients = new ConcurrentHashMap<>();
+    private final Counter rejectedByClient;
+    private final Counter rejectedByGlobal;
+
+    private Disposable eviction;
+
+    public InboundRateLimiter(final RateLimitProperties properties, final MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.clientInterval = Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / properties.clientRate()));
+        this.clientTolerance = clientInterval * properties.clientBurst();
+        this.globalInterval = properties.globalRate() > 0 ? Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / properties.globalRate())) : 0;
+        this.globalTolerance = globalInterval * properties.globalBurst();
+        this.rejectedByClient = rejected(meterRegistry, "client");
+        this.rejectedByGlobal = rejected(meterRegistry, "global");
+
+        Gauge.builder("proxy.ratelimit.clients", clients, Map::size).register(meterRegistry);
+    }
+
+    private static Counter rejected(final MeterRegistry meterRegistry, final String limit) {
+        return Counter.builder("proxy.ratelimit.rejected").tag("limit", limit).register(meterRegistry);
+    }
+
+    public boolean enabled() {
+        return properties.enabled();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (properties.enabled()) {
+            final long idle = properties.idleTimeout().toNanos();
+            eviction = Schedulers.parallel().schedulePeriodically(this::evictIdle, idle, idle, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (eviction != null) {
+            eviction.dispose();
+        }
+    }
+
+    @Override
+    public @NonNull Mono<ServerResponse> filter(@NonNull final ServerRequest request, @NonNull final HandlerFunction<ServerResponse> next) {
+        final long now = System.nanoTime();
+        final long clientWait = acquire(bucket(client(request)), now, clientInterval, clientTolerance);
+        if (clientWait > 0) {
+            rejectedByClient.increment();
+            return Mono.error(new RateLimitExceededException(properties.clientBurst(), Duration.ofNanos(clientWait)));
+        }
+        if (globalInterval > 0) {
+            final long globalWait = acquire(global, now, globalInterval, globalTolerance);
+            if (globalWait > 0) {
+                rejectedByGlobal.increment();
+                return Mono.error(new RateLimitExceededException(properties.globalBurst(), Duration.ofNanos(globalWait)));
+            }
+        }
+        return next.handle(request);
+    }
+
+    private Object client(final ServerRequest request) {
+        final String apiKey = request.headers().firstHeader(properties.clientHeader());
+        if (apiKey != null) {
+            return apiKey; // Never equal to an InetAddress, so keys and addresses have separate buckets
+        }
+        final InetSocketAddress address = request.remoteAddress().orElse(null);
+        return address == null || address.getAddress() == null ? UNKNOWN : address.getAddress();
+    }
+
+    private AtomicLong bucket(final Object client) {
+        final AtomicLong bucket = clients.get(client);
+        if (bucket != null) {
+            return bucket;
+        }
+        final Object key = clients.size() < properties.maxClients() ? client : OVERFLOW;
+        final AtomicLong created = new AtomicLong(Long.MIN_VALUE);
+        final AtomicLong existing = clients.putIfAbsent(key, created);
+        return existing != null ? existing : created;
+    }
+
+    /**
+     * Admits a request at {@code now} if the bucket allows it: returns 0 and advances the theoretical arrival time,
+     * or returns how long until it would be admitted.
+     */
+    static long acquire(final AtomicLong arrival, final long now, final long interval, final long tolerance) {
+        while (true) {
+            final long current = arrival.get();
+            final long next = Math.max(current, now) + interval;
+            final long excess = next - now - tolerance;
+            if (excess > 0) {
+                return excess;
+            }
+            if (arrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Forgets the clients whose bucket has been full for at least the idle timeout.
+     */
+    void evictIdle() {
+        final long cutoff = System.nanoTime() - properties.idleTimeout().toNanos();
+        clients.values().removeIf(bucket -> bucket.get() <= cutoff);
+    }
+}
@@ -0,0 +1,86 @@
+package com.habeebcycle.demo.resilientservice.resilience;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free multi-producer multi-consumer queue (Dmitry Vyukov's array-based design).
+ * <p>
+ * Every slot carries a sequence number telling producers and consumers whose turn it is, so a thread only ever
+ * contends on the position counter it advances. {@link #offer} never blocks: it returns {@code false} when the
+ * buffer is full.
+ */
+final class MpmcRingBuffer<E> {
+
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLong enqueuePosition = new AtomicLong();
+    private final AtomicLong dequeuePosition = new AtomicLong();
+
+    MpmcRingBuffer(final int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Ring buffer capacity must be at least 2 but was " + capacity);
+        }
+        final int size = Integer.highestOneBit(capacity - 1) << 1; // Next power of two, so positions map with a mask
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        this.elements = new AtomicReferenceArray<>(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    boolean offer(final E element) {
+        long position = enqueuePosition.get();
+        while (true) {
+            final int index = (int) (position & mask);
+            final long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (enqueuePosition.compareAndSet(position, position + 1)) {
+                    elements.setPlain(index, element);
+                    sequences.setRelease(index, position + 1); // Publishes the element to consumers
+                    return true;
+                }
+                position = enqueuePosition.get();
+            } else if (difference < 0) {
+                return false; // The slot still holds an element from the previous lap: full
+            } else {
+                position = enqueuePosition.get();
+            }
+        }
+    }
+
+    E poll() {
+        long position = dequeuePosition.get();
+        while (true) {
+            final int index = (int) (position & mask);
+            final long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (dequeuePosition.compareAndSet(position, position + 1)) {
+                    final E element = elements.getPlain(index);
+                    elements.setPlain(index, null);
+                    sequences.setRelease(index, position + mask + 1); // Hands the slot to the next lap's producer
+                    return element;
+                }
+                position = dequeuePosition.get();
+            } else if (difference < 0) {
+                return null; // Nothing published in this slot yet: empty
+            } else {
+                position = dequeuePosition.get();
+            }
+        }
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Approximate number of queued elements; exact only when no thread is offering or polling.
+     */
+    int size() {
+        return (int) Math.max(0, Math.min(capacity(), enqueuePosition.get() - dequeuePosition.get()));
+    }
+}
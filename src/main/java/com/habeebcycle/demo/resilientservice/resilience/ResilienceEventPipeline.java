@@ -0,0 +1,207 @@
+package com.habeebcycle.demo.resilientservice.resilience;
+
+import com.habeebcycle.demo.resilientservice.config.EventsProperties;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.circuitbreaker.event.CircuitBreakerEvent;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.github.resilience4j.retry.event.RetryEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static io.github.resilience4j.circuitbreaker.event.CircuitBreakerEvent.Type.RESET;
+import static io.github.resilience4j.circuitbreaker.event.CircuitBreakerEvent.Type.STATE_TRANSITION;
+
+/**
+ * Logs circuit breaker and retry events off the calling thread.
+ * <p>
+ * Event consumers only offer the event to a bounded {@link MpmcRingBuffer}; when it is full the event is dropped and
+ * counted. A daemon thread drains the buffer, logs state transitions and resets one by one, and aggregates everything
+ * else into one summary line per instance and interval. While the buffer is empty it parks until the next summary,
+ * and the first event offered after that wakes it. Every circuit breaker and retry in the registries is covered,
+ * including those added or replaced after startup; a replaced or removed instance is not kept reachable.
+ */
+@Component
+public class ResilienceEventPipeline {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResilienceEventPipeline.class);
+    private static final String CIRCUIT_BREAKER = "Circuit breaker";
+    private static final String RETRY = "Retry";
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final RetryRegistry retryRegistry;
+    private final MpmcRingBuffer<Object> events;
+    private final Duration summaryInterval;
+    private final Counter dropped;
+    private final AtomicLong droppedInInterval = new AtomicLong();
+    private final Set<Object> subscribed = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+    private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    private final AtomicBoolean idle = new AtomicBoolean();
+
+    // Only touched by the consumer thread
+    private final Map<Instance, Map<String, Long>> counts = new TreeMap<>();
+
+    private volatile boolean running;
+    private volatile Thread consumer;
+
+    public ResilienceEventPipeline(final CircuitBreakerRegistry circuitBreakerRegistry, final RetryRegistry retryRegistry,
+                                   final EventsProperties properties, final MeterRegistry meterRegistry) {
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.retryRegistry = retryRegistry;
+        this.events = new MpmcRingBuffer<>(properties.capacity());
+        this.summaryInterval = properties.summaryInterval();
+        this.dropped = Counter.builder("proxy.resilience.events.dropped").register(meterRegistry);
+
+        Gauge.builder("proxy.resilience.events.queued", events, MpmcRingBuffer::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        subscribeAll();
+        running = true;
+        consumer = new Thread(this::consume, "resilience-events");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+            consumer.join(summaryInterval.toMillis());
+        }
+    }
+
+    void subscribeAll() {
+        // Listen for new entries before walking the existing ones, so none is missed; subscribe() skips duplicates
+        circuitBreakerRegistry.getEventPublisher()
+                .onEntryAdded(event -> subscribe(event.getAddedEntry()))
+                .onEntryReplaced(event -> subscribe(event.getNewEntry()))
+                .onEntryRemoved(event -> circuitBreakers.remove(event.getRemovedEntry().getName(), event.getRemovedEntry()));
+        retryRegistry.getEventPublisher()
+                .onEntryAdded(event -> subscribe(event.getAddedEntry()))
+                .onEntryReplaced(event -> subscribe(event.getNewEntry()));
+
+        circuitBreakerRegistry.getAllCircuitBreakers().forEach(this::subscribe);
+        retryRegistry.getAllRetries().forEach(this::subscribe);
+    }
+
+    private void subscribe(final CircuitBreaker circuitBreaker) {
+        circuitBreakers.put(circuitBreaker.getName(), circuitBreaker);
+        if (subscribed.add(circuitBreaker)) {
+            circuitBreaker.getEventPublisher().onEvent(this::publish);
+        }
+    }
+
+    private void subscribe(final Retry retry) {
+        if (subscribed.add(retry)) {
+            retry.getEventPublisher().onEvent(this::publish);
+        }
+    }
+
+    private void publish(final Object event) {
+        if (!events.offer(event)) {
+            dropped.increment();
+            droppedInInterval.incrementAndGet();
+        } else if (idle.get() && idle.compareAndSet(true, false)) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    private void consume() {
+        final long intervalNanos = summaryInterval.toNanos();
+        long nextSummary = System.nanoTime() + intervalNanos;
+        while (running) {
+            if (drain() == 0) {
+                idle.set(true);
+                // Re-checked once idle is visible, so an event offered meanwhile either is seen here or unparks
+                if (events.size() == 0) {
+                    LockSupport.parkNanos(this, Math.max(0, nextSummary - System.nanoTime()));
+                }
+                idle.set(false);
+            }
+            if (System.nanoTime() - nextSummary >= 0) {
+                summarize().forEach(LOGGER::info);
+                nextSummary += intervalNanos;
+            }
+        }
+        drain();
+        summarize().forEach(LOGGER::info);
+    }
+
+    /**
+     * Moves every queued event into the current interval's counts, logging state transitions as they come.
+     */
+    int drain() {
+        int drained = 0;
+        Object event;
+        while ((event = events.poll()) != null) {
+            drained++;
+            if (event instanceof CircuitBreakerEvent circuitBreakerEvent) {
+                final CircuitBreakerEvent.Type type = circuitBreakerEvent.getEventType();
+                if (type == STATE_TRANSITION || type == RESET) {
+                    LOGGER.info("CircuitBreakerEvent: [{}]", circuitBreakerEvent);
+                }
+                count(new Instance(CIRCUIT_BREAKER, circuitBreakerEvent.getCircuitBreakerName()), type.name());
+            } else if (event instanceof RetryEvent retryEvent) {
+                count(new Instance(RETRY, retryEvent.getName()), retryEvent.getEventType().name());
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Returns one line per instance that had events since the last call, plus the drop count, and starts a new interval.
+     */
+    List<String> summarize() {
+        final List<String> lines = new ArrayList<>(counts.size() + 1);
+        counts.forEach((instance, typeCounts) -> {
+            final CircuitBreaker circuitBreaker = CIRCUIT_BREAKER.equals(instance.kind()) ? circuitBreakers.get(instance.name()) : null;
+            lines.add(circuitBreaker == null
+                    ? String.format("%s [%s] events over the last [%s]: %s", instance.kind(), instance.name(), summaryInterval, typeCounts)
+                    : String.format("%s [%s] in state [%s] events over the last [%s]: %s", instance.kind(), instance.name(),
+                            circuitBreaker.getState(), summaryInterval, typeCounts));
+        });
+        counts.clear();
+
+        final long droppedEvents = droppedInInterval.getAndSet(0);
+        if (droppedEvents > 0) {
+            lines.add(String.format("Dropped [%d] resilience events over the last [%s]: event buffer of [%d] was full",
+                    droppedEvents, summaryInterval, events.capacity()));
+        }
+        return lines;
+    }
+
+    private void count(final Instance instance, final String type) {
+        counts.computeIfAbsent(instance, key -> new TreeMap<>()).merge(type, 1L, Long::sum);
+    }
+
+    private record Instance(String kind, String name) implements Comparable<Instance> {
+        @Override
+        public int compareTo(final Instance other) {
+            final int byKind = kind.compareTo(other.kind);
+            return byKind != 0 ? byKind : name.compareTo(other.name);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.habeebcycle.demo.resilientservice.resilience.sharing;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * What one replica tells the others about one circuit breaker: a state {@code TRANSITION} it just made, or its
+ * current sliding {@code WINDOW}. {@code sequence} grows with every message a node sends, so stale ones can be told
+ * apart, and {@code timestamp} is the sender's wall clock (epoch milliseconds), so old ones can be refused.
+ * <p>
+ * On the wire a message is followed by an HMAC-SHA256 of it under the cluster's shared secret, and one whose HMAC
+ * does not match is never decoded.
+ */
+public record BreakerStateMessage(Kind kind, String cluster, String node, long sequence, long timestamp,
+                                  String circuitBreaker, CircuitBreaker.State state, int bufferedCalls, int failedCalls) {
+
+    private static final int VERSION = 3;
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final int MAC_LENGTH = 32;
+
+    public enum Kind { TRANSITION, WINDOW }
+
+    public static SecretKey key(final String secret) {
+        return new SecretKeySpec(secret.getBytes(UTF_8), MAC_ALGORITHM);
+    }
+
+    public byte[] encode(final SecretKey key) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + circuitBreaker.length());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeByte(kind.ordinal());
+            out.writeUTF(cluster);
+            out.writeUTF(node);
+            out.writeLong(sequence);
+            out.writeLong(timestamp);
+            out.writeUTF(circuitBreaker);
+            out.writeUTF(state.name());
+            out.writeInt(bufferedCalls);
+            out.writeInt(failedCalls);
+            out.flush();
+            out.write(mac(key, bytes.toByteArray(), 0, bytes.size()));
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // Not thrown by an in-memory stream
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @throws IOException when {@code bytes} is not a message of this version, or was not sent with {@code key}
+     */
+    public static BreakerStateMessage decode(final byte[] bytes, final int offset, final int length, final SecretKey key) throws IOException {
+        final int payload = length - MAC_LENGTH;
+        if (payload <= 0) {
+            throw new IOException("Message too short");
+        }
+        final byte[] expected = mac(key, bytes, offset, payload);
+        if (!MessageDigest.isEqual(expected, Arrays.copyOfRange(bytes, offset + payload, offset + length))) {
+            throw new IOException("Message failed authentication");
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, offset, payload))) {
+            final int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported message version [" + version + "]");
+            }
+            final Kind[] kinds = Kind.values();
+            final int kind = in.readUnsignedByte();
+            if (kind >= kinds.length) {
+                throw new IOException("Unknown message kind [" + kind + "]");
+            }
+            return new BreakerStateMessage(kinds[kind], in.readUTF(), in.readUTF(), in.readLong(), in.readLong(), in.readUTF(),
+                    CircuitBreaker.State.valueOf(in.readUTF()), in.readInt(), in.readInt());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unknown circuit breaker state", e);
+        }
+    }
+
+    private static byte[] mac(final SecretKey key, final byte[] bytes, final int offset, final int length) {
+        try {
+            final Mac mac = Mac.getInstance(MAC_ALGORITHM); // Not thread-safe, and messages are rare enough to make one each
+            mac.init(key);
+            mac.update(bytes, offset, length);
+            return mac.doFinal();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e); // Every JRE provides HmacSHA256
+        }
+    }
+}
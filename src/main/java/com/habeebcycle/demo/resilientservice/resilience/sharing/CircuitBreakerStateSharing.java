@@ -0,0 +1,284 @@
+package com.habeebcycle.demo.resilientservice.resilience.sharing;
+
+import com.habeebcycle.demo.resilientservice.config.StateSharingProperties;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.circuitbreaker.event.CircuitBreakerOnStateTransitionEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.habeebcycle.demo.resilientservice.resilience.sharing.BreakerStateMessage.Kind.TRANSITION;
+import static com.habeebcycle.demo.resilientservice.resilience.sharing.BreakerStateMessage.Kind.WINDOW;
+import static io.github.resilience4j.circuitbreaker.CircuitBreaker.State.CLOSED;
+import static io.github.resilience4j.circuitbreaker.CircuitBreaker.State.HALF_OPEN;
+import static io.github.resilience4j.circuitbreaker.CircuitBreaker.State.OPEN;
+
+/**
+ * Shares circuit breaker state between replicas, so they open and half-open together instead of each one having to
+ * see {@code minimumNumberOfCalls} failures of its own.
+ * <p>
+ * A breaker's state transitions are sent to the peers as they happen, and its sliding window every
+ * {@code api.sharing.interval}. A peer's transition is followed when it makes sense from the local state: CLOSED or
+ * HALF_OPEN to OPEN, OPEN to HALF_OPEN, and HALF_OPEN to CLOSED; forced, disabled and metrics-only breakers are left
+ * alone. A closed breaker also opens once its own window and the peers' closed windows together reach its
+ * {@code minimumNumberOfCalls} and {@code failureRateThreshold}.
+ * <p>
+ * A peer's message is only taken when its sequence is above the highest one seen from that node and its timestamp
+ * within {@code api.sharing.maxClockSkew} of the local clock. The highest sequence of a node outlives its window
+ * until any replay of its messages would be refused on the timestamp alone.
+ * <p>
+ * All of this runs on a single gossip thread. Calls only pay for the state transition listener handing the event
+ * to that thread, which happens on transitions, never on a successful or failed call.
+ */
+@Component
+public class CircuitBreakerStateSharing {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CircuitBreakerStateSharing.class);
+    private static final int PEER_EXPIRY_INTERVALS = 3;
+
+    private final StateSharingProperties properties;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final StateTransport transport;
+    private final String node = UUID.randomUUID().toString();
+    private final long peerExpiryNanos;
+    private final long sequenceExpiryNanos;
+    private final long maxClockSkewMillis;
+    private final Set<CircuitBreaker> subscribed = ConcurrentHashMap.newKeySet();
+    private final Counter sent;
+    private final Counter received;
+    private final Counter dropped;
+    private final Counter followedPeer;
+    private final Counter openedOnWindows;
+
+    // Only touched by the gossip thread
+    private final Map<String, Peer> peers = new HashMap<>();
+    private final Map<String, Map<String, Window>> windows = new HashMap<>();
+    private final Map<String, CircuitBreaker.State> following = new HashMap<>();
+    private long sequence;
+
+    private volatile ScheduledExecutorService gossip;
+
+    @Autowired
+    public CircuitBreakerStateSharing(final StateSharingProperties properties, final CircuitBreakerRegistry circuitBreakerRegistry,
+                                      final ObjectProvider<StateTransport> transports, final MeterRegistry meterRegistry) {
+        this(properties, circuitBreakerRegistry, transports.getIfAvailable(() -> StateTransport.of(properties)), meterRegistry);
+    }
+
+    CircuitBreakerStateSharing(final StateSharingProperties properties, final CircuitBreakerRegistry circuitBreakerRegistry,
+                               final StateTransport transport, final MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.transport = transport;
+        this.peerExpiryNanos = properties.interval().toNanos() * PEER_EXPIRY_INTERVALS;
+        // A message received last at t carries a timestamp no older than t - skew by the local clock, so from
+        // t + 2 * skew on a replay of it is refused as stale and its sequence no longer needs remembering
+        this.sequenceExpiryNanos = peerExpiryNanos + 2 * properties.maxClockSkew().toNanos();
+        this.maxClockSkewMillis = properties.maxClockSkew().toMillis();
+        this.sent = messages(meterRegistry, "sent");
+        this.received = messages(meterRegistry, "received");
+        this.dropped = messages(meterRegistry, "dropped");
+        this.followedPeer = transitions(meterRegistry, "peer");
+        this.openedOnWindows = transitions(meterRegistry, "windows");
+    }
+
+    private static Counter messages(final MeterRegistry meterRegistry, final String direction) {
+        return Counter.builder("proxy.resilience.sharing.messages").tag("direction", direction).register(meterRegistry);
+    }
+
+    private static Counter transitions(final MeterRegistry meterRegistry, final String cause) {
+        return Counter.builder("proxy.resilience.sharing.transitions").tag("cause", cause).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.enabled()) {
+            return;
+        }
+        final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "breaker-state-gossip");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            transport.start(message -> dispatch(() -> receive(message)));
+        } catch (IOException e) {
+            // Each replica still protects itself, it only does so alone
+            LOG.error("Circuit breaker state sharing disabled: transport failed to start: [{}]", e.toString());
+            executor.shutdown();
+            return;
+        }
+        gossip = executor;
+
+        // Listen for new entries before walking the existing ones, so none is missed; subscribe() skips duplicates
+        circuitBreakerRegistry.getEventPublisher()
+                .onEntryAdded(event -> subscribe(event.getAddedEntry()))
+                .onEntryReplaced(event -> subscribe(event.getNewEntry()));
+        circuitBreakerRegistry.getAllCircuitBreakers().forEach(this::subscribe);
+
+        final long interval = properties.interval().toNanos();
+        executor.scheduleAtFixedRate(this::gossipWindows, interval, interval, TimeUnit.NANOSECONDS);
+        LOG.info("Sharing circuit breaker state as node [{}] of cluster [{}]", node, properties.cluster());
+    }
+
+    @PreDestroy
+    public void stop() {
+        transport.close();
+        final ScheduledExecutorService executor = gossip;
+        if (executor != null) {
+            gossip = null;
+            executor.shutdownNow();
+        }
+    }
+
+    private void subscribe(final CircuitBreaker circuitBreaker) {
+        if (isShared(circuitBreaker.getName()) && subscribed.add(circuitBreaker)) {
+            circuitBreaker.getEventPublisher().onStateTransition(event -> dispatch(() -> transitioned(event)));
+        }
+    }
+
+    private boolean isShared(final String name) {
+        return properties.circuitBreakers().isEmpty() || properties.circuitBreakers().contains(name);
+    }
+
+    private void dispatch(final Runnable task) {
+        final ScheduledExecutorService executor = gossip;
+        if (executor != null) {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+            }
+        }
+    }
+
+    private void transitioned(final CircuitBreakerOnStateTransitionEvent event) {
+        final String name = event.getCircuitBreakerName();
+        final CircuitBreaker.State state = event.getStateTransition().getToState();
+        if (following.remove(name, state)) {
+            return; // Made to follow a peer, which already told everyone
+        }
+        send(TRANSITION, name, state, 0, 0);
+    }
+
+    /**
+     * Sends the window of every shared breaker and opens the closed ones whose combined windows call for it.
+     */
+    void gossipWindows() {
+        final long now = System.nanoTime();
+        peers.values().removeIf(peer -> now - peer.lastSeen() > sequenceExpiryNanos);
+        windows.values().forEach(byNode -> byNode.keySet().removeIf(peerNode -> {
+            final Peer peer = peers.get(peerNode);
+            return peer == null || now - peer.lastSeen() > peerExpiryNanos;
+        }));
+
+        circuitBreakerRegistry.getAllCircuitBreakers().forEach(circuitBreaker -> {
+            if (!isShared(circuitBreaker.getName())) {
+                return;
+            }
+            final CircuitBreaker.Metrics metrics = circuitBreaker.getMetrics();
+            send(WINDOW, circuitBreaker.getName(), circuitBreaker.getState(), metrics.getNumberOfBufferedCalls(), metrics.getNumberOfFailedCalls());
+            openOnCombinedWindows(circuitBreaker);
+        });
+    }
+
+    private void openOnCombinedWindows(final CircuitBreaker circuitBreaker) {
+        final Map<String, Window> peerWindows = windows.get(circuitBreaker.getName());
+        if (circuitBreaker.getState() != CLOSED || peerWindows == null || peerWindows.isEmpty()) {
+            return;
+        }
+        long bufferedCalls = circuitBreaker.getMetrics().getNumberOfBufferedCalls();
+        long failedCalls = circuitBreaker.getMetrics().getNumberOfFailedCalls();
+        for (final Window window : peerWindows.values()) {
+            if (window.state() == CLOSED) {
+                bufferedCalls += window.bufferedCalls();
+                failedCalls += window.failedCalls();
+            }
+        }
+        final CircuitBreakerConfig config = circuitBreaker.getCircuitBreakerConfig();
+        if (bufferedCalls >= config.getMinimumNumberOfCalls() && failedCalls * 100f / bufferedCalls >= config.getFailureRateThreshold()) {
+            LOG.info("Opening circuit breaker [{}]: [{}] of [{}] calls across [{}] replicas failed", circuitBreaker.getName(),
+                    failedCalls, bufferedCalls, peerWindows.size() + 1);
+            circuitBreaker.transitionToOpenState(); // Sent to the peers like any local transition
+            openedOnWindows.increment();
+        }
+    }
+
+    void receive(final BreakerStateMessage message) {
+        if (!properties.cluster().equals(message.cluster()) || node.equals(message.node())) {
+            return;
+        }
+        final Peer peer = peers.get(message.node());
+        if (peer != null && message.sequence() <= peer.sequence()) {
+            dropped.increment(); // Duplicated, overtaken or replayed
+            return;
+        }
+        if (Math.abs(System.currentTimeMillis() - message.timestamp()) > maxClockSkewMillis) {
+            dropped.increment(); // Stale, or replayed after the sender's sequence was forgotten
+            return;
+        }
+        peers.put(message.node(), new Peer(message.sequence(), System.nanoTime()));
+        received.increment();
+        if (!isShared(message.circuitBreaker())) {
+            return;
+        }
+        if (message.kind() == WINDOW) {
+            windows.computeIfAbsent(message.circuitBreaker(), name -> new HashMap<>())
+                    .put(message.node(), new Window(message.state(), message.bufferedCalls(), message.failedCalls()));
+            return;
+        }
+        circuitBreakerRegistry.find(message.circuitBreaker()).ifPresent(circuitBreaker -> follow(circuitBreaker, message.state()));
+    }
+
+    private void follow(final CircuitBreaker circuitBreaker, final CircuitBreaker.State peerState) {
+        final CircuitBreaker.State state = circuitBreaker.getState();
+        if (peerState == OPEN && (state == CLOSED || state == HALF_OPEN)) {
+            circuitBreaker.transitionToOpenState();
+        } else if (peerState == HALF_OPEN && state == OPEN) {
+            circuitBreaker.transitionToHalfOpenState();
+        } else if (peerState == CLOSED && state == HALF_OPEN) {
+            circuitBreaker.transitionToClosedState();
+        } else {
+            return;
+        }
+        LOG.info("Circuit breaker [{}] followed a peer from [{}] to [{}]", circuitBreaker.getName(), state, peerState);
+        following.put(circuitBreaker.getName(), peerState);
+        followedPeer.increment();
+    }
+
+    private void send(final BreakerStateMessage.Kind kind, final String name, final CircuitBreaker.State state,
+                      final int bufferedCalls, final int failedCalls) {
+        try {
+            transport.send(new BreakerStateMessage(kind, properties.cluster(), node, ++sequence, System.currentTimeMillis(),
+                    name, state, bufferedCalls, failedCalls));
+            sent.increment();
+        } catch (IOException e) {
+            LOG.debug("Failed to send circuit breaker [{}] state: [{}]", name, e.toString());
+            dropped.increment();
+        }
+    }
+
+    private record Peer(long sequence, long lastSeen) {
+    }
+
+    private record Window(CircuitBreaker.State state, int bufferedCalls, int failedCalls) {
+    }
+}
@@ -0,0 +1,54 @@
+package com.habeebcycle.demo.resilientservice.resilience.sharing;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Delivers messages to every other loopback transport of the same JVM, each on its own daemon thread, so several
+ * replicas can share state in one test or on one developer machine.
+ */
+public class LoopbackStateTransport implements StateTransport {
+
+    private static final Set<LoopbackStateTransport> STARTED = ConcurrentHashMap.newKeySet();
+
+    private ExecutorService delivery;
+    private Consumer<BreakerStateMessage> receiver;
+
+    @Override
+    public synchronized void start(final Consumer<BreakerStateMessage> receiver) {
+        this.receiver = receiver;
+        this.delivery = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "breaker-state-loopback");
+            thread.setDaemon(true);
+            return thread;
+        });
+        STARTED.add(this);
+    }
+
+    @Override
+    public void send(final BreakerStateMessage message) {
+        for (final LoopbackStateTransport transport : STARTED) {
+            if (transport != this) {
+                transport.deliver(message);
+            }
+        }
+    }
+
+    private synchronized void deliver(final BreakerStateMessage message) {
+        if (delivery != null) {
+            delivery.execute(() -> receiver.accept(message));
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        STARTED.remove(this);
+        if (delivery != null) {
+            delivery.shutdownNow();
+            delivery = null;
+        }
+    }
+}
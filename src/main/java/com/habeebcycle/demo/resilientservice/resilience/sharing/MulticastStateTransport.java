@@ -0,0 +1,104 @@
+package com.habeebcycle.demo.resilientservice.resilience.sharing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.net.StandardSocketOptions;
+import java.util.function.Consumer;
+
+/**
+ * UDP multicast transport: one datagram per message, sent to and received from a multicast group. Multicast
+ * loopback is on, so replicas on the same host see each other; a replica's own messages come back and are ignored
+ * by the receiver. Datagrams are authenticated with the cluster's shared {@code secret}, without which the transport
+ * does not start; any datagram that fails the check is dropped.
+ */
+public class MulticastStateTransport implements StateTransport {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MulticastStateTransport.class);
+    private static final int MAX_DATAGRAM = 1024;
+
+    private final String group;
+    private final int port;
+    private final String networkInterface;
+    private final int timeToLive;
+    private final SecretKey key;
+
+    private volatile MulticastSocket socket;
+    private InetSocketAddress groupAddress;
+    private Thread listener;
+
+    public MulticastStateTransport(final String group, final int port, final String networkInterface, final int timeToLive,
+                                   final String secret) {
+        this.group = group;
+        this.port = port;
+        this.networkInterface = networkInterface;
+        this.timeToLive = timeToLive;
+        this.key = secret == null || secret.isBlank() ? null : BreakerStateMessage.key(secret);
+    }
+
+    @Override
+    public synchronized void start(final Consumer<BreakerStateMessage> receiver) throws IOException {
+        if (key == null) {
+            throw new IOException("No shared secret configured for multicast, see api.sharing.secret");
+        }
+        final NetworkInterface anInterface = networkInterface == null || networkInterface.isBlank() ? null
+                : NetworkInterface.getByName(networkInterface);
+        if (networkInterface != null && !networkInterface.isBlank() && anInterface == null) {
+            throw new SocketException("No network interface named [" + networkInterface + "]");
+        }
+        final MulticastSocket multicastSocket = new MulticastSocket(port);
+        multicastSocket.setOption(StandardSocketOptions.IP_MULTICAST_LOOP, true);
+        multicastSocket.setTimeToLive(timeToLive);
+        if (anInterface != null) {
+            multicastSocket.setNetworkInterface(anInterface);
+        }
+        groupAddress = new InetSocketAddress(InetAddress.getByName(group), port);
+        multicastSocket.joinGroup(groupAddress, anInterface);
+        socket = multicastSocket;
+
+        listener = new Thread(() -> listen(multicastSocket, key, receiver), "breaker-state-multicast");
+        listener.setDaemon(true);
+        listener.start();
+        LOG.info("Sharing circuit breaker state over multicast group [{}:{}]", group, port);
+    }
+
+    private static void listen(final MulticastSocket socket, final SecretKey key, final Consumer<BreakerStateMessage> receiver) {
+        final DatagramPacket packet = new DatagramPacket(new byte[MAX_DATAGRAM], MAX_DATAGRAM);
+        while (!socket.isClosed()) {
+            try {
+                packet.setLength(MAX_DATAGRAM);
+                socket.receive(packet);
+                receiver.accept(BreakerStateMessage.decode(packet.getData(), packet.getOffset(), packet.getLength(), key));
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    LOG.debug("Dropped circuit breaker state datagram: [{}]", e.toString());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void send(final BreakerStateMessage message) throws IOException {
+        final MulticastSocket multicastSocket = socket;
+        if (multicastSocket != null) {
+            final byte[] bytes = message.encode(key);
+            multicastSocket.send(new DatagramPacket(bytes, bytes.length, groupAddress));
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (socket != null) {
+            socket.close(); // Unblocks the listener
+            socket = null;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.habeebcycle.demo.resilientservice.resilience.sharing;
+
+import com.habeebcycle.demo.resilientservice.config.StateSharingProperties;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Carries {@link BreakerStateMessage}s between replicas. Delivery is best effort: messages may be lost, duplicated
+ * or reordered, and a replica may receive its own. Declare a bean of this type to replace the transport chosen by
+ * {@code api.sharing.transport}.
+ */
+public interface StateTransport extends AutoCloseable {
+
+    /**
+     * Starts delivering the messages of other replicas to {@code receiver}, on a thread of the transport's own.
+     */
+    void start(Consumer<BreakerStateMessage> receiver) throws IOException;
+
+    /**
+     * Sends {@code message} to every replica; never blocks on a slow or absent peer.
+     */
+    void send(BreakerStateMessage message) throws IOException;
+
+    @Override
+    void close();
+
+    static StateTransport of(final StateSharingProperties properties) {
+        return switch (properties.transport()) {
+            case MULTICAST -> new MulticastStateTransport(properties.group(), properties.port(),
+                    properties.networkInterface(), properties.timeToLive(), properties.secret());
+            case LOOPBACK -> new LoopbackStateTransport();
+        };
+    }
+}
@@ -1,20 +1,30 @@
 package com.habeebcycle.demo.resilientservice.router;
 
-import com.habeebcycle.demo.resilientservice.http.exception.CustomResponseStatusException;
+import com.habeebcycle.demo.resilientservice.config.BatchProperties;
+import com.habeebcycle.demo.resilientservice.config.TypedProperties;
+import com.habeebcycle.demo.resilientservice.http.exception.StacklessResponseStatusException;
 import com.habeebcycle.demo.resilientservice.handler.ApplicationHandler;
+import com.habeebcycle.demo.resilientservice.resilience.Deadline;
+import com.habeebcycle.demo.resilientservice.resilience.InboundRateLimiter;
 import org.slf4j.Logger;
 import org.springframework.context.annotation.Bean;
 import org.springframework.core.annotation.Order;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
 import static org.slf4j.LoggerFactory.getLogger;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
 import static org.springframework.web.reactive.function.server.RequestPredicates.*;
 import static org.springframework.web.reactive.function.server.RouterFunctions.nest;
 import static org.springframework.web.reactive.function.server.RouterFunctions.route;
@@ -24,14 +34,52 @@ public class ApplicationRouter {
 
     private static final Logger LOG = getLogger(ApplicationRouter.class);
     private static final String ROOT_PATH = "/services";
+    private static final String REQUEST_ID_HEADER = "X-Request-Id";
+    private static final Pattern REQUEST_ID = Pattern.compile("[A-Za-z0-9._:/+=-]{1,64}");
+    private static final String IDS_PARAM = "ids";
+    private static final String FIELDS_PARAM = "fields";
+    private static final String LIMIT_PARAM = "limit";
+    private static final String OFFSET_PARAM = "offset";
 
     @Bean
     @Order(1)
-    public RouterFunction<ServerResponse> routerFunction(final ApplicationHandler handler) {
-        return nest(path(ROOT_PATH).and(accept(APPLICATION_JSON)),
-                route(GET("/posts"), request -> handler.apiGetRequest(request.path().substring(ROOT_PATH.length())))
-                        .andRoute(GET("/posts/{id}"), request -> handler.apiGetRequest(request.path().substring(ROOT_PATH.length())))
-        );
+    public RouterFunction<ServerResponse> routerFunction(final ApplicationHandler handler, final UpstreamRoutes upstreamRoutes,
+                                                         final BatchProperties batchProperties, final TypedProperties typedProperties,
+                                                         final InboundRateLimiter rateLimiter) {
+        final RouterFunctions.Builder routes = RouterFunctions.route();
+        if (batchProperties.enabled()) {
+            // Registered first: the batch path is usually also a plain route, which would match without the ids parameter
+            final Supplier<UpstreamRoute> itemRoute = upstreamRoutes.current(batchProperties.itemRoute());
+            routes.GET(batchProperties.path(), queryParam(IDS_PARAM, ids -> true), request -> {
+                final UpstreamRoute route = itemRoute.get();
+                return handler.apiBatchRequest(route, request.queryParam(IDS_PARAM).orElse(""),
+                        request.headers().accept(), requestId(request), deadline(request, route));
+            });
+        }
+        if (typedProperties.enabled()) {
+            // Registered before the plain routes for the same reason; without paging or projection the list is proxied as is
+            final Supplier<UpstreamRoute> listRoute = upstreamRoutes.current(typedProperties.route());
+            routes.GET(listRoute.get().path(), queryParam(FIELDS_PARAM, value -> true).or(queryParam(LIMIT_PARAM, value -> true))
+                    .or(queryParam(OFFSET_PARAM, value -> true)), request -> {
+                final UpstreamRoute route = listRoute.get();
+                return handler.apiTypedRequest(route, request.path().substring(ROOT_PATH.length()), request.queryParams(),
+                        request.headers().accept(), requestId(request), deadline(request, route));
+            });
+        }
+        // Each handler function captures its route's live reference, so requests never look up resilience instances;
+        // a request reads it once and keeps that configuration even if the route is reconfigured meanwhile
+        upstreamRoutes.all().forEach(upstreamRoute -> {
+            final Supplier<UpstreamRoute> current = upstreamRoutes.current(upstreamRoute.name());
+            routes.GET(upstreamRoute.path(), request -> {
+                final UpstreamRoute route = current.get();
+                return handler.apiGetRequest(route, request.path().substring(ROOT_PATH.length()),
+                        request.headers().asHttpHeaders(), requestId(request), deadline(request, route));
+            });
+        });
+
+        // Only requests that match a route are counted; left out entirely when disabled, so it costs nothing then
+        final RouterFunction<ServerResponse> services = rateLimiter.enabled() ? routes.build().filter(rateLimiter) : routes.build();
+        return nest(path(ROOT_PATH).and(accept(APPLICATION_JSON, APPLICATION_NDJSON)), services);
     }
 
     @Bean
@@ -40,9 +88,36 @@ public class ApplicationRouter {
         return route(path("/**"), this::defaultResponse);
     }
 
+    /**
+     * The caller's {@code X-Request-Id} when it looks like an id (short, URL-safe or base64 characters), else the id
+     * of the exchange: the id ends up in logs and metric exemplars, which the caller must not be able to break.
+     */
+    private static String requestId(final ServerRequest request) {
+        final String requestId = request.headers().firstHeader(REQUEST_ID_HEADER);
+        return requestId != null && REQUEST_ID.matcher(requestId).matches() ? requestId : request.exchange().getRequest().getId();
+    }
+
+    /**
+     * Deadline from the caller's {@link Deadline#HEADER} in milliseconds, capped by the route's timeout, which is
+     * the default when the header is absent or malformed. The clock starts when the request is routed.
+     */
+    private static Deadline deadline(final ServerRequest request, final UpstreamRoute route) {
+        Duration timeout = route.timeout();
+        final String requested = request.headers().firstHeader(Deadline.HEADER);
+        if (requested != null) {
+            try {
+                final Duration requestTimeout = Duration.ofMillis(Math.max(0, Long.parseLong(requested.trim())));
+                timeout = timeout == null || requestTimeout.compareTo(timeout) < 0 ? requestTimeout : timeout;
+            } catch (NumberFormatException e) {
+                LOG.debug("Ignoring malformed {} header [{}]", Deadline.HEADER, requested);
+            }
+        }
+        return timeout == null ? null : Deadline.after(timeout);
+    }
+
     private @NonNull Mono<ServerResponse> defaultResponse(final ServerRequest serverRequest) {
         final String path = serverRequest.path();
         LOG.info("Requested url or resource {} is not found.", path);
-        return Mono.error(new CustomResponseStatusException(NOT_FOUND, "Resource requested is not found."));
+        return Mono.error(new StacklessResponseStatusException(NOT_FOUND, "Resource requested is not found."));
     }
 }
@@ -0,0 +1,125 @@
+package com.habeebcycle.demo.resilientservice.router;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.retry.RetryConfig;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Actuator endpoint ({@code /actuator/resilience}) to inspect and retune the circuit breaker, retry and timeout of
+ * each upstream route at runtime. {@code POST /actuator/resilience/{route}} with a JSON body of the settings to
+ * change; settings left out keep their current value. Durations accept the {@code 10s} form of the configuration
+ * files. See {@link UpstreamRoutes#reconfigure} for how the change reaches in-flight and new calls.
+ * <p>
+ * The endpoint is unauthenticated, so it is left out of the default web exposure; add {@code resilience} to
+ * {@code management.endpoints.web.exposure.include} to use it, preferably with {@code management.server.port} set so
+ * the actuator is not reachable on the proxy port.
+ */
+@Component
+@Endpoint(id = "resilience")
+public class ResilienceEndpoint {
+
+    private final UpstreamRoutes upstreamRoutes;
+
+    public ResilienceEndpoint(final UpstreamRoutes upstreamRoutes) {
+        this.upstreamRoutes = upstreamRoutes;
+    }
+
+    @ReadOperation
+    public Map<String, RouteSettings> routes() {
+        final Map<String, RouteSettings> routes = new LinkedHashMap<>();
+        upstreamRoutes.all().forEach(route -> routes.put(route.name(), RouteSettings.of(route)));
+        return routes;
+    }
+
+    @ReadOperation
+    public RouteSettings route(@Selector final String route) {
+        return upstreamRoutes.all().stream()
+                .filter(upstreamRoute -> upstreamRoute.name().equals(route))
+                .findFirst()
+                .map(RouteSettings::of)
+                .orElse(null);
+    }
+
+    @WriteOperation
+    public RouteSettings reconfigure(@Selector final String route,
+                                     @Nullable final Float failureRateThreshold,
+                                     @Nullable final Float slowCallRateThreshold,
+                                     @Nullable final Duration slowCallDurationThreshold,
+                                     @Nullable final Integer slidingWindowSize,
+                                     @Nullable final Integer minimumNumberOfCalls,
+                                     @Nullable final Duration waitDurationInOpenState,
+                                     @Nullable final Integer permittedNumberOfCallsInHalfOpenState,
+                                     @Nullable final Integer maxAttempts,
+                                     @Nullable final Duration timeout) {
+        final UpstreamRoute current;
+        try {
+            current = upstreamRoutes.get(route);
+        } catch (IllegalStateException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+        }
+
+        CircuitBreakerConfig circuitBreakerConfig = null;
+        RetryConfig retryConfig = null;
+        try {
+            if (failureRateThreshold != null || slowCallRateThreshold != null || slowCallDurationThreshold != null
+                    || slidingWindowSize != null || minimumNumberOfCalls != null || waitDurationInOpenState != null
+                    || permittedNumberOfCallsInHalfOpenState != null) {
+                final CircuitBreakerConfig.Builder builder = CircuitBreakerConfig.from(current.circuitBreaker().getCircuitBreakerConfig());
+                set(failureRateThreshold, builder::failureRateThreshold);
+                set(slowCallRateThreshold, builder::slowCallRateThreshold);
+                set(slowCallDurationThreshold, builder::slowCallDurationThreshold);
+                set(slidingWindowSize, builder::slidingWindowSize);
+                set(minimumNumberOfCalls, builder::minimumNumberOfCalls);
+                set(waitDurationInOpenState, builder::waitDurationInOpenState);
+                set(permittedNumberOfCallsInHalfOpenState, builder::permittedNumberOfCallsInHalfOpenState);
+                circuitBreakerConfig = builder.build();
+            }
+            if (maxAttempts != null) {
+                retryConfig = RetryConfig.from(current.retry().getRetryConfig()).maxAttempts(maxAttempts).build();
+            }
+            if (timeout != null && (timeout.isNegative() || timeout.isZero())) {
+                throw new IllegalArgumentException("timeout must be positive");
+            }
+        } catch (IllegalArgumentException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+        }
+        return RouteSettings.of(upstreamRoutes.reconfigure(route, circuitBreakerConfig, retryConfig, timeout));
+    }
+
+    private static <T> void set(@Nullable final T value, final Consumer<T> setter) {
+        if (value != null) {
+            setter.accept(value);
+        }
+    }
+
+    /**
+     * The tunable settings of one route, as it is currently configured.
+     */
+    public record RouteSettings(String circuitBreaker, String state, float failureRateThreshold, float slowCallRateThreshold,
+                                Duration slowCallDurationThreshold, int slidingWindowSize, int minimumNumberOfCalls,
+                                Duration waitDurationInOpenState, int permittedNumberOfCallsInHalfOpenState,
+                                String retry, int maxAttempts, Duration timeout) {
+
+        static RouteSettings of(final UpstreamRoute route) {
+            final CircuitBreakerConfig circuitBreaker = route.circuitBreaker().getCircuitBreakerConfig();
+            return new RouteSettings(route.circuitBreaker().getName(), route.circuitBreaker().getState().name(),
+                    circuitBreaker.getFailureRateThreshold(), circuitBreaker.getSlowCallRateThreshold(),
+                    circuitBreaker.getSlowCallDurationThreshold(), circuitBreaker.getSlidingWindowSize(),
+                    circuitBreaker.getMinimumNumberOfCalls(),
+                    Duration.ofMillis(circuitBreaker.getWaitIntervalFunctionInOpenState().apply(1)),
+                    circuitBreaker.getPermittedNumberOfCallsInHalfOpenState(),
+                    route.retry().getName(), route.retry().getRetryConfig().getMaxAttempts(), route.timeout());
+        }
+    }
+}
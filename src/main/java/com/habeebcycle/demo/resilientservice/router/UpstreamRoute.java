@@ -0,0 +1,18 @@
+package com.habeebcycle.demo.resilientservice.router;
+
+import com.habeebcycle.demo.resilientservice.fallback.Fallback;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.retry.Retry;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+
+/**
+ * An upstream route resolved at startup: the route template it serves and the WebClient, circuit breaker and retry
+ * instances dedicated to it. Handlers receive it directly from the router function, so the hot path does no
+ * registry or map lookups. Immutable: {@link UpstreamRoutes#reconfigure} publishes a new one. {@code timeout}, when set, bounds a request including all of its retries; {@code fallback},
+ * when set, answers requests the circuit breaker rejects.
+ */
+public record UpstreamRoute(String name, String path, WebClient webClient, CircuitBreaker circuitBreaker, Retry retry,
+                            Duration timeout, Fallback fallback) {
+}
@@ -0,0 +1,142 @@
+package com.habeebcycle.demo.resilientservice.router;
+
+import com.habeebcycle.demo.resilientservice.config.UpstreamRouteProperties;
+import com.habeebcycle.demo.resilientservice.fallback.Fallback;
+import com.habeebcycle.demo.resilientservice.http.web.ApplicationWebClient;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Resolves the routes declared under {@code api.routes} into {@link UpstreamRoute}s at startup, and swaps their
+ * circuit breaker, retry and timeout at runtime.
+ * <p>
+ * Each route lives in its own {@link AtomicReference}, which the router captures: a request reads it once, without
+ * locks or registry lookups, and keeps that {@link UpstreamRoute} until it completes. A reconfiguration builds new
+ * instances and publishes them with a single write per route, so in-flight calls finish under the old config and
+ * later calls see only the new one. Writers are serialised; readers never wait.
+ */
+@Component
+public class UpstreamRoutes {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UpstreamRoutes.class);
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final RetryRegistry retryRegistry;
+    private final Map<String, AtomicReference<UpstreamRoute>> routes = new LinkedHashMap<>();
+
+    public UpstreamRoutes(final UpstreamRouteProperties properties, final ApplicationWebClient applicationWebClient,
+                          final WebClient defaultWebClient, final CircuitBreakerRegistry circuitBreakerRegistry,
+                          final RetryRegistry retryRegistry, final Map<String, Fallback> fallbacks) {
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.retryRegistry = retryRegistry;
+        properties.routes().forEach((name, route) -> {
+            final WebClient webClient = route.hasOwnClient() ? applicationWebClient.create(name, route) : defaultWebClient;
+            final UpstreamRoute upstreamRoute = new UpstreamRoute(name, Objects.requireNonNull(route.path(), "api.routes." + name + ".path"),
+                    webClient,
+                    circuitBreakerRegistry.circuitBreaker(Objects.requireNonNullElse(route.circuitBreaker(), name)),
+                    retryRegistry.retry(Objects.requireNonNullElse(route.retry(), name)),
+                    route.timeout(),
+                    route.fallback() == null ? null : fallback(fallbacks, name, route.fallback()));
+            LOG.info("Registered upstream route [{}] for path [{}] with circuit breaker [{}] and retry [{}]", name,
+                    upstreamRoute.path(), upstreamRoute.circuitBreaker().getName(), upstreamRoute.retry().getName());
+            routes.put(name, new AtomicReference<>(upstreamRoute));
+        });
+    }
+
+    private static Fallback fallback(final Map<String, Fallback> fallbacks, final String route, final String name) {
+        final Fallback fallback = fallbacks.get(name);
+        if (fallback == null) {
+            throw new IllegalStateException("No Fallback bean named [" + name + "] for api.routes." + route + ".fallback");
+        }
+        return fallback;
+    }
+
+    /**
+     * The routes as currently configured.
+     */
+    public List<UpstreamRoute> all() {
+        return routes.values().stream().map(AtomicReference::get).toList();
+    }
+
+    public UpstreamRoute get(final String name) {
+        return current(name).get();
+    }
+
+    /**
+     * Live view of one route, for callers that hold on to it across reconfigurations.
+     */
+    public Supplier<UpstreamRoute> current(final String name) {
+        final AtomicReference<UpstreamRoute> route = routes.get(name);
+        if (route == null) {
+            throw new IllegalStateException("No upstream route named [" + name + "] under api.routes");
+        }
+        return route::get;
+    }
+
+    /**
+     * Replaces the circuit breaker, retry and timeout of a route; {@code null} keeps the current one. New instances
+     * replace the old ones in the registries, under the same name, and every route sharing an old instance moves to
+     * the new one. A new circuit breaker starts in the state the old one was in, but with empty metrics.
+     */
+    public synchronized UpstreamRoute reconfigure(final String name, @Nullable final CircuitBreakerConfig circuitBreakerConfig,
+                                                  @Nullable final RetryConfig retryConfig, @Nullable final Duration timeout) {
+        final UpstreamRoute current = get(name);
+        final CircuitBreaker circuitBreaker = circuitBreakerConfig == null ? current.circuitBreaker()
+                : replace(current.circuitBreaker(), circuitBreakerConfig);
+        final Retry retry = retryConfig == null ? current.retry() : replace(current.retry(), retryConfig);
+
+        routes.forEach((routeName, reference) -> {
+            final UpstreamRoute route = reference.get();
+            final boolean target = routeName.equals(name);
+            final boolean sharesCircuitBreaker = route.circuitBreaker() == current.circuitBreaker();
+            final boolean sharesRetry = route.retry() == current.retry();
+            if (target || sharesCircuitBreaker || sharesRetry) {
+                reference.set(new UpstreamRoute(route.name(), route.path(), route.webClient(),
+                        sharesCircuitBreaker ? circuitBreaker : route.circuitBreaker(),
+                        sharesRetry ? retry : route.retry(),
+                        target && timeout != null ? timeout : route.timeout(),
+                        route.fallback()));
+            }
+        });
+        final UpstreamRoute reconfigured = get(name);
+        LOG.info("Reconfigured upstream route [{}] with circuit breaker [{}] and retry [{}] and timeout [{}]", name,
+                circuitBreaker.getName(), retry.getName(), reconfigured.timeout());
+        return reconfigured;
+    }
+
+    private CircuitBreaker replace(final CircuitBreaker old, final CircuitBreakerConfig config) {
+        final CircuitBreaker circuitBreaker = CircuitBreaker.of(old.getName(), config, old.getTags());
+        switch (old.getState()) {
+            case OPEN, HALF_OPEN -> circuitBreaker.transitionToOpenState(); // Re-probes once the new wait duration elapses
+            case FORCED_OPEN -> circuitBreaker.transitionToForcedOpenState();
+            case DISABLED -> circuitBreaker.transitionToDisabledState();
+            case METRICS_ONLY -> circuitBreaker.transitionToMetricsOnlyState();
+            default -> { }
+        }
+        circuitBreakerRegistry.replace(old.getName(), circuitBreaker);
+        return circuitBreaker;
+    }
+
+    private Retry replace(final Retry old, final RetryConfig config) {
+        final Retry retry = Retry.of(old.getName(), config, old.getTags());
+        retryRegistry.replace(old.getName(), retry);
+        return retry;
+    }
+}
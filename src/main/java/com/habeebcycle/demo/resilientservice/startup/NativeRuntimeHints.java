@@ -0,0 +1,51 @@
+package com.habeebcycle.demo.resilientservice.startup;
+
+import com.habeebcycle.demo.resilientservice.handler.BatchItem;
+import com.habeebcycle.demo.resilientservice.handler.Post;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.beans.factory.config.YamlPropertiesFactoryBean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.ClassUtils;
+
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+/**
+ * Native image hints the AOT processing cannot infer.
+ * <p>
+ * Resilience4j instantiates the predicates and resolves the exception classes named in the {@code resilience4j.*}
+ * section of {@code application.yaml} by reflection, e.g. {@code RecordFailurePredicate}; every class name found
+ * there is registered, so a class added to the configuration is covered without touching this registrar. The
+ * records handlers write with {@code body(Flux, Class)} are registered for Jackson.
+ */
+public class NativeRuntimeHints implements RuntimeHintsRegistrar {
+
+    private static final String CONFIGURATION = "application.yaml";
+    private static final String RESILIENCE4J = "resilience4j.";
+    private static final Pattern CLASS_NAME = Pattern.compile("([a-z_$][\\w$]*\\.)+[A-Z][\\w$]*");
+
+    @Override
+    public void registerHints(final RuntimeHints hints, final ClassLoader classLoader) {
+        final ClassPathResource configuration = new ClassPathResource(CONFIGURATION, classLoader);
+        if (configuration.exists()) {
+            final YamlPropertiesFactoryBean yaml = new YamlPropertiesFactoryBean();
+            yaml.setResources(configuration);
+            final Properties properties = yaml.getObject();
+            if (properties != null) {
+                properties.stringPropertyNames().stream()
+                        .filter(name -> name.startsWith(RESILIENCE4J))
+                        .map(properties::getProperty)
+                        .map(String::trim)
+                        .filter(value -> CLASS_NAME.matcher(value).matches() && ClassUtils.isPresent(value, classLoader))
+                        .forEach(className -> hints.reflection().registerType(TypeReference.of(className),
+                                MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS));
+            }
+        }
+
+        hints.reflection().registerType(BatchItem.class, MemberCategory.INVOKE_PUBLIC_METHODS, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+        hints.reflection().registerType(Post.class, MemberCategory.INVOKE_PUBLIC_METHODS, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+    }
+}
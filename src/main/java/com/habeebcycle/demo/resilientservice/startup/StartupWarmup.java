@@ -0,0 +1,83 @@
+package com.habeebcycle.demo.resilientservice.startup;
+
+import com.habeebcycle.demo.resilientservice.config.WarmupProperties;
+import com.habeebcycle.demo.resilientservice.http.web.ApplicationWebClient;
+import com.habeebcycle.demo.resilientservice.resilience.AdaptiveConcurrencyLimiter;
+import com.habeebcycle.demo.resilientservice.resilience.BudgetedRetry;
+import com.habeebcycle.demo.resilientservice.resilience.HedgingPolicy;
+import com.habeebcycle.demo.resilientservice.router.UpstreamRoute;
+import com.habeebcycle.demo.resilientservice.router.UpstreamRoutes;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Does at startup what the first requests would otherwise do, since runners complete before the readiness probe
+ * reports the application as accepting traffic: assembles each route's decorators, which creates its concurrency
+ * limit, hedging latency window and retry budget and loads the Resilience4j operators, and warms up the upstream
+ * HttpClients (event loops, DNS resolver and native transport), optionally opening connections too. Nothing here
+ * is subscribed through a route's circuit breaker or metrics. A failed or slow warm-up is logged and never fails
+ * the startup.
+ */
+@Component
+public class StartupWarmup implements ApplicationRunner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StartupWarmup.class);
+
+    private final WarmupProperties properties;
+    private final UpstreamRoutes upstreamRoutes;
+    private final ApplicationWebClient applicationWebClient;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final HedgingPolicy hedgingPolicy;
+    private final BudgetedRetry budgetedRetry;
+
+    public StartupWarmup(final WarmupProperties properties, final UpstreamRoutes upstreamRoutes,
+                         final ApplicationWebClient applicationWebClient, final AdaptiveConcurrencyLimiter concurrencyLimiter,
+                         final HedgingPolicy hedgingPolicy, final BudgetedRetry budgetedRetry) {
+        this.properties = properties;
+        this.upstreamRoutes = upstreamRoutes;
+        this.applicationWebClient = applicationWebClient;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.hedgingPolicy = hedgingPolicy;
+        this.budgetedRetry = budgetedRetry;
+    }
+
+    @Override
+    public void run(final ApplicationArguments args) {
+        if (!properties.enabled()) {
+            return;
+        }
+        final long start = System.nanoTime();
+        upstreamRoutes.all().forEach(this::assemble);
+
+        final Mono<Void> connections = !properties.preconnect() ? Mono.empty()
+                : applicationWebClient.preconnect(properties.method(), properties.path(), properties.connections());
+        applicationWebClient.warmup()
+                .then(connections)
+                .timeout(properties.timeout())
+                .onErrorResume(throwable -> {
+                    LOG.warn("Startup warm-up did not complete: [{}]", throwable.toString());
+                    return Mono.empty();
+                })
+                .block();
+        LOG.info("Warmed up [{}] upstream routes in [{}] ms", upstreamRoutes.all().size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Builds the decorators of a route's upstream call in the order the handler applies them, never subscribed.
+     */
+    private void assemble(final UpstreamRoute route) {
+        Mono.never()
+                .transform(CircuitBreakerOperator.of(route.circuitBreaker()))
+                .transform(concurrencyLimiter.of(route.path()))
+                .transform(hedgingPolicy.of(route.path()))
+                .transform(budgetedRetry.of(route.retry()));
+    }
+}
@@ -0,0 +1,111 @@
+package com.habeebcycle.demo.resilientservice;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class BatchRequestTests {
+
+	@Autowired private ApplicationContext context;
+	@Autowired private ObjectMapper objectMapper;
+
+	private MockWebServer mockBackEnd;
+	private WebTestClient testClient;
+
+	@BeforeEach
+	void setUpTestCase() throws IOException {
+		this.mockBackEnd = new MockWebServer();
+		this.mockBackEnd.setDispatcher(new Dispatcher() {
+			@Override
+			public @NonNull MockResponse dispatch(@NonNull final RecordedRequest request) {
+				return switch (String.valueOf(request.getPath())) {
+					case "/posts/1" -> new MockResponse().setBody("{\n  \"id\": 1\n}").setResponseCode(200);
+					case "/posts/3" -> new MockResponse().setBody("{\"id\": 3}").setResponseCode(200);
+					default -> new MockResponse().setBody("Not found").setResponseCode(404);
+				};
+			}
+		});
+		this.mockBackEnd.start(54500); //Port defined on the application.yaml file
+
+		this.testClient = WebTestClient
+				.bindToApplicationContext(context)
+				.configureClient().responseTimeout(Duration.ofSeconds(60))
+				.build();
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		this.mockBackEnd.shutdown();
+	}
+
+	@Test
+	void shouldStreamEveryItemAsNdjsonWithPartialFailuresInPlace() {
+		final String body = testClient.get().uri("/services/posts?ids=1,2,3")
+				.accept(MediaType.APPLICATION_NDJSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+				.expectBody(String.class)
+				.returnResult().getResponseBody();
+
+		assertThat(body).isNotNull();
+		final Map<String, JsonNode> items = Arrays.stream(body.split("\n"))
+				.map(this::readTree)
+				.collect(Collectors.toMap(item -> item.get("id").asText(), Function.identity()));
+
+		assertThat(items).hasSize(3);
+		assertThat(items.get("1").get("status").asInt()).isEqualTo(200);
+		assertThat(items.get("1").get("body").get("id").asInt()).isEqualTo(1);
+		assertThat(items.get("2").get("status").asInt()).isEqualTo(404);
+		assertThat(items.get("2").get("error").asText()).isEqualTo("Not found");
+		assertThat(items.get("3").get("body").get("id").asInt()).isEqualTo(3);
+		assertThat(mockBackEnd.getRequestCount()).isEqualTo(3);
+	}
+
+	@Test
+	void shouldReturnJsonArrayAndRejectInvalidIds() {
+		testClient.get().uri("/services/posts?ids=1,3,1")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.length()").isEqualTo(2);
+
+		testClient.get().uri("/services/posts?ids=,")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isBadRequest();
+	}
+
+	private JsonNode readTree(final String line) {
+		try {
+			return objectMapper.readTree(line);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
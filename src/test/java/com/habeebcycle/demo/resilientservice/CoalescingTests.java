@@ -0,0 +1,80 @@
+package com.habeebcycle.demo.resilientservice;
+
+import com.habeebcycle.demo.resilientservice.resilience.Deadline;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "api.cache.enabled=false")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class CoalescingTests {
+
+	@Autowired private ApplicationContext context;
+
+	private MockWebServer mockBackEnd;
+	private WebTestClient testClient;
+
+	@BeforeEach
+	void setUpTestCase() throws IOException {
+		this.mockBackEnd = new MockWebServer();
+		this.mockBackEnd.start(54500); //Port defined on the application.yaml file
+
+		this.testClient = WebTestClient
+				.bindToApplicationContext(context)
+				.configureClient().responseTimeout(Duration.ofSeconds(60))
+				.build();
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		this.mockBackEnd.shutdown();
+	}
+
+	@Test
+	void shouldNotFailCoalescedCallersOnAnotherCallersDeadline() throws Exception {
+		// Warms the request path up, so both callers below reach the coalescer well within the short deadline
+		mockBackEnd.enqueue(new MockResponse().setBody("{\"id\": 2}").setResponseCode(200));
+		testClient.get().uri("/services/posts/2")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk();
+		mockBackEnd.takeRequest();
+
+		mockBackEnd.enqueue(new MockResponse().setBody("{\"id\": 1}").setResponseCode(200).setHeadersDelay(1500, TimeUnit.MILLISECONDS));
+		// The short deadline arrives first, so its request leads the shared upstream call
+		final CompletableFuture<Integer> hurried = CompletableFuture.supplyAsync(() -> testClient.get().uri("/services/posts/1")
+				.header(Deadline.HEADER, "500")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.returnResult(String.class)
+				.getStatus().value());
+		Thread.sleep(150);
+
+		testClient.get().uri("/services/posts/1")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.id").isEqualTo(1);
+
+		assertThat(hurried.get(10, TimeUnit.SECONDS)).isEqualTo(504);
+		assertThat(mockBackEnd.getRequestCount()).isEqualTo(2); // One shared call
+		// Bounded by the route's timeout, not by the leading caller's budget
+		assertThat(Long.parseLong(mockBackEnd.takeRequest().getHeader(Deadline.HEADER))).isGreaterThan(1500);
+	}
+}
@@ -0,0 +1,150 @@
+package com.habeebcycle.demo.resilientservice;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.decoder.Decoder;
+import com.aayushatharva.brotli4j.decoder.DecoderJNI;
+import com.aayushatharva.brotli4j.decoder.DirectDecompress;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.netty.http.client.HttpClient;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Goes through the real server, as response compression happens in its Netty pipeline.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class CompressionTests {
+
+	private static final String LISTING = IntStream.rangeClosed(1, 100)
+			.mapToObj(id -> "{\"userId\": 1, \"id\": " + id + ", \"title\": \"sunt aut facere repellat provident\", \"body\": \"quia et suscipit suscipit recusandae consequuntur\"}")
+			.collect(Collectors.joining(",", "[", "]"));
+
+	@LocalServerPort private int port;
+
+	private MockWebServer mockBackEnd;
+	private WebTestClient testClient;
+
+	@BeforeEach
+	void setUpTestCase() throws IOException {
+		this.mockBackEnd = new MockWebServer();
+		this.mockBackEnd.start(54500); //Port defined on the application.yaml file
+
+		this.testClient = WebTestClient
+				.bindToServer(new ReactorClientHttpConnector(HttpClient.create())) // Spring's default connector decodes gzip
+				.baseUrl("http://localhost:" + port)
+				.responseTimeout(Duration.ofSeconds(60))
+				.build();
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		this.mockBackEnd.shutdown();
+	}
+
+	@Test
+	void shouldDecodeGzipFromUpstreamAndCompressLargeResponse() throws IOException, InterruptedException {
+		mockBackEnd.enqueue(new MockResponse().setResponseCode(200)
+				.setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+				.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip")
+				.setBody(new Buffer().write(gzip(LISTING))));
+
+		final byte[] body = testClient.get().uri("/services/posts")
+				.accept(MediaType.APPLICATION_JSON)
+				.header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip")
+				.expectBody().returnResult().getResponseBody();
+
+		assertThat(body).hasSizeLessThan(LISTING.length() / 4);
+		assertThat(gunzip(body)).isEqualTo(LISTING);
+		final RecordedRequest request = mockBackEnd.takeRequest(1, TimeUnit.SECONDS);
+		assertThat(request.getHeader(HttpHeaders.ACCEPT_ENCODING)).contains("gzip");
+	}
+
+	@Test
+	void shouldNegotiateBrotliWithCallerThatAcceptsIt() throws IOException {
+		mockBackEnd.enqueue(new MockResponse().setResponseCode(200).setBody(LISTING)
+				.setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE));
+
+		final byte[] body = testClient.get().uri("/services/posts")
+				.accept(MediaType.APPLICATION_JSON)
+				.header(HttpHeaders.ACCEPT_ENCODING, "br")
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().valueEquals(HttpHeaders.CONTENT_ENCODING, "br")
+				.expectBody().returnResult().getResponseBody();
+
+		assertThat(body).hasSizeLessThan(LISTING.length() / 4);
+		Brotli4jLoader.ensureAvailability();
+		final DirectDecompress decompressed = Decoder.decompress(body);
+		assertThat(decompressed.getResultStatus()).isEqualTo(DecoderJNI.Status.DONE);
+		assertThat(new String(decompressed.getDecompressedData(), StandardCharsets.UTF_8)).isEqualTo(LISTING);
+	}
+
+	@Test
+	void shouldNotCompressResponseBelowThreshold() {
+		mockBackEnd.enqueue(new MockResponse().setResponseCode(200).setBody("{\"id\": 1}")
+				.setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE));
+
+		testClient.get().uri("/services/posts/1")
+				.accept(MediaType.APPLICATION_JSON)
+				.header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().doesNotExist(HttpHeaders.CONTENT_ENCODING)
+				.expectBody(String.class).isEqualTo("{\"id\": 1}");
+	}
+
+	@Test
+	void shouldNotCompressForCallerWithoutAcceptEncoding() {
+		mockBackEnd.enqueue(new MockResponse().setResponseCode(200).setBody(LISTING)
+				.setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE));
+
+		testClient.get().uri("/services/posts")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().doesNotExist(HttpHeaders.CONTENT_ENCODING)
+				.expectBody(String.class).isEqualTo(LISTING);
+	}
+
+	static byte[] gzip(final String text) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+			gzip.write(text.getBytes(StandardCharsets.UTF_8));
+		}
+		return bytes.toByteArray();
+	}
+
+	static String gunzip(final byte[] compressed) throws IOException {
+		try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+			return new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+}
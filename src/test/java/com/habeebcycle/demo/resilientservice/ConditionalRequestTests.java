@@ -0,0 +1,137 @@
+package com.habeebcycle.demo.resilientservice;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "api.cache.routes.[/posts/{id}]=60s")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ConditionalRequestTests {
+
+	private static final String BODY = "{\"id\": 1, \"title\": \"conditional\"}";
+
+	@Autowired private ApplicationContext context;
+	@Autowired private MeterRegistry meterRegistry;
+
+	private MockWebServer mockBackEnd;
+	private WebTestClient testClient;
+
+	@BeforeEach
+	void setUpTestCase() throws IOException {
+		this.mockBackEnd = new MockWebServer();
+		this.mockBackEnd.start(54500); //Port defined on the application.yaml file
+
+		this.testClient = WebTestClient
+				.bindToApplicationContext(context)
+				.configureClient().responseTimeout(Duration.ofSeconds(60))
+				.build();
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		this.mockBackEnd.shutdown();
+	}
+
+	@Test
+	void shouldAnswerMatchingIfNoneMatchWithNotModifiedFromCache() {
+		mockBackEnd.enqueue(new MockResponse().setBody(BODY).setResponseCode(200)
+				.setHeader(HttpHeaders.CONTENT_TYPE, "application/problem+json")
+				.setHeader(HttpHeaders.ETAG, "\"v1\""));
+
+		testClient.get().uri("/services/posts/1")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentType(MediaType.APPLICATION_PROBLEM_JSON)
+				.expectHeader().valueEquals(HttpHeaders.ETAG, "\"v1\"")
+				.expectBody(String.class).isEqualTo(BODY);
+
+		testClient.get().uri("/services/posts/1")
+				.accept(MediaType.APPLICATION_JSON)
+				.header(HttpHeaders.IF_NONE_MATCH, "\"v1\"")
+				.exchange()
+				.expectStatus().isNotModified()
+				.expectBody().isEmpty();
+
+		assertThat(mockBackEnd.getRequestCount()).isEqualTo(1);
+		assertThat(meterRegistry.get("proxy.requests").tags("status", "304").timer().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("proxy.requests").tags("status", "200").timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldDeriveWeakETagWhenUpstreamSendsNone() {
+		mockBackEnd.enqueue(new MockResponse().setBody(BODY).setResponseCode(200));
+
+		final String eTag = testClient.get().uri("/services/posts/1")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk()
+				.returnResult(String.class).getResponseHeaders().getETag();
+		assertThat(eTag).startsWith("W/\"");
+
+		testClient.get().uri("/services/posts/1")
+				.accept(MediaType.APPLICATION_JSON)
+				.header(HttpHeaders.IF_NONE_MATCH, eTag)
+				.exchange()
+				.expectStatus().isNotModified();
+	}
+
+	@Test
+	void shouldRevalidateWithUpstreamWhenCacheControlRequiresIt() throws InterruptedException {
+		mockBackEnd.enqueue(new MockResponse().setBody(BODY).setResponseCode(200)
+				.setHeader(HttpHeaders.ETAG, "\"v1\"")
+				.setHeader(HttpHeaders.LAST_MODIFIED, "Tue, 15 Nov 1994 12:45:26 GMT")
+				.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache"));
+		mockBackEnd.enqueue(new MockResponse().setResponseCode(304)
+				.setHeader(HttpHeaders.ETAG, "\"v1\"")
+				.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache"));
+
+		for (int i = 0; i < 2; i++) {
+			testClient.get().uri("/services/posts/1")
+					.accept(MediaType.APPLICATION_JSON)
+					.exchange()
+					.expectStatus().isOk()
+					.expectHeader().valueEquals(HttpHeaders.CACHE_CONTROL, "no-cache")
+					.expectBody(String.class).isEqualTo(BODY);
+		}
+
+		assertThat(mockBackEnd.takeRequest(1, TimeUnit.SECONDS).getHeader(HttpHeaders.IF_NONE_MATCH)).isNull();
+		final RecordedRequest revalidation = mockBackEnd.takeRequest(1, TimeUnit.SECONDS);
+		assertThat(revalidation.getHeader(HttpHeaders.IF_NONE_MATCH)).isEqualTo("\"v1\"");
+		assertThat(revalidation.getHeader(HttpHeaders.IF_MODIFIED_SINCE)).isEqualTo("Tue, 15 Nov 1994 12:45:26 GMT");
+	}
+
+	@Test
+	void shouldNotStoreResponseMarkedNoStore() throws InterruptedException {
+		for (int i = 0; i < 2; i++) {
+			mockBackEnd.enqueue(new MockResponse().setBody(BODY).setResponseCode(200)
+					.setHeader(HttpHeaders.ETAG, "\"v1\"")
+					.setHeader(HttpHeaders.CACHE_CONTROL, "no-store"));
+			testClient.get().uri("/services/posts/1")
+					.accept(MediaType.APPLICATION_JSON)
+					.exchange()
+					.expectStatus().isOk();
+		}
+
+		assertThat(mockBackEnd.getRequestCount()).isEqualTo(2);
+		mockBackEnd.takeRequest(1, TimeUnit.SECONDS);
+		assertThat(mockBackEnd.takeRequest(1, TimeUnit.SECONDS).getHeader(HttpHeaders.IF_NONE_MATCH)).isNull();
+	}
+}
@@ -0,0 +1,86 @@
+package com.habeebcycle.demo.resilientservice;
+
+import com.habeebcycle.demo.resilientservice.resilience.Deadline;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Each request makes its own upstream call, which carries its deadline; coalesced calls run on the route's timeout
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "api.coalescing.enabled=false")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class DeadlinePropagationTests {
+
+	@Autowired private ApplicationContext context;
+	@Autowired private CircuitBreakerRegistry circuitBreakerRegistry;
+	@Autowired private MeterRegistry meterRegistry;
+
+	private MockWebServer mockBackEnd;
+	private WebTestClient testClient;
+
+	@BeforeEach
+	void setUpTestCase() throws IOException {
+		this.mockBackEnd = new MockWebServer();
+		this.mockBackEnd.start(54500); //Port defined on the application.yaml file
+
+		this.testClient = WebTestClient
+				.bindToApplicationContext(context)
+				.configureClient().responseTimeout(Duration.ofSeconds(60))
+				.build();
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		this.mockBackEnd.shutdown();
+	}
+
+	@Test
+	void shouldSendRemainingBudgetUpstream() throws InterruptedException {
+		mockBackEnd.enqueue(new MockResponse().setBody("{\"id\": 1}").setResponseCode(200));
+
+		testClient.get().uri("/services/posts/1")
+				.header(Deadline.HEADER, "2000")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk();
+
+		final RecordedRequest request = mockBackEnd.takeRequest(1, TimeUnit.SECONDS);
+		assertThat(request).isNotNull();
+		assertThat(Long.parseLong(request.getHeader(Deadline.HEADER))).isPositive().isLessThanOrEqualTo(2000);
+	}
+
+	@Test
+	void shouldCancelSlowUpstreamWhenDeadlinePassesWithoutRecordingFailure() {
+		mockBackEnd.enqueue(new MockResponse().setBody("{\"id\": 1}").setResponseCode(200).setHeadersDelay(5, TimeUnit.SECONDS));
+		final CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("testService");
+
+		final long start = System.nanoTime();
+		testClient.get().uri("/services/posts/1")
+				.header(Deadline.HEADER, "1000") // Leaves a cold context time to send the request
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isEqualTo(504);
+
+		assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(3));
+		assertThat(mockBackEnd.getRequestCount()).isEqualTo(1); // Not retried
+		assertThat(circuitBreaker.getMetrics().getNumberOfFailedCalls()).isZero();
+		assertThat(meterRegistry.get("proxy.deadline.exceeded").tag("route", "/posts/{id}").counter().count()).isEqualTo(1);
+	}
+}
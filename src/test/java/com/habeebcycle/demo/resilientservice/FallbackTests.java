@@ -0,0 +1,44 @@
+package com.habeebcycle.demo.resilientservice;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.Duration;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"api.routes.post.fallback=fileFallback", "api.fallback.file.directory=src/test/resources/fallback"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class FallbackTests {
+
+	@Autowired private ApplicationContext context;
+	@Autowired private CircuitBreakerRegistry circuitBreakerRegistry;
+
+	@Test
+	void shouldServeRouteFallbackWhileCircuitIsOpen() {
+		final WebTestClient testClient = WebTestClient
+				.bindToApplicationContext(context)
+				.configureClient().responseTimeout(Duration.ofSeconds(60))
+				.build();
+		circuitBreakerRegistry.circuitBreaker("testService").transitionToForcedOpenState();
+
+		testClient.get().uri("/services/posts/1")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.title").isEqualTo("from fallback");
+
+		testClient.get().uri("/services/posts/2")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isEqualTo(503)
+				.expectBody()
+				.jsonPath("$.message").isEqualTo("API service is unavailable");
+	}
+}
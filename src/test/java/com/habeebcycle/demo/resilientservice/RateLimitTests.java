@@ -0,0 +1,78 @@
+package com.habeebcycle.demo.resilientservice;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"api.rate-limit.enabled=true", "api.rate-limit.clientRate=0.1", "api.rate-limit.clientBurst=1", "api.cache.enabled=false"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class RateLimitTests {
+
+	@Autowired private ApplicationContext context;
+
+	private MockWebServer mockBackEnd;
+	private WebTestClient testClient;
+
+	@BeforeEach
+	void setUpTestCase() throws IOException {
+		this.mockBackEnd = new MockWebServer();
+		this.mockBackEnd.start(54500); //Port defined on the application.yaml file
+
+		this.testClient = WebTestClient
+				.bindToApplicationContext(context)
+				.configureClient().responseTimeout(Duration.ofSeconds(60))
+				.build();
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		this.mockBackEnd.shutdown();
+	}
+
+	@Test
+	void shouldRejectClientOverItsLimitWith429AndLimitHeaders() {
+		mockBackEnd.enqueue(new MockResponse().setBody("{\"id\": 1}").setResponseCode(200));
+		mockBackEnd.enqueue(new MockResponse().setBody("{\"id\": 1}").setResponseCode(200));
+
+		testClient.get().uri("/services/posts/1")
+				.accept(MediaType.APPLICATION_JSON)
+				.header("X-Api-Key", "noisy")
+				.exchange()
+				.expectStatus().isOk();
+
+		testClient.get().uri("/services/posts/1")
+				.accept(MediaType.APPLICATION_JSON)
+				.header("X-Api-Key", "noisy")
+				.exchange()
+				.expectStatus().isEqualTo(429)
+				.expectHeader().valueEquals("RateLimit-Limit", "1")
+				.expectHeader().valueEquals("RateLimit-Remaining", "0")
+				.expectHeader().exists(HttpHeaders.RETRY_AFTER)
+				.expectBody()
+				.jsonPath("$.message").isEqualTo("Rate limit exceeded");
+
+		// Another client is not held back by the noisy one
+		testClient.get().uri("/services/posts/1")
+				.accept(MediaType.APPLICATION_JSON)
+				.header("X-Api-Key", "quiet")
+				.exchange()
+				.expectStatus().isOk();
+
+		assertThat(mockBackEnd.getRequestCount()).isEqualTo(2);
+	}
+}
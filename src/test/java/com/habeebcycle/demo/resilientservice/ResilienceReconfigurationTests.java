@@ -0,0 +1,135 @@
+package com.habeebcycle.demo.resilientservice;
+
+import com.habeebcycle.demo.resilientservice.router.UpstreamRoute;
+import com.habeebcycle.demo.resilientservice.router.UpstreamRoutes;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {"api.cache.enabled=false",
+		"management.endpoints.web.exposure.include=health,resilience"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ResilienceReconfigurationTests {
+
+	@Autowired private ApplicationContext context;
+	@Autowired private UpstreamRoutes upstreamRoutes;
+	@Autowired private CircuitBreakerRegistry circuitBreakerRegistry;
+	@Autowired private RetryRegistry retryRegistry;
+
+	private MockWebServer mockBackEnd;
+	private WebTestClient testClient;
+
+	@BeforeEach
+	void setUpTestCase() throws IOException {
+		this.mockBackEnd = new MockWebServer();
+		this.mockBackEnd.start(54500); //Port defined on the application.yaml file
+
+		this.testClient = WebTestClient
+				.bindToApplicationContext(context)
+				.configureClient().responseTimeout(Duration.ofSeconds(60))
+				.build();
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		this.mockBackEnd.shutdown();
+	}
+
+	@Test
+	void shouldSwapResilienceInstancesAndKeepInFlightCallsOnTheOldOnes() {
+		final UpstreamRoute before = upstreamRoutes.get("post");
+		final float failureRateThreshold = before.circuitBreaker().getCircuitBreakerConfig().getFailureRateThreshold();
+		mockBackEnd.enqueue(new MockResponse().setBody("{\"id\": 1}").setResponseCode(200).setBodyDelay(1, TimeUnit.SECONDS));
+		final CompletableFuture<Void> inFlight = CompletableFuture.runAsync(() -> testClient.get().uri("/services/posts/1")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk());
+		await().atMost(Duration.ofSeconds(5)).until(() -> mockBackEnd.getRequestCount() == 1);
+
+		testClient.post().uri("/actuator/resilience/post")
+				.contentType(MediaType.APPLICATION_JSON)
+				.bodyValue(Map.of("failureRateThreshold", 25, "maxAttempts", 1, "timeout", "5s", "waitDurationInOpenState", "2s"))
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.failureRateThreshold").isEqualTo(25.0)
+				.jsonPath("$.maxAttempts").isEqualTo(1)
+				.jsonPath("$.state").isEqualTo("CLOSED");
+		inFlight.join();
+
+		final UpstreamRoute after = upstreamRoutes.get("post");
+		assertThat(after.circuitBreaker()).isNotSameAs(before.circuitBreaker())
+				.isSameAs(circuitBreakerRegistry.circuitBreaker(before.circuitBreaker().getName()));
+		assertThat(after.retry()).isSameAs(retryRegistry.retry(before.retry().getName()));
+		assertThat(after.circuitBreaker().getCircuitBreakerConfig().getFailureRateThreshold()).isEqualTo(25f);
+		assertThat(after.retry().getRetryConfig().getMaxAttempts()).isEqualTo(1);
+		assertThat(after.timeout()).isEqualTo(Duration.ofSeconds(5));
+		assertThat(before.circuitBreaker().getCircuitBreakerConfig().getFailureRateThreshold()).isEqualTo(failureRateThreshold);
+
+		// The call started before the swap was recorded by the breaker it started with
+		assertThat(before.circuitBreaker().getMetrics().getNumberOfSuccessfulCalls()).isEqualTo(1);
+		assertThat(after.circuitBreaker().getMetrics().getNumberOfSuccessfulCalls()).isZero();
+
+		mockBackEnd.enqueue(new MockResponse().setBody("{\"id\": 2}").setResponseCode(200));
+		testClient.get().uri("/services/posts/2")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk();
+		assertThat(after.circuitBreaker().getMetrics().getNumberOfSuccessfulCalls()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldCarryOverOpenStateAndRejectInvalidSettings() {
+		final CircuitBreaker before = upstreamRoutes.get("post").circuitBreaker();
+		final float failureRateThreshold = before.getCircuitBreakerConfig().getFailureRateThreshold();
+		before.transitionToOpenState();
+
+		testClient.post().uri("/actuator/resilience/post")
+				.contentType(MediaType.APPLICATION_JSON)
+				.bodyValue(Map.of("minimumNumberOfCalls", 8))
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.minimumNumberOfCalls").isEqualTo(8)
+				.jsonPath("$.state").isEqualTo("OPEN");
+
+		testClient.post().uri("/actuator/resilience/post")
+				.contentType(MediaType.APPLICATION_JSON)
+				.bodyValue(Map.of("failureRateThreshold", 150))
+				.exchange()
+				.expectStatus().isBadRequest();
+
+		testClient.post().uri("/actuator/resilience/unknown")
+				.contentType(MediaType.APPLICATION_JSON)
+				.bodyValue(Map.of("maxAttempts", 2))
+				.exchange()
+				.expectStatus().isBadRequest();
+
+		testClient.get().uri("/actuator/resilience")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.post.minimumNumberOfCalls").isEqualTo(8)
+				.jsonPath("$.post.failureRateThreshold").isEqualTo((double) failureRateThreshold);
+	}
+}
@@ -138,8 +138,8 @@ class ResilientServiceApplicationTests {
 				.jsonPath("$.statusCode").isEqualTo(503)
 				.jsonPath("$.timestamp").isNotEmpty();
 
-		//Wait at least 10 seconds for the circuit to transition to half open state
-		await().atMost(Duration.ofMillis(10000)).until(() -> circuitBreaker.getState().equals(CircuitBreaker.State.HALF_OPEN));
+		//Wait at least 10 seconds for the circuit to transition to half open state, plus slack for the 100ms poll interval
+		await().atMost(Duration.ofMillis(10500)).until(() -> circuitBreaker.getState().equals(CircuitBreaker.State.HALF_OPEN));
 		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
 
 		testClient.get().uri("/services/posts/6")
@@ -154,4 +154,42 @@ class ResilientServiceApplicationTests {
 		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
 	}
 
+	@Test
+	void shouldDServeStaleCachedResponseWhenCircuitIsOpen() {
+		testClient = WebTestClient
+				.bindToApplicationContext(context)
+				.configureClient().responseTimeout(Duration.ofSeconds(60))
+				.build();
+
+		mockBackEnd.enqueue(new MockResponse().setBody("{\"message\": \"cached\"}").setResponseCode(200));
+
+		testClient.get().uri("/services/posts/7")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.message").isEqualTo("cached");
+
+		circuitBreaker.transitionToOpenState();
+		//Let the cached entry outlive its 1 second TTL (test application.yaml) so the upstream would be called
+		await().pollDelay(Duration.ofMillis(1500)).until(() -> true);
+
+		testClient.get().uri("/services/posts/7")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.message").isEqualTo("cached");
+
+		testClient.get().uri("/services/posts/8")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().is5xxServerError()
+				.expectBody()
+				.jsonPath("$.message").isEqualTo("API service is unavailable");
+
+		assertThat(mockBackEnd.getRequestCount()).isEqualTo(1);
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+	}
+
 }
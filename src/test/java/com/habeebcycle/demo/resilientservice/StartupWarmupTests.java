@@ -0,0 +1,65 @@
+package com.habeebcycle.demo.resilientservice;
+
+import com.habeebcycle.demo.resilientservice.router.UpstreamRoutes;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Metrics are on, so a warm-up request seen by the WebClient observation would show up as http.client.requests
+@AutoConfigureObservability
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = {"api.warmup.path=/health", "api.warmup.method=GET", "api.warmup.connections=2"})
+class StartupWarmupTests {
+
+	// Started before the context, whose runners send the warm-up requests
+	private static MockWebServer mockBackEnd;
+
+	@Autowired private CircuitBreakerRegistry circuitBreakerRegistry;
+	@Autowired private MeterRegistry meterRegistry;
+	@Autowired private UpstreamRoutes upstreamRoutes;
+
+	@BeforeAll
+	static void setUpUpstream() throws IOException {
+		mockBackEnd = new MockWebServer();
+		mockBackEnd.start(54500); //Port defined on the application.yaml file
+	}
+
+	@AfterAll
+	static void tearDown() throws IOException {
+		mockBackEnd.shutdown();
+	}
+
+	@Test
+	void shouldPreconnectWithConfiguredMethodThatNoRouteRecords() throws InterruptedException {
+		final int requests = mockBackEnd.getRequestCount();
+		assertThat(requests).isGreaterThanOrEqualTo(2);
+		for (int i = 0; i < requests; i++) {
+			final RecordedRequest request = mockBackEnd.takeRequest(1, TimeUnit.SECONDS);
+			assertThat(request).isNotNull();
+			assertThat(request.getMethod()).isEqualTo("GET");
+			assertThat(request.getPath()).isEqualTo("/health");
+		}
+
+		circuitBreakerRegistry.getAllCircuitBreakers().forEach(circuitBreaker ->
+				assertThat(circuitBreaker.getMetrics().getNumberOfBufferedCalls()).isZero());
+		assertThat(meterRegistry.find("http.client.requests").meters()).isEmpty();
+	}
+
+	@Test
+	void shouldAssembleEveryRouteDecoratorBeforeTheFirstRequest() {
+		upstreamRoutes.all().forEach(route ->
+				assertThat(meterRegistry.find("proxy.retry.budget").tag("retry", route.retry().getName()).gauge()).isNotNull());
+	}
+}
@@ -0,0 +1,150 @@
+package com.habeebcycle.demo.resilientservice;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the proxy in streaming mode with an in-memory codec limit far below the upstream payload size, so any
+ * aggregation of the body on the way through would fail the exchange with a DataBufferLimitException.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = {"api.client.streaming=true", "api.client.maxInMemorySize=262144"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class StreamingProxyTests {
+
+	private static final int BODY_SIZE = 16 * 1024 * 1024;
+	private static final int MAX_IN_MEMORY_SIZE = 262144;
+	private static final String POSTS_CIRCUIT_BREAKER = "postsList"; // Circuit breaker of the posts route on the application.yaml file
+
+	@Autowired private ApplicationContext context;
+	@Autowired private CircuitBreakerRegistry circuitBreakerRegistry;
+
+	private MockWebServer mockBackEnd;
+	private WebTestClient testClient;
+	private CircuitBreaker circuitBreaker;
+
+	@BeforeEach
+	void setUpTestCase() throws IOException {
+		this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(POSTS_CIRCUIT_BREAKER);
+
+		this.mockBackEnd = new MockWebServer();
+		this.mockBackEnd.start(54500); //Port defined on the application.yaml file
+
+		this.testClient = WebTestClient
+				.bindToApplicationContext(context)
+				.configureClient().responseTimeout(Duration.ofSeconds(60))
+				.build();
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		this.mockBackEnd.shutdown();
+	}
+
+	@Test
+	void shouldStreamLargeBodyWithoutBuffering() {
+		final byte[] payload = new byte[BODY_SIZE];
+		Arrays.fill(payload, (byte) 'a');
+		mockBackEnd.enqueue(new MockResponse()
+				.setHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+				.setBody(new Buffer().write(payload))
+				.setResponseCode(200));
+
+		final AtomicLong received = new AtomicLong();
+		final AtomicInteger largestChunk = new AtomicInteger();
+		final Flux<DataBuffer> body = testClient.get().uri("/services/posts")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentType(MediaType.APPLICATION_JSON)
+				.returnResult(DataBuffer.class)
+				.getResponseBody();
+
+		StepVerifier.create(body.doOnNext(buffer -> {
+					received.addAndGet(buffer.readableByteCount());
+					largestChunk.accumulateAndGet(buffer.readableByteCount(), Math::max);
+					DataBufferUtils.release(buffer);
+				}))
+				.thenConsumeWhile(buffer -> true)
+				.verifyComplete();
+
+		assertThat(received.get()).isEqualTo(BODY_SIZE);
+		assertThat(largestChunk.get()).isLessThan(MAX_IN_MEMORY_SIZE);
+		assertThat(mockBackEnd.getRequestCount()).isEqualTo(1);
+		assertThat(circuitBreaker.getMetrics().getNumberOfSuccessfulCalls()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldRecordFailureWithoutRetryWhenStreamBreaksMidBody() {
+		final byte[] payload = new byte[BODY_SIZE];
+		mockBackEnd.enqueue(new MockResponse()
+				.setHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+				.setBody(new Buffer().write(payload))
+				.setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY)
+				.setResponseCode(200));
+		mockBackEnd.enqueue(new MockResponse().setBody("{\"message\": \"success\"}").setResponseCode(200));
+
+		final Flux<DataBuffer> body = testClient.get().uri("/services/posts")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk()
+				.returnResult(DataBuffer.class)
+				.getResponseBody();
+
+		StepVerifier.create(body.doOnNext(DataBufferUtils::release))
+				.thenConsumeWhile(buffer -> true)
+				.verifyError();
+
+		assertThat(mockBackEnd.getRequestCount()).isEqualTo(1);
+		assertThat(circuitBreaker.getMetrics().getNumberOfFailedCalls()).isEqualTo(1);
+		assertThat(circuitBreaker.getMetrics().getNumberOfSuccessfulCalls()).isZero(); // Recorded once, when the body failed
+	}
+
+	@Test
+	void shouldPassEncodedBodyThroughUntouched() throws IOException, InterruptedException {
+		final byte[] encoded = CompressionTests.gzip("[{\"id\": 1}]");
+		mockBackEnd.enqueue(new MockResponse()
+				.setHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+				.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip")
+				.setBody(new Buffer().write(encoded))
+				.setResponseCode(200));
+
+		final byte[] body = testClient.get().uri("/services/posts")
+				.accept(MediaType.APPLICATION_JSON)
+				.header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip")
+				.expectBody().returnResult().getResponseBody();
+
+		assertThat(body).isEqualTo(encoded);
+		assertThat(mockBackEnd.takeRequest(1, TimeUnit.SECONDS).getHeader(HttpHeaders.ACCEPT_ENCODING)).isEqualTo("gzip");
+	}
+}
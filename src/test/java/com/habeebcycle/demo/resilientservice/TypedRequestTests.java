@@ -0,0 +1,134 @@
+package com.habeebcycle.demo.resilientservice;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class TypedRequestTests {
+
+	private static final String POSTS = IntStream.rangeClosed(1, 5)
+			.mapToObj(id -> "{\"userId\": 7, \"id\": " + id + ", \"title\": \"title " + id + "\", \"body\": \"body " + id
+					+ "\", \"tags\": [\"a\", \"b\"]}")
+			.collect(Collectors.joining(",\n", "[\n", "\n]"));
+	private static final String POSTS_CIRCUIT_BREAKER = "postsList"; // Circuit breaker of the posts route on the application.yaml file
+
+	@Autowired private ApplicationContext context;
+	@Autowired private CircuitBreakerRegistry circuitBreakerRegistry;
+
+	private MockWebServer mockBackEnd;
+	private WebTestClient testClient;
+
+	@BeforeEach
+	void setUpTestCase() throws IOException {
+		this.mockBackEnd = new MockWebServer();
+		this.mockBackEnd.start(54500); //Port defined on the application.yaml file
+
+		this.testClient = WebTestClient
+				.bindToApplicationContext(context)
+				.configureClient().responseTimeout(Duration.ofSeconds(60))
+				.build();
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		this.mockBackEnd.shutdown();
+	}
+
+	@Test
+	void shouldPageAndProjectPostsAsJsonArray() throws InterruptedException {
+		mockBackEnd.enqueue(new MockResponse().setBody(POSTS).setResponseCode(200).setHeader("Content-Type", "application/json"));
+
+		testClient.get().uri("/services/posts?fields=id,title&offset=1&limit=2")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+				.expectBody().json("[{\"id\": 2, \"title\": \"title 2\"}, {\"id\": 3, \"title\": \"title 3\"}]", true);
+
+		// Paging and projection stay in the proxy
+		assertThat(mockBackEnd.takeRequest().getPath()).isEqualTo("/posts");
+		// The upstream exchange is cancelled once the page is complete, which is still a single successful call
+		final CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(POSTS_CIRCUIT_BREAKER);
+		assertThat(circuitBreaker.getMetrics().getNumberOfSuccessfulCalls()).isEqualTo(1);
+		assertThat(circuitBreaker.getMetrics().getNumberOfFailedCalls()).isZero();
+	}
+
+	@Test
+	void shouldRecordOnlyFailureWhenPostsBreakMidBody() {
+		final String posts = IntStream.rangeClosed(1, 20_000)
+				.mapToObj(id -> "{\"userId\": 7, \"id\": " + id + ", \"title\": \"title " + id + "\", \"body\": \"body " + id + "\"}")
+				.collect(Collectors.joining(",\n", "[\n", "\n]"));
+		mockBackEnd.enqueue(new MockResponse().setBody(posts).setResponseCode(200).setHeader("Content-Type", "application/json")
+				.setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY));
+
+		// Whether the caller sees an error status or a broken stream depends on how much was written before the failure
+		testClient.get().uri("/services/posts?offset=15000")
+				.accept(MediaType.APPLICATION_NDJSON)
+				.exchange()
+				.returnResult(String.class)
+				.getResponseBody()
+				.onErrorResume(throwable -> Flux.empty())
+				.blockLast(Duration.ofSeconds(30));
+
+		final CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(POSTS_CIRCUIT_BREAKER);
+		assertThat(circuitBreaker.getMetrics().getNumberOfFailedCalls()).isEqualTo(1);
+		assertThat(circuitBreaker.getMetrics().getNumberOfSuccessfulCalls()).isZero();
+		assertThat(mockBackEnd.getRequestCount()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldWriteOnlyKnownFieldsAsNdjsonWhenOnlyLimited() {
+		mockBackEnd.enqueue(new MockResponse().setBody(POSTS).setResponseCode(200).setHeader("Content-Type", "application/json"));
+
+		final String body = testClient.get().uri("/services/posts?limit=2")
+				.accept(MediaType.APPLICATION_NDJSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+				.expectBody(String.class)
+				.returnResult().getResponseBody();
+
+		assertThat(body).isNotNull();
+		assertThat(body.split("\n")).containsExactly(
+				"{\"userId\":7,\"id\":1,\"title\":\"title 1\",\"body\":\"body 1\"}",
+				"{\"userId\":7,\"id\":2,\"title\":\"title 2\",\"body\":\"body 2\"}");
+	}
+
+	@Test
+	void shouldRejectUnknownFieldsAndOutOfRangeLimitsWithoutCallingUpstream() {
+		testClient.get().uri("/services/posts?fields=id,author")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isBadRequest()
+				.expectBody()
+				.jsonPath("$.message").isEqualTo("Parameter fields must list some of [body, id, title, userId]");
+
+		testClient.get().uri("/services/posts?limit=1001")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isBadRequest();
+
+		assertThat(mockBackEnd.getRequestCount()).isZero();
+	}
+}
@@ -0,0 +1,105 @@
+package com.habeebcycle.demo.resilientservice.cache;
+
+import com.habeebcycle.demo.resilientservice.config.CoalescingProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestCoalescerTests {
+
+	private SimpleMeterRegistry meterRegistry;
+	private RequestCoalescer coalescer;
+	private AtomicInteger subscriptions;
+	private AtomicInteger cancellations;
+	private Sinks.One<String> upstreamSink;
+	private Mono<String> upstream;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		coalescer = new RequestCoalescer(new CoalescingProperties(true), meterRegistry);
+		subscriptions = new AtomicInteger();
+		cancellations = new AtomicInteger();
+		upstreamSink = Sinks.one();
+		upstream = upstreamSink.asMono()
+				.doOnSubscribe(subscription -> subscriptions.incrementAndGet())
+				.doOnCancel(cancellations::incrementAndGet);
+	}
+
+	@Test
+	void shouldShareOneUpstreamCallBetweenConcurrentSubscribers() {
+		final Mono<String> first = coalescer.coalesce("GET /posts/1", upstream);
+		final Mono<String> second = coalescer.coalesce("GET /posts/1", upstream);
+
+		StepVerifier.create(Mono.zip(first, second))
+				.then(() -> upstreamSink.tryEmitValue("body"))
+				.assertNext(result -> {
+					assertThat(result.getT1()).isEqualTo("body");
+					assertThat(result.getT2()).isEqualTo("body");
+				})
+				.verifyComplete();
+
+		assertThat(subscriptions.get()).isEqualTo(1);
+		assertThat(meterRegistry.get("proxy.coalescing.ratio").gauge().value()).isEqualTo(0.5);
+	}
+
+	@Test
+	void shouldFanOutErrorsToEverySubscriber() {
+		final Mono<String> first = coalescer.coalesce("GET /posts/1", upstream);
+		final Mono<String> second = coalescer.coalesce("GET /posts/1", upstream);
+
+		StepVerifier.create(Mono.zipDelayError(first.onErrorReturn("first failed"), second.onErrorReturn("second failed")))
+				.then(() -> upstreamSink.tryEmitError(new IllegalStateException("boom")))
+				.assertNext(result -> {
+					assertThat(result.getT1()).isEqualTo("first failed");
+					assertThat(result.getT2()).isEqualTo("second failed");
+				})
+				.verifyComplete();
+
+		assertThat(subscriptions.get()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldCancelSharedCallOnlyWhenAllSubscribersCancel() {
+		final Disposable first = coalescer.coalesce("GET /posts/1", upstream).subscribe();
+		final Disposable second = coalescer.coalesce("GET /posts/1", upstream).subscribe();
+
+		first.dispose();
+		assertThat(cancellations.get()).isZero();
+
+		second.dispose();
+		assertThat(cancellations.get()).isEqualTo(1);
+		assertThat(meterRegistry.get("proxy.coalescing.in.flight").gauge().value()).isZero();
+	}
+
+	@Test
+	void shouldNotShareCallsForDifferentKeysOrAfterCompletion() {
+		StepVerifier.create(coalescer.coalesce("GET /posts/1", Mono.just("one"))).expectNext("one").verifyComplete();
+		StepVerifier.create(coalescer.coalesce("GET /posts/1", Mono.just("again"))).expectNext("again").verifyComplete();
+		StepVerifier.create(coalescer.coalesce("GET /posts/2", Mono.just("two"))).expectNext("two").verifyComplete();
+
+		assertThat(meterRegistry.get("proxy.coalescing.requests").tag("role", "leader").counter().count()).isEqualTo(3);
+	}
+
+	@Test
+	void shouldStartNewCallForSubscriberArrivingWhileResultIsDelivered() {
+		final AtomicReference<String> late = new AtomicReference<>("none");
+
+		StepVerifier.create(coalescer.coalesce("GET /posts/1", upstream)
+						.doOnNext(body -> coalescer.coalesce("GET /posts/1", Mono.just("fresh")).subscribe(late::set)))
+				.then(() -> upstreamSink.tryEmitValue("body"))
+				.expectNext("body")
+				.verifyComplete();
+
+		assertThat(late.get()).isEqualTo("fresh");
+	}
+}
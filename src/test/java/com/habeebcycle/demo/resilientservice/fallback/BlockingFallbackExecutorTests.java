@@ -0,0 +1,74 @@
+package com.habeebcycle.demo.resilientservice.fallback;
+
+import com.habeebcycle.demo.resilientservice.config.FallbackProperties;
+import com.habeebcycle.demo.resilientservice.http.exception.CircuitBreakerOpenException;
+import com.habeebcycle.demo.resilientservice.router.UpstreamRoute;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.retry.Retry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class BlockingFallbackExecutorTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final FallbackProperties properties = new FallbackProperties(FallbackProperties.Executor.VIRTUAL_THREADS, 1,
+			Duration.ofMillis(200), new FallbackProperties.File(Path.of("src", "test", "resources", "fallback").toString()));
+	private final BlockingFallbackExecutor fallbackExecutor = new BlockingFallbackExecutor(properties, meterRegistry);
+	private final CircuitBreakerOpenException error = new CircuitBreakerOpenException();
+
+	@AfterEach
+	void tearDown() {
+		fallbackExecutor.stop();
+	}
+
+	@Test
+	void shouldServeFileOffTheEventLoopAndSurfaceOriginalErrorWithoutFallback() {
+		final Fallback fileFallback = new FileFallback(properties);
+
+		StepVerifier.create(fallbackExecutor.resume(route(fileFallback), "/posts/1", error))
+				.assertNext(body -> assertThat(body).contains("from fallback"))
+				.verifyComplete();
+		StepVerifier.create(fallbackExecutor.resume(route(fileFallback), "/posts/2", error)).verifyErrorMatches(error::equals);
+		StepVerifier.create(fallbackExecutor.resume(route(fileFallback), "/../../pom", error)).verifyErrorMatches(error::equals);
+		StepVerifier.create(fallbackExecutor.resume(route(null), "/posts/1", error)).verifyErrorMatches(error::equals);
+
+		assertThat(meterRegistry.get("proxy.fallback").tags("route", "/posts/{id}", "outcome", "success").timer().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("proxy.fallback").tags("route", "/posts/{id}", "outcome", "empty").timer().count()).isEqualTo(2);
+	}
+
+	@Test
+	void shouldRejectWhenSaturatedAndHoldPermitUntilTimedOutFallbackReturns() {
+		final CountDownLatch release = new CountDownLatch(1);
+		final UpstreamRoute route = route(path -> {
+			while (release.getCount() > 0) {
+				LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10)); // Ignores interrupts, like a blocking socket read
+			}
+			return Optional.of("late");
+		});
+
+		StepVerifier.create(fallbackExecutor.resume(route, "/posts/1", error)).verifyErrorMatches(error::equals);
+		assertThat(meterRegistry.get("proxy.fallback.saturation").gauge().value()).isEqualTo(1.0); // Still blocked after the timeout
+		StepVerifier.create(fallbackExecutor.resume(route, "/posts/1", error)).verifyErrorMatches(error::equals);
+
+		release.countDown();
+		await().atMost(Duration.ofSeconds(2)).until(() -> meterRegistry.get("proxy.fallback.active").gauge().value() == 0);
+		assertThat(meterRegistry.get("proxy.fallback").tags("outcome", "timeout").timer().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("proxy.fallback").tags("outcome", "rejected").timer().count()).isEqualTo(1);
+	}
+
+	private static UpstreamRoute route(final Fallback fallback) {
+		return new UpstreamRoute("post", "/posts/{id}", null, CircuitBreaker.ofDefaults("post"), Retry.ofDefaults("post"), null, fallback);
+	}
+}
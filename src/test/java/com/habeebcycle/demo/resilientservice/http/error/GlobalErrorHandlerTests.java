@@ -0,0 +1,66 @@
+package com.habeebcycle.demo.resilientservice.http.error;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.habeebcycle.demo.resilientservice.http.exception.CircuitBreakerOpenException;
+import com.habeebcycle.demo.resilientservice.http.exception.StacklessResponseStatusException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.reactive.error.DefaultErrorAttributes;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import java.time.OffsetDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GlobalErrorHandlerTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private GlobalErrorHandler errorHandler;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		final GenericApplicationContext applicationContext = new GenericApplicationContext();
+		applicationContext.refresh();
+		errorHandler = new GlobalErrorHandler(new DefaultErrorAttributes(), applicationContext, ServerCodecConfigurer.create());
+		errorHandler.afterPropertiesSet();
+	}
+
+	@Test
+	void shouldRenderTemplateWithTimestampAndPathSplicedIn() throws Exception {
+		final CircuitBreakerOpenException error = new CircuitBreakerOpenException();
+		final MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/services/posts/1"));
+		errorHandler.handle(exchange, error).block();
+
+		assertThat(error.getStackTrace()).isEmpty();
+		assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+		assertThat(exchange.getResponse().getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+
+		final JsonNode body = objectMapper.readTree(exchange.getResponse().getBodyAsString().block());
+		assertThat(OffsetDateTime.parse(body.get("timestamp").asText())).isNotNull();
+		assertThat(body.get("path").asText()).isEqualTo("/services/posts/1");
+		assertThat(body.get("statusCode").asInt()).isEqualTo(503);
+		assertThat(body.get("status").asText()).isEqualTo("SERVICE_UNAVAILABLE");
+		assertThat(body.get("message").asText()).isEqualTo(CircuitBreakerOpenException.MESSAGE);
+	}
+
+	@Test
+	void shouldEscapeArbitraryUpstreamMessagesAndFallBackTo500() throws Exception {
+		final MockServerWebExchange upstreamError = MockServerWebExchange.from(MockServerHttpRequest.get("/services/posts"));
+		errorHandler.handle(upstreamError, new StacklessResponseStatusException(HttpStatus.BAD_GATEWAY, "{\"error\":\n\"down\"}")).block();
+		final MockServerWebExchange unexpected = MockServerWebExchange.from(MockServerHttpRequest.get("/services/posts"));
+		errorHandler.handle(unexpected, new IllegalStateException("boom")).block();
+
+		assertThat(objectMapper.readTree(upstreamError.getResponse().getBodyAsString().block()).get("message").asText())
+				.isEqualTo("{\"error\":\n\"down\"}");
+		final JsonNode body = objectMapper.readTree(unexpected.getResponse().getBodyAsString().block());
+		assertThat(unexpected.getResponse().getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+		assertThat(body.get("status").asText()).isEqualTo("INTERNAL_SERVER_ERROR");
+		assertThat(body.get("message").asText()).isEqualTo("boom");
+	}
+}
@@ -0,0 +1,103 @@
+package com.habeebcycle.demo.resilientservice.http.web;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.handler.timeout.ReadTimeoutException;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ApplicationWebClientTests {
+
+	private MockWebServer mockBackEnd;
+	private ConnectionProvider connectionProvider;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		mockBackEnd = new MockWebServer();
+		mockBackEnd.start();
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		if (connectionProvider != null) {
+			connectionProvider.dispose();
+		}
+		mockBackEnd.shutdown();
+	}
+
+	@Test
+	void shouldRecognisePoolRefusingALeaseThroughWrappingExceptions() {
+		mockBackEnd.enqueue(new MockResponse().setHeadersDelay(1, TimeUnit.SECONDS));
+		mockBackEnd.enqueue(new MockResponse());
+		connectionProvider = ConnectionProvider.builder("exhausted")
+				.maxConnections(1)
+				.pendingAcquireTimeout(Duration.ofMillis(100))
+				.build();
+		final HttpClient httpClient = HttpClient.create(connectionProvider).baseUrl(mockBackEnd.url("/").toString());
+
+		// The first request holds the only connection, so the second cannot lease one in time
+		final Mono<Integer> holding = httpClient.get().uri("/slow").responseSingle((response, body) -> body.then(Mono.just(1)));
+		final Throwable refused = Mono.when(holding, httpClient.get().uri("/refused").response())
+				.then(Mono.<Throwable>empty())
+				.onErrorResume(Mono::just)
+				.block(Duration.ofSeconds(10));
+
+		assertThat(refused).isNotNull();
+		assertThat(ApplicationWebClient.isPoolExhaustion(refused)).isTrue();
+		assertThat(ApplicationWebClient.isPoolExhaustion(wrapped(refused))).isTrue();
+	}
+
+	@Test
+	void shouldKeepOneWriteTimeoutHandlerOnReusedConnections() {
+		mockBackEnd.enqueue(new MockResponse().setBody("first"));
+		mockBackEnd.enqueue(new MockResponse().setBody("second"));
+		connectionProvider = ConnectionProvider.builder("reused").maxConnections(1).build();
+		final List<Channel> channels = new CopyOnWriteArrayList<>();
+		final List<ChannelHandler> handlers = new CopyOnWriteArrayList<>();
+		final HttpClient httpClient = ApplicationWebClient.withWriteTimeout(HttpClient.create(connectionProvider), 1000)
+				.baseUrl(mockBackEnd.url("/").toString())
+				.doOnRequest((request, connection) -> {
+					channels.add(connection.channel());
+					handlers.add(connection.channel().pipeline().get(ApplicationWebClient.WRITE_TIMEOUT_HANDLER));
+				});
+
+		for (final String path : List.of("/first", "/second")) {
+			httpClient.get().uri(path).responseSingle((response, body) -> body.asString()).block(Duration.ofSeconds(5));
+		}
+
+		// The same handler on the same channel: installed once, not per request, and not dropped on release
+		assertThat(channels).hasSize(2);
+		assertThat(channels.get(1)).isSameAs(channels.get(0));
+		assertThat(handlers.get(0)).isInstanceOf(WriteTimeoutHandler.class);
+		assertThat(handlers.get(1)).isSameAs(handlers.get(0));
+	}
+
+	@Test
+	void shouldNotTakeOtherConnectionFailuresForPoolExhaustion() {
+		assertThat(ApplicationWebClient.isPoolExhaustion(wrapped(ReadTimeoutException.INSTANCE))).isFalse();
+		assertThat(ApplicationWebClient.isPoolExhaustion(wrapped(new IOException("Connection reset")))).isFalse();
+	}
+
+	private static WebClientRequestException wrapped(final Throwable cause) {
+		return new WebClientRequestException(cause, HttpMethod.GET, URI.create("http://localhost/posts"), new HttpHeaders());
+	}
+}
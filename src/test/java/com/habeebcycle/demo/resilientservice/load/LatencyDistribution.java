@@ -0,0 +1,30 @@
+package com.habeebcycle.demo.resilientservice.load;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Latency the {@link UpstreamSimulator} adds before answering, sampled per request.
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+	Duration sample();
+
+	static LatencyDistribution constant(final Duration latency) {
+		return () -> latency;
+	}
+
+	static LatencyDistribution uniform(final Duration min, final Duration max) {
+		return () -> Duration.ofNanos(ThreadLocalRandom.current().nextLong(min.toNanos(), max.toNanos() + 1));
+	}
+
+	/**
+	 * Long-tailed latency as seen from real services, given its median and 99th percentile.
+	 */
+	static LatencyDistribution logNormal(final Duration median, final Duration p99) {
+		final double mu = Math.log(median.toNanos());
+		final double sigma = Math.log((double) p99.toNanos() / median.toNanos()) / 2.326; // z-score of the 99th percentile
+		return () -> Duration.ofNanos((long) Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+	}
+}
@@ -0,0 +1,114 @@
+package com.habeebcycle.demo.resilientservice.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Open-model load generator: requests are started at a fixed rate whether or not earlier ones have completed, as
+ * independent users would, and each latency is measured from the request's intended start. A saturated service
+ * therefore shows up as a growing tail instead of a silently lower request rate (no coordinated omission).
+ */
+public final class LoadGenerator implements AutoCloseable {
+
+	private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+	private final ConnectionProvider connectionProvider = ConnectionProvider.builder("load-generator")
+			.maxConnections(10_000)
+			.pendingAcquireMaxCount(-1)
+			.build();
+	private final Scheduler ticker = Schedulers.newSingle("load-generator");
+	private final WebClient webClient;
+
+	public LoadGenerator(final String baseUrl) {
+		this.webClient = WebClient.builder()
+				.baseUrl(baseUrl)
+				.clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+				.build();
+	}
+
+	/**
+	 * Sends {@code requestsPerSecond} GET requests to {@code uri.apply(n)} for {@code duration} and waits for all of
+	 * them to complete. Requests without a response (connect failure, 30 s timeout)
+	 * are counted under status 0.
+	 */
+	public Result run(final LongFunction<String> uri, final int requestsPerSecond, final Duration duration) {
+		final long periodNanos = Duration.ofSeconds(1).toNanos() / requestsPerSecond;
+		final long requests = duration.toNanos() / periodNanos;
+		final Histogram latencies = new ConcurrentHistogram(3);
+		final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+		final long start = System.nanoTime();
+
+		Flux.interval(Duration.ZERO, Duration.ofNanos(periodNanos), ticker)
+				.take(requests)
+				.flatMap(n -> {
+					final long intendedStart = start + n * periodNanos;
+					return webClient.get()
+							.uri(uri.apply(n))
+							.exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().value()))
+							.timeout(REQUEST_TIMEOUT)
+							.onErrorReturn(0)
+							.doOnNext(status -> {
+								latencies.recordValue(System.nanoTime() - intendedStart);
+								statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+							});
+				}, Integer.MAX_VALUE)
+				.then()
+				.block(duration.plus(REQUEST_TIMEOUT).plusSeconds(5));
+
+		return new Result(requests, Duration.ofNanos(System.nanoTime() - start), latencies,
+				statuses.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().sum())));
+	}
+
+	@Override
+	public void close() {
+		ticker.dispose();
+		connectionProvider.disposeLater().block(Duration.ofSeconds(5));
+	}
+
+	/**
+	 * Outcome of one {@link #run}; latencies are recorded in nanoseconds.
+	 */
+	public record Result(long requests, Duration elapsed, Histogram latencies, Map<Integer, Long> statuses) {
+
+		public double throughput() {
+			return latencies.getTotalCount() * 1e9 / elapsed.toNanos();
+		}
+
+		public double successRatio() {
+			return (double) statuses.entrySet().stream()
+					.filter(entry -> entry.getKey() >= 200 && entry.getKey() < 300)
+					.mapToLong(Map.Entry::getValue)
+					.sum() / requests;
+		}
+
+		public Duration percentile(final double percentile) {
+			return Duration.ofNanos(latencies.getValueAtPercentile(percentile));
+		}
+
+		String format() {
+			return String.format("requests: %d in %.1fs, throughput: %.1f/s, statuses: %s%n"
+							+ "latency ms: p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f",
+					requests, elapsed.toMillis() / 1000.0, throughput(), statuses,
+					millis(50), millis(90), millis(99), millis(99.9), latencies.getMaxValue() / 1e6);
+		}
+
+		private double millis(final double percentile) {
+			return latencies.getValueAtPercentile(percentile) / 1e6;
+		}
+	}
+}
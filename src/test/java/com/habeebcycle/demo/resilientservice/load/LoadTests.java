@@ -0,0 +1,83 @@
+package com.habeebcycle.demo.resilientservice.load;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.time.Duration;
+
+import static com.habeebcycle.demo.resilientservice.load.LatencyDistribution.logNormal;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load scenarios against the full application and an {@link UpstreamSimulator} on the upstream port of the test
+ * configuration. Tagged {@code load} and excluded from the default build; run with {@code mvn -Pload test}. The
+ * response cache is disabled so every request reaches the resilience layer, and per-exchange logging is off so the
+ * log does not dominate the measurement. The circuit breakers use the production failure-rate threshold.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"api.cache.enabled=false", "api.client.logging.level=OFF", "logging.level.com.habeebcycle.demo.resilientservice.handler=WARN",
+		"resilience4j.circuitbreaker.configs.default.failureRateThreshold=50"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class LoadTests {
+
+	private static final Logger LOG = LoggerFactory.getLogger(LoadTests.class);
+	private static final int UPSTREAM_PORT = 54500; //Port defined on the application.yaml file
+	private static final Duration WARM_UP = Duration.ofSeconds(5);
+
+	@Autowired private CircuitBreakerRegistry circuitBreakerRegistry;
+	@Autowired private RetryRegistry retryRegistry;
+	@Autowired private MeterRegistry meterRegistry;
+	@LocalServerPort private int port;
+
+	@Test
+	void shouldSustainSteadyLoadWithinLatencyTarget() {
+		try (UpstreamSimulator upstream = UpstreamSimulator.start(UPSTREAM_PORT,
+				Phase.healthy(WARM_UP.plusSeconds(20), logNormal(Duration.ofMillis(10), Duration.ofMillis(50))).withErrors(0.01, 500));
+			 LoadGenerator generator = new LoadGenerator("http://localhost:" + port)) {
+			generator.run(n -> "/services/posts/" + (n % 100 + 1), 100, WARM_UP); // Let the JIT and connection pools settle
+			final ResilienceObserver observer = ResilienceObserver.attach(circuitBreakerRegistry, retryRegistry, meterRegistry);
+
+			final LoadGenerator.Result result = generator.run(n -> "/services/posts/" + (n % 100 + 1), 100, Duration.ofSeconds(15));
+			report("steady", result, observer, upstream);
+
+			assertThat(result.successRatio()).isGreaterThan(0.99); // Single 500s are retried
+			assertThat(result.percentile(99)).isLessThan(Duration.ofSeconds(2));
+			assertThat(observer.transitions()).isEmpty();
+		}
+	}
+
+	@Test
+	void shouldOpenCircuitDuringBrownoutAndRecover() {
+		try (UpstreamSimulator upstream = UpstreamSimulator.start(UPSTREAM_PORT,
+				Phase.healthy(Duration.ofSeconds(5), logNormal(Duration.ofMillis(10), Duration.ofMillis(50))),
+				Phase.healthy(Duration.ofSeconds(10), logNormal(Duration.ofMillis(200), Duration.ofSeconds(2))).withErrors(0.6, 503),
+				Phase.healthy(Duration.ofSeconds(20), logNormal(Duration.ofMillis(10), Duration.ofMillis(50)))
+						.withSlowDrip(4, Duration.ofMillis(5)));
+			 LoadGenerator generator = new LoadGenerator("http://localhost:" + port)) {
+			final ResilienceObserver observer = ResilienceObserver.attach(circuitBreakerRegistry, retryRegistry, meterRegistry);
+
+			final LoadGenerator.Result result = generator.run(n -> "/services/posts", 50, Duration.ofSeconds(30));
+			report("brownout", result, observer, upstream);
+
+			assertThat(observer.transitions()).anyMatch(transition -> transition.contains("CLOSED_TO_OPEN"));
+			assertThat(observer.transitions()).anyMatch(transition -> transition.contains("HALF_OPEN_TO_CLOSED")); // Recovered
+			assertThat(result.statuses()).containsKey(503); // Served by the open circuit breaker
+		}
+	}
+
+	private static void report(final String scenario, final LoadGenerator.Result result, final ResilienceObserver observer,
+							   final UpstreamSimulator upstream) {
+		LOG.info("Load scenario [{}]{}{}{}{}{}upstream responses: {}", scenario, System.lineSeparator(), result.format(),
+				System.lineSeparator(), observer.format(), System.lineSeparator(), upstream.responses());
+	}
+}
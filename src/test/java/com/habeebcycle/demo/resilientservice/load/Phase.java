@@ -0,0 +1,24 @@
+package com.habeebcycle.demo.resilientservice.load;
+
+import java.time.Duration;
+
+/**
+ * One stretch of {@link UpstreamSimulator} behaviour. {@code errorRate} of the requests are answered with
+ * {@code errorStatus}; with {@code dripChunks} above 1 the body is written in that many chunks, {@code dripInterval}
+ * apart, after the headers.
+ */
+public record Phase(Duration duration, LatencyDistribution latency, double errorRate, int errorStatus,
+					int dripChunks, Duration dripInterval) {
+
+	public static Phase healthy(final Duration duration, final LatencyDistribution latency) {
+		return new Phase(duration, latency, 0, 500, 1, Duration.ZERO);
+	}
+
+	public Phase withErrors(final double errorRate, final int errorStatus) {
+		return new Phase(duration, latency, errorRate, errorStatus, dripChunks, dripInterval);
+	}
+
+	public Phase withSlowDrip(final int dripChunks, final Duration dripInterval) {
+		return new Phase(duration, latency, errorRate, errorStatus, dripChunks, dripInterval);
+	}
+}
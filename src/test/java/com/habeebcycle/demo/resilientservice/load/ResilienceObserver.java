@@ -0,0 +1,65 @@
+package com.habeebcycle.demo.resilientservice.load;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Records what the resilience layer did during a load run: circuit breaker transitions, with their offset from
+ * {@link #attach}, retries scheduled by resilience4j and retries the retry budget or deadline suppressed.
+ */
+public final class ResilienceObserver {
+
+	private final MeterRegistry meterRegistry;
+	private final long startNanos = System.nanoTime();
+	private final List<String> transitions = new CopyOnWriteArrayList<>();
+	private final Map<String, LongAdder> retries = new ConcurrentHashMap<>();
+
+	private ResilienceObserver(final MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	public static ResilienceObserver attach(final CircuitBreakerRegistry circuitBreakerRegistry, final RetryRegistry retryRegistry,
+											final MeterRegistry meterRegistry) {
+		final ResilienceObserver observer = new ResilienceObserver(meterRegistry);
+		circuitBreakerRegistry.getAllCircuitBreakers().forEach(circuitBreaker -> circuitBreaker.getEventPublisher()
+				.onStateTransition(event -> observer.transitions.add(String.format("%s %s at %.1fs", event.getCircuitBreakerName(),
+						event.getStateTransition().name(), Duration.ofNanos(System.nanoTime() - observer.startNanos).toMillis() / 1000.0))));
+		retryRegistry.getAllRetries().forEach(retry -> retry.getEventPublisher()
+				.onRetry(event -> observer.retries.computeIfAbsent(event.getName(), key -> new LongAdder()).increment()));
+		return observer;
+	}
+
+	public List<String> transitions() {
+		return List.copyOf(transitions);
+	}
+
+	/**
+	 * Retries resilience4j scheduled per retry instance; some may then have been suppressed, see {@link #suppressedRetries()}.
+	 */
+	public Map<String, Long> retries() {
+		return retries.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().sum()));
+	}
+
+	/**
+	 * Retries suppressed by reason ({@code budget} or {@code deadline}), across retry instances.
+	 */
+	public Map<String, Long> suppressedRetries() {
+		return meterRegistry.find("proxy.retry.suppressed").counters().stream()
+				.collect(Collectors.groupingBy(counter -> counter.getId().getTag("reason"),
+						Collectors.summingLong(counter -> (long) counter.count())));
+	}
+
+	String format() {
+		return "circuit breaker transitions: " + transitions() + System.lineSeparator()
+				+ "retries: " + retries() + ", suppressed: " + suppressedRetries();
+	}
+}
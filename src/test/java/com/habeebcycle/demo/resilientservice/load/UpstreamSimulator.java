@@ -0,0 +1,104 @@
+package com.habeebcycle.demo.resilientservice.load;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * In-process Reactor Netty stand-in for the posts API, bound to localhost. It plays a script of {@link Phase}s from
+ * {@link #start}, staying in the last phase once the script is over, so a load test can reproduce latency
+ * distributions, error bursts, brownouts and slow-drip bodies without any network.
+ */
+public final class UpstreamSimulator implements AutoCloseable {
+
+	private static final String POSTS = IntStream.rangeClosed(1, 100)
+			.mapToObj(id -> post(String.valueOf(id)))
+			.collect(Collectors.joining(",", "[", "]"));
+
+	private final List<Phase> phases;
+	private final DisposableServer server;
+	private final Map<Integer, LongAdder> responses = new ConcurrentHashMap<>();
+	private final long startNanos;
+
+	private UpstreamSimulator(final int port, final List<Phase> phases) {
+		this.phases = List.copyOf(phases);
+		this.server = HttpServer.create()
+				.host("localhost")
+				.port(port)
+				.route(routes -> routes
+						.get("/posts", (request, response) -> respond(response, POSTS))
+						.get("/posts/{id}", (request, response) -> respond(response, post(request.param("id")))))
+				.bindNow();
+		this.startNanos = System.nanoTime();
+	}
+
+	public static UpstreamSimulator start(final int port, final Phase... phases) {
+		return new UpstreamSimulator(port, List.of(phases));
+	}
+
+	/**
+	 * Responses written so far by status code.
+	 */
+	public Map<Integer, Long> responses() {
+		return responses.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().sum()));
+	}
+
+	@Override
+	public void close() {
+		server.disposeNow();
+	}
+
+	private Phase currentPhase() {
+		long elapsed = System.nanoTime() - startNanos;
+		for (final Phase phase : phases) {
+			elapsed -= phase.duration().toNanos();
+			if (elapsed < 0) {
+				return phase;
+			}
+		}
+		return phases.get(phases.size() - 1);
+	}
+
+	private Mono<Void> respond(final HttpServerResponse response, final String body) {
+		final Phase phase = currentPhase();
+		final boolean error = ThreadLocalRandom.current().nextDouble() < phase.errorRate();
+		final int status = error ? phase.errorStatus() : HttpResponseStatus.OK.code();
+		final byte[] bytes = (error ? "ERROR" : body).getBytes(StandardCharsets.UTF_8);
+		responses.computeIfAbsent(status, key -> new LongAdder()).increment();
+
+		return Mono.delay(phase.latency().sample())
+				.then(response.status(status)
+						.header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+						.header(HttpHeaderNames.CONTENT_LENGTH, String.valueOf(bytes.length))
+						.sendByteArray(chunks(bytes, phase))
+						.then());
+	}
+
+	private static Flux<byte[]> chunks(final byte[] bytes, final Phase phase) {
+		if (phase.dripChunks() <= 1) {
+			return Flux.just(bytes);
+		}
+		final int chunkSize = Math.max(1, (bytes.length + phase.dripChunks() - 1) / phase.dripChunks());
+		return Flux.range(0, (bytes.length + chunkSize - 1) / chunkSize)
+				.delayElements(phase.dripInterval())
+				.map(chunk -> Arrays.copyOfRange(bytes, chunk * chunkSize, Math.min(bytes.length, (chunk + 1) * chunkSize)));
+	}
+
+	private static String post(final String id) {
+		return "{\"userId\":1,\"id\":" + id + ",\"title\":\"title " + id + "\",\"body\":\"body " + id + "\"}";
+	}
+}
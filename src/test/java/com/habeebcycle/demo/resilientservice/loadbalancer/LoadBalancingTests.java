@@ -0,0 +1,130 @@
+package com.habeebcycle.demo.resilientservice.loadbalancer;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"api.client.loadBalancer.endpoints=http://localhost:54501,http://localhost:54502",
+		"api.client.loadBalancer.minRequests=4",
+		"api.client.loadBalancer.latencyDecay=1s",
+		"api.client.logging.level=OFF",
+		"api.cache.enabled=false",
+		"resilience4j.retry.configs.default.waitDuration=10ms"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class LoadBalancingTests {
+
+	@Autowired private ApplicationContext context;
+	@Autowired private CircuitBreakerRegistry circuitBreakerRegistry;
+
+	private MockWebServer first;
+	private MockWebServer second;
+	private WebTestClient testClient;
+
+	@BeforeEach
+	void setUpTestCase() throws IOException {
+		this.first = new MockWebServer();
+		this.second = new MockWebServer();
+		this.first.start(54501);
+		this.second.start(54502);
+
+		this.testClient = WebTestClient
+				.bindToApplicationContext(context)
+				.configureClient().responseTimeout(Duration.ofSeconds(60))
+				.build();
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		this.first.shutdown();
+		this.second.shutdown();
+	}
+
+	@Test
+	void shouldSpreadRequestsOverHealthyEndpoints() {
+		first.setDispatcher(respond(200, 0));
+		second.setDispatcher(respond(200, 0));
+
+		for (int id = 1; id <= 40; id++) {
+			get(id).expectStatus().isOk();
+		}
+
+		assertThat(first.getRequestCount()).isPositive();
+		assertThat(second.getRequestCount()).isPositive();
+		assertThat(first.getRequestCount() + second.getRequestCount()).isEqualTo(40);
+	}
+
+	@Test
+	void shouldShiftTrafficOffFailingEndpointBeforeRouteBreakerOpens() {
+		first.setDispatcher(respond(200, 0));
+		second.setDispatcher(respond(500, 0));
+
+		for (int id = 1; id <= 40; id++) {
+			get(id).expectStatus().isOk(); // Attempts on the failing endpoint are retried on the healthy one
+		}
+
+		final CircuitBreaker endpointBreaker = circuitBreakerRegistry.circuitBreaker("endpoint-localhost:54502");
+		assertThat(endpointBreaker.getMetrics().getNumberOfSuccessfulCalls()).isZero();
+		assertThat(endpointBreaker.getMetrics().getNumberOfFailedCalls()).isEqualTo(Math.min(5, second.getRequestCount())); // Sliding window of 5
+		assertThat(circuitBreakerRegistry.circuitBreaker("testService").getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+		assertThat(second.getRequestCount()).isLessThan(10);
+		assertThat(first.getRequestCount()).isGreaterThanOrEqualTo(40);
+	}
+
+	@Test
+	void shouldPreferFastEndpointOverSlowOne() throws InterruptedException {
+		first.setDispatcher(respond(200, 0));
+		second.setDispatcher(respond(200, 0));
+		for (int id = 1; id <= 10; id++) {
+			get(id).expectStatus().isOk(); // Warm both endpoints up, so a cold first request is not mistaken for a slow one
+		}
+		Thread.sleep(2000); // Several latency decay time constants
+
+		final int warmUpRequests = second.getRequestCount();
+		second.setDispatcher(respond(200, 200));
+		for (int id = 11; id <= 30; id++) {
+			get(id).expectStatus().isOk();
+		}
+
+		assertThat(second.getRequestCount() - warmUpRequests).isLessThanOrEqualTo(4);
+		assertThat(circuitBreakerRegistry.circuitBreaker("testService").getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+	}
+
+	private WebTestClient.ResponseSpec get(final int id) {
+		return testClient.get().uri("/services/posts/" + id)
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange();
+	}
+
+	private static Dispatcher respond(final int status, final long delayMillis) {
+		return new Dispatcher() {
+			@NotNull
+			@Override
+			public MockResponse dispatch(@NotNull final RecordedRequest request) {
+				return new MockResponse().setResponseCode(status).setBody("{\"id\": 1}")
+						.setHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+						.setHeadersDelay(delayMillis, TimeUnit.MILLISECONDS);
+			}
+		};
+	}
+}
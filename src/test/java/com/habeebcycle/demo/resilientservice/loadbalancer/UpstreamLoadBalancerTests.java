@@ -0,0 +1,135 @@
+package com.habeebcycle.demo.resilientservice.loadbalancer;
+
+import com.habeebcycle.demo.resilientservice.config.LoadBalancerProperties;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UpstreamLoadBalancerTests {
+
+	private static final ClientRequest REQUEST = ClientRequest.create(HttpMethod.GET, URI.create("http://upstream:80/posts/1?x=1")).build();
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	// A breaker that never opens, so ejection is left to the balancer
+	private final CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+			.failureRateThreshold(100).minimumNumberOfCalls(1000).slidingWindowSize(1000).build());
+	private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+
+	@Test
+	void shouldRewriteRequestToChosenEndpoint() {
+		final UpstreamLoadBalancer loadBalancer = loadBalancer(List.of("http://replica-a:8081"), 50);
+		final AtomicInteger seen = new AtomicInteger();
+
+		StepVerifier.create(loadBalancer.filter(REQUEST, request -> {
+					assertThat(request.url()).isEqualTo(URI.create("http://replica-a:8081/posts/1?x=1"));
+					seen.incrementAndGet();
+					return Mono.just(ClientResponse.create(HttpStatus.OK).build());
+				}))
+				.expectNextCount(1)
+				.verifyComplete();
+
+		assertThat(seen.get()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldReplaceBasePathWithThatOfTheEndpoint() {
+		final UpstreamLoadBalancer loadBalancer = new UpstreamLoadBalancer("http://upstream:80/v1/",
+				new LoadBalancerProperties(List.of("http://replica-a:8081/api/"), null, 0.5, 3.0, 4, Duration.ofMinutes(1), 50, 0.2,
+						Duration.ofSeconds(10)), circuitBreakerRegistry, meterRegistry);
+		final ClientRequest request = ClientRequest.create(HttpMethod.GET, URI.create("http://upstream:80/v1/posts/1%2F2?x=1")).build();
+
+		StepVerifier.create(loadBalancer.filter(request, routed -> {
+					assertThat(routed.url()).isEqualTo(URI.create("http://replica-a:8081/api/posts/1%2F2?x=1"));
+					return Mono.just(ClientResponse.create(HttpStatus.OK).build());
+				}))
+				.expectNextCount(1)
+				.verifyComplete();
+	}
+
+	@Test
+	void shouldEjectEndpointOnErrorRate() {
+		final UpstreamLoadBalancer loadBalancer = loadBalancer(List.of("http://healthy:1", "http://failing:2"), 50);
+		final ExchangeFunction exchange = respond(host -> host.equals("failing") ? Mono.just(HttpStatus.INTERNAL_SERVER_ERROR) : Mono.just(HttpStatus.OK));
+
+		send(loadBalancer, exchange, 40);
+		final int failingBeforeMore = requests.get("failing").get();
+		send(loadBalancer, exchange, 20);
+
+		assertThat(meterRegistry.get("proxy.upstream.endpoint.ejections")
+				.tag("endpoint", "failing:2").tag("reason", "error_rate").counter().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("proxy.upstream.endpoint.ejected").tag("endpoint", "failing:2").gauge().value()).isEqualTo(1);
+		assertThat(requests.get("failing").get()).isEqualTo(failingBeforeMore);
+	}
+
+	@Test
+	void shouldEjectEndpointOnLatency() {
+		final UpstreamLoadBalancer loadBalancer = loadBalancer(List.of("http://fast:1", "http://slow:2"), 50);
+		final ExchangeFunction exchange = respond(host -> host.equals("slow")
+				? Mono.delay(Duration.ofMillis(20)).thenReturn(HttpStatus.OK) : Mono.just(HttpStatus.OK));
+
+		send(loadBalancer, exchange, 40);
+
+		assertThat(meterRegistry.get("proxy.upstream.endpoint.ejections")
+				.tag("endpoint", "slow:2").tag("reason", "latency").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldNotEjectMoreThanMaxEjectionPercent() {
+		final UpstreamLoadBalancer loadBalancer = loadBalancer(List.of("http://a:1", "http://b:2"), 50);
+
+		send(loadBalancer, respond(host -> Mono.just(HttpStatus.INTERNAL_SERVER_ERROR)), 40);
+
+		assertThat(meterRegistry.find("proxy.upstream.endpoint.ejections").counters()).hasSize(1);
+	}
+
+	@Test
+	void shouldFailFastWhenNoEndpointPermitsCall() {
+		final UpstreamLoadBalancer loadBalancer = loadBalancer(List.of("http://a:1"), 50);
+		circuitBreakerRegistry.circuitBreaker("endpoint-a:1").transitionToForcedOpenState();
+
+		StepVerifier.create(loadBalancer.filter(REQUEST, respond(host -> Mono.just(HttpStatus.OK))))
+				.expectErrorSatisfies(error -> assertThat(((ResponseStatusException) error).getStatusCode())
+						.isEqualTo(HttpStatus.SERVICE_UNAVAILABLE))
+				.verify(Duration.ofSeconds(5));
+	}
+
+	private UpstreamLoadBalancer loadBalancer(final List<String> endpoints, final int maxEjectionPercent) {
+		// Least outstanding breaks ties at random, so sequential requests reach every endpoint
+		final LoadBalancerProperties properties = new LoadBalancerProperties(endpoints,
+				LoadBalancerProperties.Strategy.LEAST_OUTSTANDING, 0.5, 3.0, 4, Duration.ofMinutes(1), maxEjectionPercent, 0.2, Duration.ofSeconds(10));
+		return new UpstreamLoadBalancer("http://upstream:80", properties, circuitBreakerRegistry, meterRegistry);
+	}
+
+	private ExchangeFunction respond(final Function<String, Mono<HttpStatus>> status) {
+		return request -> {
+			final String host = request.url().getHost();
+			requests.computeIfAbsent(host, h -> new AtomicInteger()).incrementAndGet();
+			return status.apply(host).map(code -> ClientResponse.create(code).build());
+		};
+	}
+
+	private static void send(final UpstreamLoadBalancer loadBalancer, final ExchangeFunction exchange, final int count) {
+		for (int i = 0; i < count; i++) {
+			loadBalancer.filter(REQUEST, exchange).block(Duration.ofSeconds(5));
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package com.habeebcycle.demo.resilientservice.metrics;
+
+import com.habeebcycle.demo.resilientservice.config.MetricsProperties;
+import com.habeebcycle.demo.resilientservice.http.exception.CustomResponseStatusException;
+import com.habeebcycle.demo.resilientservice.router.UpstreamRoute;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.retry.Retry;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.HttpStatus.BAD_GATEWAY;
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+class ProxyMetricsTests {
+
+	private final PrometheusMeterRegistry meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT,
+			new CollectorRegistry(), Clock.SYSTEM, new RequestIdExemplarSampler());
+	private final ProxyMetrics proxyMetrics = new ProxyMetrics(meterRegistry, new MetricsProperties(true, Duration.ofMillis(1), Duration.ofSeconds(30)));
+	private final UpstreamRoute route = new UpstreamRoute("post", "/posts/{id}", null,
+			CircuitBreaker.ofDefaults("post"), Retry.ofDefaults("post"), null, null);
+
+	@Test
+	void shouldTagRequestsByRouteTemplateStatusAndCircuitBreakerState() {
+		StepVerifier.create(proxyMetrics.timeRequest(route, "request-1", Mono.just("body"), body -> 200)).expectNext("body").verifyComplete();
+		route.circuitBreaker().transitionToOpenState();
+		StepVerifier.create(proxyMetrics.timeRequest(route, "request-2",
+				Mono.<String>error(new CustomResponseStatusException(SERVICE_UNAVAILABLE, "API service is unavailable")), body -> 200)).verifyError();
+
+		assertThat(meterRegistry.get("proxy.requests").tags("route", "/posts/{id}", "status", "200", "circuitbreaker.state", "CLOSED")
+				.timer().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("proxy.requests").tags("route", "/posts/{id}", "status", "503", "circuitbreaker.state", "OPEN")
+				.timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldTagRequestsWithTheStatusOfTheResponse() {
+		StepVerifier.create(proxyMetrics.timeRequest(route, "request-1", Mono.just(ResponseEntity.status(NOT_MODIFIED).build()),
+				entity -> entity.getStatusCode().value())).expectNextCount(1).verifyComplete();
+
+		assertThat(meterRegistry.get("proxy.requests").tags("route", "/posts/{id}", "status", "304").timer().count()).isEqualTo(1);
+		assertThat(meterRegistry.find("proxy.requests").tags("status", "200").timer()).isNull();
+	}
+
+	@Test
+	void shouldRecordUpstreamStatusAndPayloadSizePerAttempt() {
+		StepVerifier.create(proxyMetrics.timeUpstream("/posts/{id}", Mono.just(ResponseEntity.ok("{\"id\":1}")))).expectNextCount(1).verifyComplete();
+		StepVerifier.create(proxyMetrics.timeUpstream("/posts/{id}",
+				Mono.<ResponseEntity<String>>error(new CustomResponseStatusException(BAD_GATEWAY, "ERROR")))).verifyError();
+		StepVerifier.create(proxyMetrics.timeUpstream("/posts/{id}",
+				Mono.<ResponseEntity<String>>error(new IllegalStateException("connection reset")))).verifyError();
+		proxyMetrics.recordAttempts("/posts/{id}", 3);
+
+		assertThat(meterRegistry.get("proxy.upstream.requests").tags("route", "/posts/{id}", "upstream.status", "200").timer().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("proxy.upstream.requests").tags("route", "/posts/{id}", "upstream.status", "502").timer().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("proxy.upstream.requests").tags("route", "/posts/{id}", "upstream.status", "CLIENT_ERROR").timer().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("proxy.upstream.response.size").summary().totalAmount()).isEqualTo(8);
+		assertThat(meterRegistry.get("proxy.upstream.attempts").summary().max()).isEqualTo(3);
+	}
+
+	@Test
+	void shouldAttachRequestIdAsExemplar() {
+		StepVerifier.create(proxyMetrics.timeRequest(route, "request-42", Mono.just("body"), body -> 200)).expectNext("body").verifyComplete();
+
+		assertThat(meterRegistry.scrape(TextFormat.CONTENT_TYPE_OPENMETRICS_100))
+				.contains("trace_id=\"request-42\"")
+				.doesNotContain("span_id")
+				.contains("proxy_requests_seconds_bucket{circuitbreaker_state=\"CLOSED\",route=\"/posts/{id}\",status=\"200\"");
+	}
+
+	@Test
+	void shouldRecordWithoutExemplarWhenRequestIdIsTooLongForOne() {
+		final String requestId = "r".repeat(100);
+		StepVerifier.create(proxyMetrics.timeRequest(route, requestId, Mono.just("body"), body -> 200)).expectNext("body").verifyComplete();
+
+		assertThat(meterRegistry.get("proxy.requests").tags("status", "200").timer().count()).isEqualTo(1);
+		assertThat(meterRegistry.scrape(TextFormat.CONTENT_TYPE_OPENMETRICS_100)).doesNotContain(requestId);
+	}
+}
@@ -0,0 +1,110 @@
+package com.habeebcycle.demo.resilientservice.resilience;
+
+import com.habeebcycle.demo.resilientservice.config.LimiterProperties;
+import com.habeebcycle.demo.resilientservice.http.exception.ConcurrencyLimitExceededException;
+import com.habeebcycle.demo.resilientservice.http.exception.DeadlineExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
+
+class AdaptiveConcurrencyLimiterTests {
+
+	private static final String ROUTE = "/posts/{id}";
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void shouldRejectCallsAboveTheLimitWithRetryAfter() {
+		final AdaptiveConcurrencyLimiter limiter = limiter(2);
+		final List<Disposable> pending = new ArrayList<>();
+		pending.add(Mono.never().transformDeferred(limiter.of(ROUTE)).subscribe());
+		pending.add(Mono.never().transformDeferred(limiter.of(ROUTE)).subscribe());
+
+		StepVerifier.create(Mono.just("body").transformDeferred(limiter.of(ROUTE)))
+				.expectErrorSatisfies(throwable -> {
+					assertThat(throwable).isInstanceOf(ConcurrencyLimitExceededException.class);
+					assertThat(((ConcurrencyLimitExceededException) throwable).getHeaders().getFirst(RETRY_AFTER)).isEqualTo("2");
+				})
+				.verify();
+
+		pending.forEach(Disposable::dispose);
+		assertThat(limiter.getInFlight(ROUTE)).isZero();
+		assertThat(meterRegistry.get("proxy.limiter.rejections").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldShrinkLimitWhenLatencyRises() {
+		final AdaptiveConcurrencyLimiter limiter = limiter(10);
+
+		// Baseline: fast calls while the limit is saturated
+		for (int i = 0; i < 50; i++) {
+			saturatedCall(limiter, Duration.ofMillis(1));
+		}
+		final int baseline = limiter.getLimit(ROUTE);
+
+		for (int i = 0; i < 20; i++) {
+			saturatedCall(limiter, Duration.ofMillis(20));
+		}
+
+		assertThat(limiter.getLimit(ROUTE)).isLessThan(baseline);
+	}
+
+	@Test
+	void shouldCutLimitOnTimeoutsWrappedByWebClientAndOnPassedDeadlines() {
+		final AdaptiveConcurrencyLimiter limiter = limiter(50);
+		final WebClientRequestException readTimeout = new WebClientRequestException(ReadTimeoutException.INSTANCE,
+				HttpMethod.GET, URI.create("http://localhost/posts/1"), new HttpHeaders());
+
+		StepVerifier.create(Mono.error(readTimeout).transformDeferred(limiter.of(ROUTE))).verifyError(WebClientRequestException.class);
+		assertThat(limiter.getLimit(ROUTE)).isEqualTo(45);
+		StepVerifier.create(Mono.error(new DeadlineExceededException()).transformDeferred(limiter.of(ROUTE))).verifyError(DeadlineExceededException.class);
+		assertThat(limiter.getLimit(ROUTE)).isEqualTo(40);
+		StepVerifier.create(Mono.error(new IllegalStateException("boom")).transformDeferred(limiter.of(ROUTE))).verifyError(IllegalStateException.class);
+		assertThat(limiter.getLimit(ROUTE)).isEqualTo(40);
+	}
+
+	@Test
+	void shouldKeepLimitsOfRoutesApart() {
+		final AdaptiveConcurrencyLimiter limiter = limiter(2);
+		final List<Disposable> pending = new ArrayList<>();
+		pending.add(Mono.never().transformDeferred(limiter.of(ROUTE)).subscribe());
+		pending.add(Mono.never().transformDeferred(limiter.of(ROUTE)).subscribe());
+
+		StepVerifier.create(Mono.just("list").transformDeferred(limiter.of("/posts"))).expectNext("list").verifyComplete();
+		StepVerifier.create(Mono.just("item").transformDeferred(limiter.of(ROUTE))).verifyError(ConcurrencyLimitExceededException.class);
+
+		pending.forEach(Disposable::dispose);
+		assertThat(meterRegistry.get("proxy.limiter.rejections").tag("route", ROUTE).counter().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("proxy.limiter.rejections").tag("route", "/posts").counter().count()).isZero();
+	}
+
+	private void saturatedCall(final AdaptiveConcurrencyLimiter limiter, final Duration latency) {
+		final List<Disposable> pending = new ArrayList<>();
+		for (int i = 0; i < limiter.getLimit(ROUTE) - 1; i++) {
+			pending.add(Mono.never().transformDeferred(limiter.of(ROUTE)).subscribe());
+		}
+		Mono.delay(latency).transformDeferred(limiter.of(ROUTE)).block();
+		pending.forEach(Disposable::dispose);
+		//The permit is released in doFinally, after block() has already returned on this thread
+		await().pollDelay(Duration.ZERO).pollInterval(Duration.ofMillis(1)).atMost(Duration.ofSeconds(1)).until(() -> limiter.getInFlight(ROUTE) == 0);
+	}
+
+	private AdaptiveConcurrencyLimiter limiter(final int initialLimit) {
+		return new AdaptiveConcurrencyLimiter(new LimiterProperties(true, initialLimit, 1, 100, 1.5, 0.5, 10, Duration.ofSeconds(2)), meterRegistry);
+	}
+}
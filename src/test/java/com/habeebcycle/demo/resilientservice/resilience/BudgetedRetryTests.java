@@ -0,0 +1,76 @@
+package com.habeebcycle.demo.resilientservice.resilience;
+
+import com.habeebcycle.demo.resilientservice.config.RetryProperties;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BudgetedRetryTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final Retry retry = Retry.of("testService", RetryConfig.custom()
+			.maxAttempts(3)
+			.waitDuration(Duration.ofMillis(10))
+			.build());
+
+	@Test
+	void shouldRetryUntilSuccessAndKeepRetryMetrics() {
+		final BudgetedRetry budgetedRetry = budgetedRetry(RetryProperties.Jitter.FULL, 10);
+		final AtomicInteger attempts = new AtomicInteger();
+
+		StepVerifier.create(failingTimes(2, attempts).transformDeferred(budgetedRetry.of(retry)))
+				.expectNext("success")
+				.verifyComplete();
+
+		assertThat(attempts.get()).isEqualTo(3);
+		assertThat(retry.getMetrics().getNumberOfSuccessfulCallsWithRetryAttempt()).isEqualTo(1);
+		assertThat(meterRegistry.get("proxy.retry.budget").tag("retry", "testService").gauge().value()).isEqualTo(8.2);
+	}
+
+	@Test
+	void shouldSuppressRetriesOnceBudgetIsSpent() {
+		final BudgetedRetry budgetedRetry = budgetedRetry(RetryProperties.Jitter.NONE, 1);
+		final AtomicInteger attempts = new AtomicInteger();
+
+		StepVerifier.create(failingTimes(5, attempts).transformDeferred(budgetedRetry.of(retry)))
+				.expectErrorMessage("failure 2")
+				.verify(Duration.ofSeconds(5));
+
+		assertThat(attempts.get()).isEqualTo(2);
+		assertThat(meterRegistry.get("proxy.retry.suppressed").tags("retry", "testService", "reason", "budget").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldSkipRetryWhoseBackoffOutlivesTheDeadline() {
+		final BudgetedRetry budgetedRetry = budgetedRetry(RetryProperties.Jitter.NONE, 10);
+		final AtomicInteger attempts = new AtomicInteger();
+
+		StepVerifier.create(failingTimes(5, attempts)
+						.transformDeferred(budgetedRetry.of(retry))
+						.contextWrite(context -> context.put(Deadline.class, Deadline.after(Duration.ofMillis(5)))))
+				.expectErrorMessage("failure 1")
+				.verify(Duration.ofSeconds(5));
+
+		assertThat(attempts.get()).isEqualTo(1);
+		assertThat(meterRegistry.get("proxy.retry.suppressed").tags("retry", "testService", "reason", "deadline").counter().count()).isEqualTo(1);
+	}
+
+	private BudgetedRetry budgetedRetry(final RetryProperties.Jitter jitter, final int maxTokens) {
+		return new BudgetedRetry(new RetryProperties(jitter, Duration.ofSeconds(1), new RetryProperties.Budget(true, 20, maxTokens)), meterRegistry);
+	}
+
+	private static Mono<String> failingTimes(final int failures, final AtomicInteger attempts) {
+		return Mono.defer(() -> {
+			final int attempt = attempts.incrementAndGet();
+			return attempt <= failures ? Mono.error(new IllegalStateException("failure " + attempt)) : Mono.just("success");
+		});
+	}
+}
@@ -0,0 +1,138 @@
+package com.habeebcycle.demo.resilientservice.resilience;
+
+import com.habeebcycle.demo.resilientservice.config.HedgingProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HedgingPolicyTests {
+
+	private static final String ROUTE = "/posts/{id}";
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void shouldSendHedgeAndCancelSlowPrimary() {
+		final HedgingPolicy policy = policy(100);
+		warmUp(policy);
+
+		final AtomicInteger attempts = new AtomicInteger();
+		final AtomicInteger cancelled = new AtomicInteger();
+		final Mono<String> attempt = Mono.defer(() -> attempts.incrementAndGet() == 1
+				? Mono.<String>never().doOnCancel(cancelled::incrementAndGet)
+				: Mono.just("hedged"));
+
+		StepVerifier.create(attempt.transformDeferred(policy.of(ROUTE)))
+				.expectNext("hedged")
+				.expectComplete()
+				.verify(Duration.ofSeconds(5));
+
+		assertThat(attempts.get()).isEqualTo(2);
+		assertThat(cancelled.get()).isEqualTo(1);
+		assertThat(meterRegistry.get("proxy.hedging.hedges").tag("result", "won").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldNotHedgeWhenBudgetIsExhausted() {
+		final HedgingPolicy policy = policy(0);
+		warmUp(policy);
+
+		final AtomicInteger attempts = new AtomicInteger();
+		final Mono<String> attempt = Mono.defer(() -> {
+			attempts.incrementAndGet();
+			return Mono.delay(Duration.ofMillis(200)).thenReturn("primary");
+		});
+
+		StepVerifier.create(attempt.transformDeferred(policy.of(ROUTE)))
+				.expectNext("primary")
+				.expectComplete()
+				.verify(Duration.ofSeconds(5));
+
+		assertThat(attempts.get()).isEqualTo(1);
+		assertThat(meterRegistry.get("proxy.hedging.hedges").tag("result", "suppressed").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldLetHedgeWinWhenPrimaryFailsAfterItWasSent() {
+		final HedgingPolicy policy = policy(100);
+		warmUp(policy);
+
+		final AtomicInteger attempts = new AtomicInteger();
+		final Mono<String> attempt = Mono.defer(() -> attempts.incrementAndGet() == 1
+				? Mono.delay(Duration.ofMillis(100)).then(Mono.<String>error(new IllegalStateException("primary failed")))
+				: Mono.delay(Duration.ofMillis(200)).thenReturn("hedged"));
+
+		StepVerifier.create(attempt.transformDeferred(policy.of(ROUTE)))
+				.expectNext("hedged")
+				.expectComplete()
+				.verify(Duration.ofSeconds(5));
+
+		assertThat(attempts.get()).isEqualTo(2);
+	}
+
+	@Test
+	void shouldFailWithPrimaryErrorWithoutHedgeWhenPrimaryFailsFirst() {
+		final HedgingPolicy policy = policy(100);
+		warmUp(policy);
+
+		final AtomicInteger attempts = new AtomicInteger();
+		final Mono<String> attempt = Mono.defer(() -> {
+			attempts.incrementAndGet();
+			return Mono.error(new IllegalStateException("primary failed"));
+		});
+
+		StepVerifier.create(attempt.transformDeferred(policy.of(ROUTE)))
+				.expectErrorMessage("primary failed")
+				.verify(Duration.ofSeconds(5));
+
+		assertThat(attempts.get()).isEqualTo(1);
+		assertThat(meterRegistry.get("proxy.hedging.hedges").tag("result", "sent").counter().count()).isZero();
+	}
+
+	@Test
+	void shouldFailWithLastErrorWhenBothAttemptsFail() {
+		final HedgingPolicy policy = policy(100);
+		warmUp(policy);
+
+		final AtomicInteger attempts = new AtomicInteger();
+		final Mono<String> attempt = Mono.defer(() -> attempts.incrementAndGet() == 1
+				? Mono.delay(Duration.ofMillis(100)).then(Mono.<String>error(new IllegalStateException("primary failed")))
+				: Mono.delay(Duration.ofMillis(200)).then(Mono.<String>error(new IllegalStateException("hedge failed"))));
+
+		StepVerifier.create(attempt.transformDeferred(policy.of(ROUTE)))
+				.expectErrorMessage("hedge failed")
+				.verify(Duration.ofSeconds(5));
+	}
+
+	@Test
+	void shouldDeriveHedgeDelayFromEachRoutesOwnLatencies() {
+		final HedgingPolicy policy = policy(100);
+		warmUp(policy);
+		for (int i = 0; i < 10; i++) {
+			Mono.delay(Duration.ofMillis(50)).transformDeferred(policy.of("/posts")).block();
+		}
+
+		assertThat(meterRegistry.get("proxy.hedging.delay").tag("route", "/posts").gauge().value()).isGreaterThanOrEqualTo(50);
+		assertThat(meterRegistry.get("proxy.hedging.delay").tag("route", ROUTE).gauge().value()).isLessThan(20);
+	}
+
+	private void warmUp(final HedgingPolicy policy) {
+		warmUp(policy, ROUTE);
+	}
+
+	private void warmUp(final HedgingPolicy policy, final String route) {
+		for (int i = 0; i < 10; i++) {
+			Mono.just("fast").transformDeferred(policy.of(route)).block();
+		}
+	}
+
+	private HedgingPolicy policy(final double maxExtraLoadPercent) {
+		return new HedgingPolicy(new HedgingProperties(true, 0.95, Duration.ofMillis(20), maxExtraLoadPercent, 10, 10), meterRegistry);
+	}
+}
@@ -0,0 +1,116 @@
+package com.habeebcycle.demo.resilientservice.resilience;
+
+import com.habeebcycle.demo.resilientservice.config.RateLimitProperties;
+import com.habeebcycle.demo.resilientservice.http.exception.RateLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.test.StepVerifier;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InboundRateLimiterTests {
+
+	private static final HandlerFunction<ServerResponse> OK = request -> ServerResponse.ok().build();
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void shouldAdmitBurstThenOneRequestPerInterval() {
+		final AtomicLong arrival = new AtomicLong(Long.MIN_VALUE);
+		final long interval = 100;
+		final long tolerance = interval * 3;
+
+		for (int i = 0; i < 3; i++) {
+			assertThat(InboundRateLimiter.acquire(arrival, 1_000, interval, tolerance)).isZero();
+		}
+		assertThat(InboundRateLimiter.acquire(arrival, 1_000, interval, tolerance)).isEqualTo(100);
+		assertThat(InboundRateLimiter.acquire(arrival, 1_060, interval, tolerance)).isEqualTo(40);
+		assertThat(InboundRateLimiter.acquire(arrival, 1_100, interval, tolerance)).isZero();
+		assertThat(InboundRateLimiter.acquire(arrival, 1_100, interval, tolerance)).isEqualTo(100);
+	}
+
+	@Test
+	void shouldLimitEachClientSeparatelyAndRejectWithLimitHeaders() {
+		final InboundRateLimiter limiter = limiter(1, 0, 0, 100);
+
+		for (int i = 0; i < 2; i++) {
+			StepVerifier.create(limiter.filter(request("noisy", null), OK)).expectNextCount(1).verifyComplete();
+		}
+		StepVerifier.create(limiter.filter(request("noisy", null), OK))
+				.expectErrorSatisfies(error -> {
+					assertThat(error).isInstanceOf(RateLimitExceededException.class);
+					assertThat(((RateLimitExceededException) error).getHeaders().toSingleValueMap())
+							.containsEntry("RateLimit-Limit", "2")
+							.containsEntry("RateLimit-Remaining", "0")
+							.containsEntry("Retry-After", "1");
+				})
+				.verify();
+		StepVerifier.create(limiter.filter(request("quiet", null), OK)).expectNextCount(1).verifyComplete();
+		StepVerifier.create(limiter.filter(request(null, "10.0.0.1"), OK)).expectNextCount(1).verifyComplete();
+
+		assertThat(meterRegistry.get("proxy.ratelimit.rejected").tag("limit", "client").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldApplyGlobalLimitAcrossClients() {
+		final InboundRateLimiter limiter = limiter(1, 1, 3, 100);
+
+		for (int i = 0; i < 3; i++) {
+			StepVerifier.create(limiter.filter(request("client-" + i, null), OK)).expectNextCount(1).verifyComplete();
+		}
+		StepVerifier.create(limiter.filter(request("client-3", null), OK))
+				.expectError(RateLimitExceededException.class)
+				.verify();
+		assertThat(meterRegistry.get("proxy.ratelimit.rejected").tag("limit", "global").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldShareOverflowBucketBeyondMaxClients() {
+		final InboundRateLimiter limiter = limiter(1, 0, 0, 1);
+
+		StepVerifier.create(limiter.filter(request("first", null), OK)).expectNextCount(1).verifyComplete();
+		// Every client beyond the first shares one bucket
+		StepVerifier.create(limiter.filter(request("second", null), OK)).expectNextCount(1).verifyComplete();
+		StepVerifier.create(limiter.filter(request("third", null), OK)).expectNextCount(1).verifyComplete();
+		StepVerifier.create(limiter.filter(request("fourth", null), OK)).expectError(RateLimitExceededException.class).verify();
+		assertThat(meterRegistry.get("proxy.ratelimit.clients").gauge().value()).isEqualTo(2);
+
+		limiter.evictIdle(); // Both buckets are still refilling
+		assertThat(meterRegistry.get("proxy.ratelimit.clients").gauge().value()).isEqualTo(2);
+	}
+
+	@Test
+	void shouldForgetClientsOnceTheirBucketIsFullAgain() throws InterruptedException {
+		final InboundRateLimiter limiter = limiter(1000, 0, 0, 100);
+
+		StepVerifier.create(limiter.filter(request("client", null), OK)).expectNextCount(1).verifyComplete();
+		assertThat(meterRegistry.get("proxy.ratelimit.clients").gauge().value()).isEqualTo(1);
+
+		Thread.sleep(10); // A millisecond per token at 1000 per second
+		limiter.evictIdle(); // Idle timeout of zero
+		assertThat(meterRegistry.get("proxy.ratelimit.clients").gauge().value()).isZero();
+	}
+
+	private InboundRateLimiter limiter(final double clientRate, final double globalRate, final int globalBurst, final int maxClients) {
+		return new InboundRateLimiter(new RateLimitProperties(true, "X-Api-Key", clientRate, 2, globalRate, globalBurst,
+				maxClients, Duration.ZERO), meterRegistry);
+	}
+
+	private static MockServerRequest request(final String apiKey, final String address) {
+		final MockServerRequest.Builder builder = MockServerRequest.builder();
+		if (apiKey != null) {
+			builder.header("X-Api-Key", apiKey);
+		}
+		if (address != null) {
+			builder.remoteAddress(new InetSocketAddress(address, 40000));
+		}
+		return builder.build();
+	}
+}
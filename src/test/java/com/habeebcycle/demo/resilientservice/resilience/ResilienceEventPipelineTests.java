@@ -0,0 +1,154 @@
+package com.habeebcycle.demo.resilientservice.resilience;
+
+import com.habeebcycle.demo.resilientservice.config.EventsProperties;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResilienceEventPipelineTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+	private final RetryRegistry retryRegistry = RetryRegistry.ofDefaults();
+
+	@Test
+	void shouldAggregateEventsOfInstancesAddedAfterSubscription() throws Exception {
+		final ResilienceEventPipeline pipeline = pipeline(64);
+		circuitBreakerRegistry.circuitBreaker("existing");
+		pipeline.subscribeAll();
+
+		final CircuitBreaker existing = circuitBreakerRegistry.circuitBreaker("existing");
+		final CircuitBreaker added = circuitBreakerRegistry.circuitBreaker("added");
+		existing.onSuccess(1, TimeUnit.MILLISECONDS);
+		existing.onSuccess(1, TimeUnit.MILLISECONDS);
+		added.onError(1, TimeUnit.MILLISECONDS, new IllegalStateException("boom"));
+		retryRegistry.retry("retry", RetryConfig.custom().waitDuration(Duration.ofMillis(1)).build())
+				.context().onError(new IllegalStateException("boom"));
+
+		assertThat(pipeline.drain()).isEqualTo(4);
+		assertThat(pipeline.summarize()).containsExactly(
+				"Circuit breaker [added] in state [CLOSED] events over the last [PT10S]: {ERROR=1}",
+				"Circuit breaker [existing] in state [CLOSED] events over the last [PT10S]: {SUCCESS=2}",
+				"Retry [retry] events over the last [PT10S]: {RETRY=1}");
+		assertThat(pipeline.summarize()).isEmpty();
+	}
+
+	@Test
+	void shouldCountDroppedEventsWithoutBlockingWhenBufferIsFull() {
+		final ResilienceEventPipeline pipeline = pipeline(2);
+		pipeline.subscribeAll();
+
+		final CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("full");
+		for (int i = 0; i < 5; i++) {
+			circuitBreaker.onSuccess(1, TimeUnit.MILLISECONDS);
+		}
+
+		assertThat(meterRegistry.get("proxy.resilience.events.dropped").counter().count()).isEqualTo(3);
+		assertThat(pipeline.drain()).isEqualTo(2);
+		assertThat(pipeline.summarize()).contains("Dropped [3] resilience events over the last [PT10S]: event buffer of [2] was full");
+	}
+
+	@Test
+	void shouldNotKeepReplacedInstancesReachable() throws InterruptedException {
+		final ResilienceEventPipeline pipeline = pipeline(64);
+		pipeline.subscribeAll();
+		final WeakReference<CircuitBreaker> replaced = new WeakReference<>(circuitBreakerRegistry.circuitBreaker("replaced"));
+
+		circuitBreakerRegistry.replace("replaced", CircuitBreaker.ofDefaults("replaced"));
+
+		for (int i = 0; i < 50 && replaced.get() != null; i++) {
+			System.gc();
+			Thread.sleep(20);
+		}
+		assertThat(replaced.get()).isNull();
+	}
+
+	@Test
+	void shouldWakeIdleConsumerOnFirstEventRatherThanAtNextSummary() throws InterruptedException {
+		final ResilienceEventPipeline pipeline = pipeline(64);
+		pipeline.start();
+		try {
+			Thread.sleep(200); // Parked until the summary, 10s away
+			circuitBreakerRegistry.circuitBreaker("idle").onSuccess(1, TimeUnit.MILLISECONDS);
+
+			final long deadline = System.nanoTime() + Duration.ofSeconds(2).toNanos();
+			while (queued() > 0 && System.nanoTime() < deadline) {
+				Thread.sleep(10);
+			}
+			assertThat(queued()).isZero();
+		} finally {
+			pipeline.stop();
+		}
+	}
+
+	@Test
+	void shouldNotLoseElementsOfConcurrentProducers() throws InterruptedException {
+		final MpmcRingBuffer<Integer> buffer = new MpmcRingBuffer<>(1024);
+		final int producers = 4;
+		final int perProducer = 10_000;
+		final CountDownLatch start = new CountDownLatch(1);
+		final ConcurrentLinkedQueue<Integer> consumed = new ConcurrentLinkedQueue<>();
+		final List<Thread> threads = new ArrayList<>();
+		for (int p = 0; p < producers; p++) {
+			final int base = p * perProducer;
+			threads.add(new Thread(() -> {
+				awaitQuietly(start);
+				for (int i = 0; i < perProducer; i++) {
+					while (!buffer.offer(base + i)) {
+						Thread.yield();
+					}
+				}
+			}));
+		}
+		threads.add(new Thread(() -> {
+			awaitQuietly(start);
+			while (consumed.size() < producers * perProducer) {
+				final Integer element = buffer.poll();
+				if (element != null) {
+					consumed.add(element);
+				} else {
+					Thread.yield();
+				}
+			}
+		}));
+
+		threads.forEach(Thread::start);
+		start.countDown();
+		for (final Thread thread : threads) {
+			thread.join(Duration.ofSeconds(30).toMillis());
+		}
+
+		assertThat(consumed).hasSize(producers * perProducer).doesNotHaveDuplicates();
+		assertThat(buffer.poll()).isNull();
+	}
+
+	private double queued() {
+		return meterRegistry.get("proxy.resilience.events.queued").gauge().value();
+	}
+
+	private ResilienceEventPipeline pipeline(final int capacity) {
+		return new ResilienceEventPipeline(circuitBreakerRegistry, retryRegistry,
+				new EventsProperties(capacity, Duration.ofSeconds(10)), meterRegistry);
+	}
+
+	private static void awaitQuietly(final CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
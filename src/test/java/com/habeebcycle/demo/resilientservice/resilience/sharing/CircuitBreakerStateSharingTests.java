@@ -0,0 +1,147 @@
+package com.habeebcycle.demo.resilientservice.resilience.sharing;
+
+import com.habeebcycle.demo.resilientservice.config.StateSharingProperties;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.resilience4j.circuitbreaker.CircuitBreaker.State.CLOSED;
+import static io.github.resilience4j.circuitbreaker.CircuitBreaker.State.HALF_OPEN;
+import static io.github.resilience4j.circuitbreaker.CircuitBreaker.State.OPEN;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class CircuitBreakerStateSharingTests {
+
+	private static final CircuitBreakerConfig CONFIG = CircuitBreakerConfig.custom()
+			.slidingWindowSize(10)
+			.minimumNumberOfCalls(4)
+			.failureRateThreshold(50)
+			.waitDurationInOpenState(Duration.ofMinutes(1))
+			.build();
+
+	private static final SecretKey KEY = BreakerStateMessage.key("cluster secret");
+	private static final BreakerStateMessage MESSAGE = new BreakerStateMessage(BreakerStateMessage.Kind.WINDOW, "cluster", "node", 42,
+			1_700_000_000_000L, "testService", HALF_OPEN, 10, 3);
+
+	private final List<CircuitBreakerStateSharing> replicas = new ArrayList<>();
+
+	@AfterEach
+	void tearDown() {
+		replicas.forEach(CircuitBreakerStateSharing::stop);
+	}
+
+	@Test
+	void shouldFollowPeerTransitionsThroughOpenHalfOpenAndClosed() {
+		final CircuitBreaker first = replica().circuitBreaker("testService");
+		final CircuitBreaker second = replica().circuitBreaker("testService");
+
+		first.transitionToOpenState();
+		await().atMost(Duration.ofSeconds(5)).until(() -> second.getState() == OPEN);
+
+		first.transitionToHalfOpenState();
+		await().atMost(Duration.ofSeconds(5)).until(() -> second.getState() == HALF_OPEN);
+
+		first.transitionToClosedState();
+		await().atMost(Duration.ofSeconds(5)).until(() -> second.getState() == CLOSED);
+
+		// A peer's transition is not echoed back
+		second.transitionToForcedOpenState();
+		await().during(Duration.ofMillis(300)).atMost(Duration.ofSeconds(1)).until(() -> first.getState() == CLOSED);
+	}
+
+	@Test
+	void shouldOpenEveryReplicaOnceCombinedWindowsCrossTheThreshold() {
+		final CircuitBreaker first = replica().circuitBreaker("testService");
+		final CircuitBreaker second = replica().circuitBreaker("testService");
+
+		// Half of the minimum number of calls each: neither would open on its own
+		for (final CircuitBreaker circuitBreaker : List.of(first, second)) {
+			circuitBreaker.onError(1, TimeUnit.MILLISECONDS, new IOException("boom"));
+			circuitBreaker.onError(1, TimeUnit.MILLISECONDS, new IOException("boom"));
+		}
+		assertThat(first.getState()).isEqualTo(CLOSED);
+
+		await().atMost(Duration.ofSeconds(5)).until(() -> first.getState() == OPEN && second.getState() == OPEN);
+	}
+
+	@Test
+	void shouldRoundTripMessagesThroughTheWireFormat() throws IOException {
+		final byte[] bytes = MESSAGE.encode(KEY);
+
+		assertThat(BreakerStateMessage.decode(bytes, 0, bytes.length, KEY)).isEqualTo(MESSAGE);
+	}
+
+	@Test
+	void shouldRejectMessagesTamperedWithOrSentWithAnotherSecret() {
+		final byte[] tampered = MESSAGE.encode(KEY);
+		tampered[tampered.length - 33] ^= 1; // Last byte of the failed calls count, just before the HMAC
+		final byte[] foreign = MESSAGE.encode(BreakerStateMessage.key("another secret"));
+
+		assertThatThrownBy(() -> BreakerStateMessage.decode(tampered, 0, tampered.length, KEY))
+				.isInstanceOf(IOException.class).hasMessage("Message failed authentication");
+		assertThatThrownBy(() -> BreakerStateMessage.decode(foreign, 0, foreign.length, KEY))
+				.isInstanceOf(IOException.class).hasMessage("Message failed authentication");
+		assertThatThrownBy(() -> BreakerStateMessage.decode(new byte[8], 0, 8, KEY)).isInstanceOf(IOException.class);
+	}
+
+	@Test
+	void shouldRefuseReplayedTransitionsAfterThePeerWindowExpired() throws InterruptedException {
+		final CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(CONFIG);
+		final CircuitBreaker circuitBreaker = registry.circuitBreaker("testService");
+		final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		final StateSharingProperties properties = new StateSharingProperties(true, "test", StateSharingProperties.Transport.LOOPBACK,
+				"239.255.27.1", 45600, null, 1, null, Duration.ofMillis(50), Duration.ofSeconds(5), List.of());
+		// Not started: messages are handed to receive() directly, as the gossip thread would
+		final CircuitBreakerStateSharing sharing = new CircuitBreakerStateSharing(properties, registry,
+				new LoopbackStateTransport(), meterRegistry);
+		final BreakerStateMessage captured = opened(1, System.currentTimeMillis());
+
+		sharing.receive(captured);
+		assertThat(circuitBreaker.getState()).isEqualTo(OPEN);
+		circuitBreaker.transitionToClosedState();
+
+		Thread.sleep(200); // Past the peer expiry of three intervals
+		sharing.gossipWindows();
+		sharing.receive(captured);
+		sharing.receive(opened(2, System.currentTimeMillis() - Duration.ofMinutes(1).toMillis()));
+
+		assertThat(circuitBreaker.getState()).isEqualTo(CLOSED);
+		assertThat(meterRegistry.get("proxy.resilience.sharing.messages").tag("direction", "dropped").counter().count()).isEqualTo(2);
+	}
+
+	@Test
+	void shouldNotStartMulticastWithoutSharedSecret() {
+		final MulticastStateTransport transport = new MulticastStateTransport("239.255.27.1", 45600, null, 1, " ");
+
+		assertThatThrownBy(() -> transport.start(message -> {})).isInstanceOf(IOException.class);
+		transport.close();
+	}
+
+	private CircuitBreakerRegistry replica() {
+		final CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(CONFIG);
+		final StateSharingProperties properties = new StateSharingProperties(true, "test", StateSharingProperties.Transport.LOOPBACK,
+				"239.255.27.1", 45600, null, 1, null, Duration.ofMillis(50), Duration.ofSeconds(5), List.of());
+		final CircuitBreakerStateSharing sharing = new CircuitBreakerStateSharing(properties, registry,
+				StateTransport.of(properties), new SimpleMeterRegistry());
+		sharing.start();
+		replicas.add(sharing);
+		return registry;
+	}
+
+	private static BreakerStateMessage opened(final long sequence, final long timestamp) {
+		return new BreakerStateMessage(BreakerStateMessage.Kind.TRANSITION, "test", "peer", sequence, timestamp,
+				"testService", OPEN, 0, 0);
+	}
+}
@@ -0,0 +1,27 @@
+package com.habeebcycle.demo.resilientservice.startup;
+
+import com.habeebcycle.demo.resilientservice.handler.Post;
+import com.habeebcycle.demo.resilientservice.http.exception.DeadlineExceededException;
+import com.habeebcycle.demo.resilientservice.http.exception.RecordFailurePredicate;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NativeRuntimeHintsTests {
+
+	private final RuntimeHints hints = new RuntimeHints();
+
+	@Test
+	void shouldRegisterClassesNamedInTheResilience4jConfiguration() {
+		new NativeRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+		assertThat(RuntimeHintsPredicates.reflection().onType(RecordFailurePredicate.class)
+				.withMemberCategory(MemberCategory.INVOKE_DECLARED_CONSTRUCTORS)).accepts(hints);
+		assertThat(RuntimeHintsPredicates.reflection().onType(DeadlineExceededException.class)).accepts(hints);
+		assertThat(RuntimeHintsPredicates.reflection().onType(Post.class)
+				.withMemberCategory(MemberCategory.INVOKE_PUBLIC_METHODS)).accepts(hints);
+	}
+}